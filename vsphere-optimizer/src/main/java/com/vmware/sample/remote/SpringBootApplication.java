@@ -5,6 +5,7 @@ import javax.net.ssl.HttpsURLConnection;
 
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,7 +15,9 @@ import com.vmware.sample.remote.filters.SecurityFilter;
 
 @Configuration
 @ImportResource("classpath:spring-context.xml")
-@org.springframework.boot.autoconfigure.SpringBootApplication
+// The chassis store of the jdbc-store profile manages its own connection pool.
+@org.springframework.boot.autoconfigure.SpringBootApplication(
+      exclude = DataSourceAutoConfiguration.class)
 public class SpringBootApplication {
 
    public static void main(String[] args) {
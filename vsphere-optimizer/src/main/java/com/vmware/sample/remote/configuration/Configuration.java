@@ -9,6 +9,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.core.env.Environment;
 
+import com.vmware.sample.remote.websocket.SlowConsumerPolicy;
+
 public class Configuration {
 
    private static final Log logger = LogFactory.getLog(Configuration.class);
@@ -19,6 +21,95 @@ public class Configuration {
    private static final String PROPERTY_KEY_PORT = "vcenter.port";
    private static final String PROPERTY_KEY_GUID = "vcenter.guid";
    private static final String PROPERTY_KEY_THUMBPRINT = "vcenter.thumbprint";
+   private static final String PROPERTY_KEY_GATEWAY_MAX_CONNECTIONS =
+         "gateway.http.maxConnections";
+   private static final String PROPERTY_KEY_GATEWAY_MAX_CONNECTIONS_PER_ROUTE =
+         "gateway.http.maxConnectionsPerRoute";
+   private static final String PROPERTY_KEY_GATEWAY_KEEP_ALIVE_SECONDS =
+         "gateway.http.keepAliveSeconds";
+   private static final String PROPERTY_KEY_GATEWAY_CONNECT_TIMEOUT_MS =
+         "gateway.http.connectTimeoutMs";
+   private static final String PROPERTY_KEY_GATEWAY_READ_TIMEOUT_MS =
+         "gateway.http.readTimeoutMs";
+   private static final String PROPERTY_KEY_VIM_MAX_CONNECTIONS =
+         "vim.http.maxConnections";
+   private static final String PROPERTY_KEY_VIM_CONNECT_TIMEOUT_MS =
+         "vim.http.connectTimeoutMs";
+   private static final String PROPERTY_KEY_VIM_READ_TIMEOUT_MS =
+         "vim.http.readTimeoutMs";
+   private static final String PROPERTY_KEY_VIM_COMPRESSION =
+         "vim.http.compression";
+   private static final String PROPERTY_KEY_VIM_RETRIEVE_PAGE_SIZE =
+         "vim.retrieve.pageSize";
+   private static final String PROPERTY_KEY_VIM_TASKS_THREADS =
+         "vim.tasks.threads";
+   private static final String PROPERTY_KEY_INVENTORY_MIRROR_ENABLED =
+         "inventory.mirror.enabled";
+   private static final String PROPERTY_KEY_INVENTORY_MIRROR_MAX_WAIT_SECONDS =
+         "inventory.mirror.maxWaitSeconds";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_DIRECTORY =
+         "chassis.store.directory";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_SNAPSHOT_INTERVAL =
+         "chassis.store.snapshotInterval";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_JDBC_URL =
+         "chassis.store.jdbc.url";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_JDBC_USERNAME =
+         "chassis.store.jdbc.username";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_JDBC_PASSWORD =
+         "chassis.store.jdbc.password";
+   private static final String PROPERTY_KEY_CHASSIS_STORE_JDBC_MAX_POOL_SIZE =
+         "chassis.store.jdbc.maxPoolSize";
+   private static final String PROPERTY_KEY_WEBSOCKET_DISPATCHER_THREADS =
+         "websocket.dispatcher.threads";
+   private static final String PROPERTY_KEY_WEBSOCKET_SESSION_QUEUE_CAPACITY =
+         "websocket.session.queueCapacity";
+   private static final String PROPERTY_KEY_WEBSOCKET_SESSION_SLOW_CONSUMER_POLICY =
+         "websocket.session.slowConsumerPolicy";
+   private static final String PROPERTY_KEY_WEBSOCKET_SESSION_SEND_TIME_LIMIT_MS =
+         "websocket.session.sendTimeLimitMs";
+   private static final String PROPERTY_KEY_WEBSOCKET_SESSION_BUFFER_SIZE_LIMIT =
+         "websocket.session.bufferSizeLimit";
+   private static final String PROPERTY_KEY_WEBSOCKET_HEARTBEAT_INTERVAL_MS =
+         "websocket.heartbeat.intervalMs";
+   private static final String PROPERTY_KEY_WEBSOCKET_HEARTBEAT_IDLE_TIMEOUT_MS =
+         "websocket.heartbeat.idleTimeoutMs";
+   private static final String PROPERTY_KEY_WEBSOCKET_REPLAY_CAPACITY =
+         "websocket.replay.capacity";
+   private static final String PROPERTY_KEY_MESSAGING_COALESCE_WINDOW_MS =
+         "messaging.coalesce.windowMs";
+   private static final String PROPERTY_KEY_MESSAGING_COALESCE_MAX_LATENCY_MS =
+         "messaging.coalesce.maxLatencyMs";
+   private static final String PROPERTY_KEY_MESSAGING_BUS_MAX_BATCH_SIZE =
+         "messaging.bus.maxBatchSize";
+   private static final int DEFAULT_GATEWAY_MAX_CONNECTIONS = 50;
+   private static final int DEFAULT_GATEWAY_MAX_CONNECTIONS_PER_ROUTE = 20;
+   private static final int DEFAULT_GATEWAY_KEEP_ALIVE_SECONDS = 30;
+   private static final int DEFAULT_GATEWAY_CONNECT_TIMEOUT_MS = 10000;
+   private static final int DEFAULT_GATEWAY_READ_TIMEOUT_MS = 30000;
+   private static final int DEFAULT_VIM_MAX_CONNECTIONS = 20;
+   private static final int DEFAULT_VIM_CONNECT_TIMEOUT_MS = 10000;
+   private static final int DEFAULT_VIM_READ_TIMEOUT_MS = 120000;
+   private static final int DEFAULT_VIM_RETRIEVE_PAGE_SIZE = 500;
+   private static final int DEFAULT_VIM_TASKS_THREADS = 4;
+   private static final int DEFAULT_INVENTORY_MIRROR_MAX_WAIT_SECONDS = 30;
+   private static final String DEFAULT_CHASSIS_STORE_DIRECTORY = "chassis-store";
+   private static final int DEFAULT_CHASSIS_STORE_SNAPSHOT_INTERVAL = 1000;
+   private static final String DEFAULT_CHASSIS_STORE_JDBC_URL =
+         "jdbc:h2:./chassis-db;AUTO_SERVER=TRUE";
+   private static final String DEFAULT_CHASSIS_STORE_JDBC_USERNAME = "sa";
+   private static final int DEFAULT_CHASSIS_STORE_JDBC_MAX_POOL_SIZE = 10;
+   private static final int DEFAULT_WEBSOCKET_DISPATCHER_THREADS = 4;
+   private static final int DEFAULT_WEBSOCKET_SESSION_QUEUE_CAPACITY = 64;
+   private static final SlowConsumerPolicy DEFAULT_WEBSOCKET_SESSION_SLOW_CONSUMER_POLICY =
+         SlowConsumerPolicy.COALESCE;
+   private static final int DEFAULT_WEBSOCKET_SESSION_SEND_TIME_LIMIT_MS = 10000;
+   private static final int DEFAULT_WEBSOCKET_SESSION_BUFFER_SIZE_LIMIT = 512 * 1024;
+   private static final int DEFAULT_WEBSOCKET_HEARTBEAT_INTERVAL_MS = 30000;
+   private static final int DEFAULT_WEBSOCKET_HEARTBEAT_IDLE_TIMEOUT_MS = 90000;
+   private static final int DEFAULT_WEBSOCKET_REPLAY_CAPACITY = 1000;
+   private static final int DEFAULT_MESSAGING_COALESCE_WINDOW_MS = 250;
+   private static final int DEFAULT_MESSAGING_COALESCE_MAX_LATENCY_MS = 1000;
+   private static final int DEFAULT_MESSAGING_BUS_MAX_BATCH_SIZE = 100;
    private static final String MISSING_PROPERTY_VALIDATION_MSG =
          "vCenter Server property %s must not be null or empty!";
    private static final String THUMBPRINT_HEX_VALIDATION_MSG =
@@ -102,6 +193,240 @@ public class Configuration {
       return env.getProperty(PROPERTY_KEY_PORT);
    }
 
+   /**
+    * @return the maximum number of pooled connections to the API-GW.
+    */
+   public int getGatewayMaxConnections() {
+      return env.getProperty(PROPERTY_KEY_GATEWAY_MAX_CONNECTIONS, Integer.class,
+            DEFAULT_GATEWAY_MAX_CONNECTIONS);
+   }
+
+   /**
+    * @return the maximum number of pooled connections per API-GW route.
+    */
+   public int getGatewayMaxConnectionsPerRoute() {
+      return env.getProperty(PROPERTY_KEY_GATEWAY_MAX_CONNECTIONS_PER_ROUTE,
+            Integer.class, DEFAULT_GATEWAY_MAX_CONNECTIONS_PER_ROUTE);
+   }
+
+   /**
+    * @return for how long an idle API-GW connection is kept alive in the pool.
+    */
+   public int getGatewayKeepAliveSeconds() {
+      return env.getProperty(PROPERTY_KEY_GATEWAY_KEEP_ALIVE_SECONDS, Integer.class,
+            DEFAULT_GATEWAY_KEEP_ALIVE_SECONDS);
+   }
+
+   public int getGatewayConnectTimeoutMs() {
+      return env.getProperty(PROPERTY_KEY_GATEWAY_CONNECT_TIMEOUT_MS, Integer.class,
+            DEFAULT_GATEWAY_CONNECT_TIMEOUT_MS);
+   }
+
+   public int getGatewayReadTimeoutMs() {
+      return env.getProperty(PROPERTY_KEY_GATEWAY_READ_TIMEOUT_MS, Integer.class,
+            DEFAULT_GATEWAY_READ_TIMEOUT_MS);
+   }
+
+   /**
+    * @return the maximum number of idle keep-alive connections to the vCenter
+    * Server SDK endpoint.
+    */
+   public int getVimMaxConnections() {
+      return env.getProperty(PROPERTY_KEY_VIM_MAX_CONNECTIONS, Integer.class,
+            DEFAULT_VIM_MAX_CONNECTIONS);
+   }
+
+   public int getVimConnectTimeoutMs() {
+      return env.getProperty(PROPERTY_KEY_VIM_CONNECT_TIMEOUT_MS, Integer.class,
+            DEFAULT_VIM_CONNECT_TIMEOUT_MS);
+   }
+
+   public int getVimReadTimeoutMs() {
+      return env.getProperty(PROPERTY_KEY_VIM_READ_TIMEOUT_MS, Integer.class,
+            DEFAULT_VIM_READ_TIMEOUT_MS);
+   }
+
+   /**
+    * @return whether gzip compressed SOAP responses are requested.
+    */
+   public boolean isVimCompressionEnabled() {
+      return env.getProperty(PROPERTY_KEY_VIM_COMPRESSION, Boolean.class, true);
+   }
+
+   /**
+    * @return the maximum number of objects returned by the PropertyCollector
+    * in a single page.
+    */
+   public int getVimRetrievePageSize() {
+      return env.getProperty(PROPERTY_KEY_VIM_RETRIEVE_PAGE_SIZE, Integer.class,
+            DEFAULT_VIM_RETRIEVE_PAGE_SIZE);
+   }
+
+   /**
+    * @return the number of threads which create and update the vCenter Server
+    * tasks in the background.
+    */
+   public int getVimTasksThreads() {
+      return env.getProperty(PROPERTY_KEY_VIM_TASKS_THREADS, Integer.class,
+            DEFAULT_VIM_TASKS_THREADS);
+   }
+
+   /**
+    * @return whether host reads are served from a per-user inventory mirror.
+    */
+   public boolean isInventoryMirrorEnabled() {
+      return env.getProperty(PROPERTY_KEY_INVENTORY_MIRROR_ENABLED, Boolean.class,
+            false);
+   }
+
+   /**
+    * @return how long a single WaitForUpdatesEx call of the inventory mirror
+    * blocks. Must be lower than the SDK read timeout.
+    */
+   public int getInventoryMirrorMaxWaitSeconds() {
+      return env.getProperty(PROPERTY_KEY_INVENTORY_MIRROR_MAX_WAIT_SECONDS,
+            Integer.class, DEFAULT_INVENTORY_MIRROR_MAX_WAIT_SECONDS);
+   }
+
+   /**
+    * @return the directory the durable chassis store keeps its files in.
+    */
+   public String getChassisStoreDirectory() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_DIRECTORY,
+            DEFAULT_CHASSIS_STORE_DIRECTORY);
+   }
+
+   /**
+    * @return after how many logged changes the durable chassis store writes a
+    * new snapshot and starts a new log.
+    */
+   public int getChassisStoreSnapshotInterval() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_SNAPSHOT_INTERVAL,
+            Integer.class, DEFAULT_CHASSIS_STORE_SNAPSHOT_INTERVAL);
+   }
+
+   /**
+    * @return the JDBC URL of the database of the JDBC chassis store.
+    */
+   public String getChassisStoreJdbcUrl() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_JDBC_URL,
+            DEFAULT_CHASSIS_STORE_JDBC_URL);
+   }
+
+   public String getChassisStoreJdbcUsername() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_JDBC_USERNAME,
+            DEFAULT_CHASSIS_STORE_JDBC_USERNAME);
+   }
+
+   public String getChassisStoreJdbcPassword() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_JDBC_PASSWORD, "");
+   }
+
+   /**
+    * @return the maximum number of pooled connections to the chassis database.
+    */
+   public int getChassisStoreJdbcMaxPoolSize() {
+      return env.getProperty(PROPERTY_KEY_CHASSIS_STORE_JDBC_MAX_POOL_SIZE,
+            Integer.class, DEFAULT_CHASSIS_STORE_JDBC_MAX_POOL_SIZE);
+   }
+
+   /**
+    * @return the number of threads sending messages to the WebSocket clients.
+    */
+   public int getWebSocketDispatcherThreads() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_DISPATCHER_THREADS,
+            Integer.class, DEFAULT_WEBSOCKET_DISPATCHER_THREADS);
+   }
+
+   /**
+    * @return the maximum number of messages waiting to be sent to a single
+    * WebSocket client.
+    */
+   public int getWebSocketSessionQueueCapacity() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_SESSION_QUEUE_CAPACITY,
+            Integer.class, DEFAULT_WEBSOCKET_SESSION_QUEUE_CAPACITY);
+   }
+
+   /**
+    * @return what is done with a message for a WebSocket client whose queue is
+    * full.
+    */
+   public SlowConsumerPolicy getWebSocketSessionSlowConsumerPolicy() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_SESSION_SLOW_CONSUMER_POLICY,
+            SlowConsumerPolicy.class, DEFAULT_WEBSOCKET_SESSION_SLOW_CONSUMER_POLICY);
+   }
+
+   /**
+    * @return for how long a single send to a WebSocket client may block other
+    * sends to the same client before it is closed.
+    */
+   public int getWebSocketSessionSendTimeLimitMs() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_SESSION_SEND_TIME_LIMIT_MS,
+            Integer.class, DEFAULT_WEBSOCKET_SESSION_SEND_TIME_LIMIT_MS);
+   }
+
+   /**
+    * @return how many bytes may be buffered for a WebSocket client while a send
+    * to it blocks before it is closed.
+    */
+   public int getWebSocketSessionBufferSizeLimit() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_SESSION_BUFFER_SIZE_LIMIT,
+            Integer.class, DEFAULT_WEBSOCKET_SESSION_BUFFER_SIZE_LIMIT);
+   }
+
+   /**
+    * @return how often the WebSocket clients are pinged.
+    */
+   public int getWebSocketHeartbeatIntervalMs() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_HEARTBEAT_INTERVAL_MS,
+            Integer.class, DEFAULT_WEBSOCKET_HEARTBEAT_INTERVAL_MS);
+   }
+
+   /**
+    * @return after how long without any message from a WebSocket client,
+    * pongs included, it is disconnected.
+    */
+   public int getWebSocketHeartbeatIdleTimeoutMs() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_HEARTBEAT_IDLE_TIMEOUT_MS,
+            Integer.class, DEFAULT_WEBSOCKET_HEARTBEAT_IDLE_TIMEOUT_MS);
+   }
+
+   /**
+    * @return how many of the recent messages are kept to be replayed to the
+    * reconnecting WebSocket clients.
+    */
+   public int getWebSocketReplayCapacity() {
+      return env.getProperty(PROPERTY_KEY_WEBSOCKET_REPLAY_CAPACITY,
+            Integer.class, DEFAULT_WEBSOCKET_REPLAY_CAPACITY);
+   }
+
+   /**
+    * @return for how long a message is held back to be merged with the next
+    * messages of the same type. 0 disables the merging.
+    */
+   public int getMessagingCoalesceWindowMs() {
+      return env.getProperty(PROPERTY_KEY_MESSAGING_COALESCE_WINDOW_MS,
+            Integer.class, DEFAULT_MESSAGING_COALESCE_WINDOW_MS);
+   }
+
+   /**
+    * @return for how long a message is held back at most, however many
+    * messages of the same type follow it.
+    */
+   public int getMessagingCoalesceMaxLatencyMs() {
+      return env.getProperty(PROPERTY_KEY_MESSAGING_COALESCE_MAX_LATENCY_MS,
+            Integer.class, DEFAULT_MESSAGING_COALESCE_MAX_LATENCY_MS);
+   }
+
+   /**
+    * @return the maximum number of messages published to the broadcast bus
+    * at once.
+    */
+   public int getMessagingBusMaxBatchSize() {
+      return env.getProperty(PROPERTY_KEY_MESSAGING_BUS_MAX_BATCH_SIZE,
+            Integer.class, DEFAULT_MESSAGING_BUS_MAX_BATCH_SIZE);
+   }
+
    private String replaceThumbprintDelimiters(final String thumbprint) {
       return thumbprint.replaceAll(THUMBPRINT_DELIMITERS_REGEX, "");
    }
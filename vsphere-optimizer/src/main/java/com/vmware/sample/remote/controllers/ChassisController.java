@@ -2,9 +2,13 @@
 
 package com.vmware.sample.remote.controllers;
 
+import java.util.Arrays;
 import java.util.List;
 
 import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
 import com.vmware.sample.remote.services.ChassisService;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -19,6 +23,8 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping("/rest/chassis")
 public class ChassisController {
+   private static final String DEFAULT_PAGE_LIMIT = "50";
+   private static final int MAX_PAGE_LIMIT = 1000;
 
    private final ChassisService chassisService;
 
@@ -48,6 +54,49 @@ public class ChassisController {
       return chassisService.getAllChassis();
    }
 
+   /**
+    * Retrieves a page of chassis objects, sorted by the given field and then
+    * by id.
+    *
+    * @param sortBy     the field to sort and filter by.
+    * @param filter     the value the field has to match, all match if omitted.
+    * @param filterMode whether the field has to start with or contain the filter.
+    * @param cursor     the nextCursor of the previous page, omitted for the
+    *                   first page.
+    * @param limit      the maximum number of chassis objects in the page.
+    * @return the chassis objects of the page and the cursor of the next one.
+    */
+   @RequestMapping(value = "/page", method = RequestMethod.GET)
+   public ChassisPage getChassisPage(
+         @RequestParam(value = "sortBy", defaultValue = "NAME")
+         final ChassisPageQuery.SortField sortBy,
+         @RequestParam(value = "filter", required = false) final String filter,
+         @RequestParam(value = "filterMode", defaultValue = "SUBSTRING")
+         final ChassisPageQuery.FilterMode filterMode,
+         @RequestParam(value = "cursor", required = false) final String cursor,
+         @RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_LIMIT)
+         final int limit) {
+      return chassisService.getChassisPage(new ChassisPageQuery(sortBy, filter,
+            filterMode, cursor, Math.min(limit, MAX_PAGE_LIMIT)));
+   }
+
+   /**
+    * Retrieves the chassis objects changed since the given version.
+    *
+    * @param epoch the epoch returned with the previous changes.
+    * @param since the version returned with the previous changes.
+    * @return the changes and the version they lead up to. If resyncRequired
+    *         is set, all chassis objects have to be retrieved again. This is
+    *         always the case if the epoch or the version is omitted, which
+    *         retrieves only the current epoch and version.
+    */
+   @RequestMapping(value = "/changes", method = RequestMethod.GET)
+   public ChassisChanges getChanges(
+         @RequestParam(value = "epoch", required = false) final String epoch,
+         @RequestParam(value = "since", defaultValue = "-1") final long since) {
+      return chassisService.getChangesSince(epoch, since);
+   }
+
    /**
     * Creates a new chassis object.
     *
@@ -69,15 +118,33 @@ public class ChassisController {
    }
 
    /**
-    * Deletes chassis objects.
+    * Creates new chassis objects at once.
+    *
+    * @param chassisList  the new chassis.
+    */
+   @RequestMapping(value = "/bulk", method = RequestMethod.POST)
+   public void createAll(@RequestBody final List<Chassis> chassisList) {
+      chassisService.createAll(chassisList);
+   }
+
+   /**
+    * Edits chassis objects at once.
+    *
+    * @param chassisList chassis objects to be updated.
+    */
+   @RequestMapping(value = "/bulk/edit", method = RequestMethod.PUT)
+   public void editAll(@RequestBody final List<Chassis> chassisList) {
+      chassisService.updateAll(chassisList);
+   }
+
+   /**
+    * Deletes chassis objects at once.
     *
     * @param ids ids of chassis objects to be deleted.
     */
    @RequestMapping(value = "/delete", method = RequestMethod.DELETE)
    public void delete(@RequestParam final String[] ids) {
-      for (final String targetId : ids) {
-         chassisService.delete(targetId);
-      }
+      chassisService.deleteAll(Arrays.asList(ids));
    }
 
    /**
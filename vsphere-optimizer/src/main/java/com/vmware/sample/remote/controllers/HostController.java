@@ -17,6 +17,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.vmware.sample.remote.gateway.CloneSessionReply;
 import com.vmware.sample.remote.gateway.GatewayCredentials;
 import com.vmware.sample.remote.gateway.SessionService;
+import com.vmware.sample.remote.gateway.VimSessionInfo;
 import com.vmware.sample.remote.model.Chassis;
 import com.vmware.sample.remote.model.Host;
 import com.vmware.sample.remote.services.ChassisService;
@@ -25,9 +26,6 @@ import com.vmware.sample.remote.util.CertificateUtil;
 import com.vmware.sample.remote.vim25.services.VimObjectService;
 import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.PerfQuerySpec;
-import com.vmware.vim25.RuntimeFaultFaultMsg;
-import com.vmware.vim25.ServiceContent;
-import com.vmware.vim25.VimPortType;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -46,6 +44,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -137,30 +136,15 @@ public class HostController {
 
    // END HACAHTON
 
-   private static final String PROP_SERVICE_INSTANCE = "ServiceInstance";
    private static final String PROP_HOST = "HostSystem";
 
    @RequestMapping(value = "/vm", method = RequestMethod.GET)
    public String retrieveVmInfo() throws DatatypeConfigurationException {
-      final VimPortType vimPort = this.sessionService.getVimSessionInfo().getVimPort();
+      final VimSessionInfo vimSessionInfo = this.sessionService.getVimSessionInfo();
 
-      ServiceContent serviceContent = null;
-      try {
-         ManagedObjectReference serviceInstanceRef = createSvcInstanceRef();
-
-         serviceContent = vimPort.retrieveServiceContent(serviceInstanceRef);
-      } catch (RuntimeFaultFaultMsg runtimeFaultFaultMsg) {
-         logger.warn(
-               "Could not retrieve the ServiceContent using sessionCookie",
-               runtimeFaultFaultMsg);
-      }
-      if (serviceContent == null) {
-         return "";
-      }
       // Get references to the ViewManager and the PropertyCollector
-      final ManagedObjectReference viewMgrRef = serviceContent.getViewManager();
-      final ManagedObjectReference propColl = serviceContent
-            .getPropertyCollector();
+      final ManagedObjectReference viewMgrRef = vimSessionInfo.getViewManager();
+      final ManagedObjectReference propColl = vimSessionInfo.getPropertyCollector();
 
       final ManagedObjectReference vmRef = new ManagedObjectReference();
       vmRef.setType("VirtualMachine");
@@ -191,13 +175,6 @@ public class HostController {
       return "1";
    }
 
-   private ManagedObjectReference createSvcInstanceRef() {
-      final ManagedObjectReference svcInstanceRef = new ManagedObjectReference();
-      svcInstanceRef.setType(PROP_SERVICE_INSTANCE);
-      svcInstanceRef.setValue(PROP_SERVICE_INSTANCE);
-
-      return svcInstanceRef;
-   }
 
 
 
@@ -221,11 +198,16 @@ public class HostController {
     * Currently there is no relation between hosts/chassis, but everyone is
     * free to implement any kind of relation between them and filter them by a
     * provided parameter representing a chassis.
+    * @param properties optional host property paths to retrieve, e.g.
+    *                   name,runtime.connectionState. All properties are
+    *                   retrieved if omitted.
     * @return list of host objects.
     */
    @RequestMapping(value = "/hosts", method = RequestMethod.GET)
-   public List<Host> retrieveConnectedHosts() {
-      return vcenterInfoService.retrieveConnectedHosts();
+   public List<Host> retrieveConnectedHosts(
+         @RequestParam(value = "properties", required = false)
+         final List<String> properties) {
+      return vcenterInfoService.retrieveConnectedHosts(properties);
    }
 
    /**
@@ -244,13 +226,16 @@ public class HostController {
     * Removes hosts from the relation that are no longer connected or
     * available to the vCenter Server.
     *
+    * @param properties optional host property paths to retrieve.
     * @return list of host objects filtered by the provided chassisId.
     */
    @RequestMapping(value = "/chassis/{chassisId}/hosts", method = RequestMethod.GET)
    public List<Host> retrieveConnectedHosts(
-         @PathVariable("chassisId") final String chassisId) {
+         @PathVariable("chassisId") final String chassisId,
+         @RequestParam(value = "properties", required = false)
+         final List<String> properties) {
       final List<Host> hostsList = vcenterInfoService
-            .retrieveConnectedHosts(chassisId);
+            .retrieveConnectedHosts(chassisId, properties);
 
       chassisService.setRelatedHosts(chassisId,
             hostsList.stream().map(host -> host.id)
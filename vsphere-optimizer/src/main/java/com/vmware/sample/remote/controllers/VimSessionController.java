@@ -0,0 +1,36 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.controllers;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.vmware.sample.remote.gateway.SessionService;
+import com.vmware.sample.remote.model.VimSessionMetrics;
+
+/**
+ * A controller which returns diagnostics of the vCenter Server sessions
+ * cached by the plugin server.
+ */
+@RestController
+@RequestMapping("/rest/vim/session")
+public class VimSessionController {
+
+   private final SessionService sessionService;
+
+   public VimSessionController(final SessionService sessionService) {
+      this.sessionService = sessionService;
+   }
+
+   /**
+    * Get the statistics of the cached vCenter Server sessions.
+    *
+    * @return the number of cached sessions and of the ContainerViews the
+    *         vCenter Server keeps alive for them.
+    */
+   @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+   public VimSessionMetrics getMetrics() {
+      return sessionService.getMetrics();
+   }
+}
@@ -1,6 +1,8 @@
 /* Copyright 2022-2023 VMware, Inc. All rights reserved. -- VMware Confidential */
 package com.vmware.sample.remote.controllers;
 
+import com.vmware.sample.remote.model.MessagingMetrics;
+import com.vmware.sample.remote.websocket.WebSocketMessageDispatcher;
 import com.vmware.sample.remote.websocket.WebSocketSessionTicketService;
 
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,9 +18,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class WebSocketSessionController {
 
    private final WebSocketSessionTicketService _webSocketSessionTicketService;
+   private final WebSocketMessageDispatcher _webSocketMessageDispatcher;
 
-   public WebSocketSessionController(final WebSocketSessionTicketService webSocketSessionTicketService) {
+   public WebSocketSessionController(final WebSocketSessionTicketService webSocketSessionTicketService,
+         final WebSocketMessageDispatcher webSocketMessageDispatcher) {
       _webSocketSessionTicketService = webSocketSessionTicketService;
+      _webSocketMessageDispatcher = webSocketMessageDispatcher;
    }
 
    /**
@@ -31,4 +36,14 @@ public class WebSocketSessionController {
    public String generateTicket() {
       return _webSocketSessionTicketService.generateTicket();
    }
+
+   /**
+    * Get the statistics of the messages sent to the web socket clients.
+    *
+    * @return the sent, dropped and queued message counts.
+    */
+   @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+   public MessagingMetrics getMetrics() {
+      return _webSocketMessageDispatcher.getMetrics();
+   }
 }
@@ -15,6 +15,11 @@ public class RemotePluginException extends RuntimeException {
       this.localeKey = localeKey;
    }
 
+   public RemotePluginException(String localeKey, Throwable cause) {
+      super(cause);
+      this.localeKey = localeKey;
+   }
+
    public String getLocaleKey() {
       return localeKey;
    }
@@ -0,0 +1,152 @@
+/* Copyright 2023 VMware, Inc. All rights reserved. -- VMware Confidential */
+package com.vmware.sample.remote.gateway;
+
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.util.CertificateUtil;
+
+/**
+ * Long-lived HTTP client used to talk to the API-GW of the vCenter Server.
+ * <p>
+ * A single {@link SSLContext} and a single pooled {@link CloseableHttpClient} are
+ * shared by all requests, so connections are kept alive between session loads
+ * and new connections can resume the cached TLS session instead of doing a
+ * full handshake.
+ * </p>
+ */
+public class GatewayRestClient {
+   private static final Log logger = LogFactory.getLog(GatewayRestClient.class);
+
+   private final PoolingHttpClientConnectionManager connectionManager;
+   private final CloseableHttpClient httpClient;
+   private final RestTemplate restTemplate;
+
+   public GatewayRestClient(final Configuration configurationService) {
+      final SSLContext sslContext;
+      try {
+         sslContext = SSLContexts.custom()
+               .loadTrustMaterial(null, (x509Certificates, s) ->
+                     CertificateUtil.isThumbprintTrusted(x509Certificates[0],
+                           configurationService.getVcenterSslThumbprint()))
+               .build();
+      } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException e) {
+         throw new RuntimeException("Failed to build an SSL context", e);
+      }
+
+      final Registry<ConnectionSocketFactory> socketFactoryRegistry =
+            RegistryBuilder.<ConnectionSocketFactory>create()
+                  .register("https", new SSLConnectionSocketFactory(
+                        sslContext, NoopHostnameVerifier.INSTANCE))
+                  .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                  .build();
+
+      final int keepAliveSeconds = configurationService.getGatewayKeepAliveSeconds();
+      connectionManager = new PoolingHttpClientConnectionManager(
+            socketFactoryRegistry);
+      connectionManager.setMaxTotal(configurationService.getGatewayMaxConnections());
+      connectionManager.setDefaultMaxPerRoute(
+            configurationService.getGatewayMaxConnectionsPerRoute());
+
+      final RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(configurationService.getGatewayConnectTimeoutMs())
+            .setConnectionRequestTimeout(
+                  configurationService.getGatewayConnectTimeoutMs())
+            .setSocketTimeout(configurationService.getGatewayReadTimeoutMs())
+            .build();
+
+      httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(buildKeepAliveStrategy(keepAliveSeconds))
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAliveSeconds, TimeUnit.SECONDS)
+            .build();
+
+      final HttpComponentsClientHttpRequestFactory requestFactory =
+            new HttpComponentsClientHttpRequestFactory();
+      requestFactory.setHttpClient(httpClient);
+
+      restTemplate = new RestTemplate(requestFactory);
+   }
+
+   /**
+    * Sends a POST request to the API-GW over a pooled connection.
+    *
+    * @param uri           the full URI of the API-GW endpoint.
+    * @param requestEntity the request body and headers.
+    * @param responseType  the type of the response body.
+    * @return the response body.
+    */
+   public <T> T post(final String uri, final HttpEntity<?> requestEntity,
+         final Class<T> responseType) {
+      try {
+         return restTemplate.exchange(uri, HttpMethod.POST, requestEntity,
+               responseType).getBody();
+      } finally {
+         if (logger.isDebugEnabled()) {
+            logger.debug("API-GW connection pool: " + getPoolStats());
+         }
+      }
+   }
+
+   /**
+    * @return the leased, pending, available and max connections of the pool.
+    */
+   public PoolStats getPoolStats() {
+      return connectionManager.getTotalStats();
+   }
+
+   /**
+    * Closes the pooled connections. Invoked when the application context
+    * is destroyed.
+    */
+   public void close() {
+      try {
+         httpClient.close();
+      } catch (IOException e) {
+         logger.warn("Failed to close the API-GW HTTP client.", e);
+      }
+   }
+
+   /**
+    * Honours the keep-alive advertised by the server, but never keeps a
+    * connection for longer than the configured keep-alive period.
+    */
+   private static ConnectionKeepAliveStrategy buildKeepAliveStrategy(
+         final int keepAliveSeconds) {
+      final long maxKeepAliveMs = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+      return (response, context) -> {
+         final long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE
+               .getKeepAliveDuration(response, context);
+         return (keepAliveMs > 0) ? Math.min(keepAliveMs, maxKeepAliveMs) :
+               maxKeepAliveMs;
+      };
+   }
+}
@@ -1,9 +1,17 @@
 /* Copyright 2019-2023 VMware, Inc. All rights reserved. -- VMware Confidential */
 package com.vmware.sample.remote.gateway;
 
+import com.vmware.sample.remote.model.VimSessionMetrics;
+
 public interface SessionService {
 
    VimSessionInfo getVimSessionInfo();
 
    VimSessionInfo getVimSessionInfo(final GatewayCredentials credentials);
+
+   /**
+    * @return the statistics of the cached sessions and of the ContainerViews
+    * they keep alive.
+    */
+   VimSessionMetrics getMetrics();
 }
@@ -2,20 +2,10 @@
 package com.vmware.sample.remote.gateway;
 
 import java.net.URISyntaxException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
 import java.util.Collections;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSessionContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
 import javax.servlet.http.HttpServletRequest;
-import jakarta.xml.ws.BindingProvider;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -27,28 +17,21 @@ import com.google.common.cache.RemovalNotification;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.vmware.sample.remote.configuration.Configuration;
 import com.vmware.sample.remote.exception.RemotePluginException;
-import com.vmware.sample.remote.util.CertificateUtil;
-import com.vmware.sample.remote.vim25.ssl.ThumbprintTrustManager;
+import com.vmware.sample.remote.model.VimSessionMetrics;
+import com.vmware.sample.remote.vim25.services.InventoryMirror;
+import com.vmware.sample.remote.vim25.transport.VimTransportConfigurer;
 import com.vmware.vim25.InvalidLoginFaultMsg;
 import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.ServiceContent;
 import com.vmware.vim25.UserSession;
 import com.vmware.vim25.VimPortType;
 import com.vmware.vim25.VimService;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLContexts;
-import org.apache.http.conn.ssl.TrustStrategy;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -60,9 +43,11 @@ import org.springframework.web.util.UriComponentsBuilder;
  * <p>
  * To acquire a cloned session the {@link SessionServiceImpl} follows these steps:
  * <ul>
- * <li>1. Contact the API-GW to acquire a clone ticket for the VPX session</li>
+ * <li>1. Contact the API-GW to acquire a clone ticket for the VPX session, using
+ * the shared, pooled {@link GatewayRestClient}</li>
  * <li>2. Using the clone ticket clone the session</li>
- * <li>3. Cache the stored session for a certain amount of time</li>
+ * <li>3. Retrieve the session's ServiceContent</li>
+ * <li>4. Cache the stored session for a certain amount of time</li>
  * </ul>
  * </p>
  * <p>
@@ -81,20 +66,28 @@ public class SessionServiceImpl implements SessionService {
    // a user is interacting with the plugin.
    private static final VimPortType vimPort = vimService.getVimPort();
 
-   // https://kpavlov.me/blog/jax-ws-with-custom-sslsocketfactory/
-   private static final String SSL_SOCKET_FACTORY = "com.sun.xml.ws.transport.https.client.SSLSocketFactory";
-
+   private static final String PROP_SERVICE_INSTANCE = "ServiceInstance";
    private static final String CLONE_TICKET_PATH = "/vcenter/session/clone-ticket";
    private static final String VCENTER_GUID_PROP = "vc_guid";
 
    private final ManagedObjectReference sessionManager;
+   private final ManagedObjectReference serviceInstanceRef;
    private final Configuration configurationService;
+   private final GatewayRestClient gatewayRestClient;
+   private final VimTransportConfigurer vimTransportConfigurer;
 
-   public SessionServiceImpl(final Configuration configurationService) {
+   public SessionServiceImpl(final Configuration configurationService,
+         final GatewayRestClient gatewayRestClient,
+         final VimTransportConfigurer vimTransportConfigurer) {
       this.configurationService = configurationService;
+      this.gatewayRestClient = gatewayRestClient;
+      this.vimTransportConfigurer = vimTransportConfigurer;
       sessionManager = new ManagedObjectReference();
       sessionManager.setValue("SessionManager");
       sessionManager.setType("SessionManager");
+      serviceInstanceRef = new ManagedObjectReference();
+      serviceInstanceRef.setValue(PROP_SERVICE_INSTANCE);
+      serviceInstanceRef.setType(PROP_SERVICE_INSTANCE);
    }
 
    private final RemovalListener<VcenterInfo, VimSessionInfo> removalListener = new SessionRemovalListener();
@@ -104,36 +97,6 @@ public class SessionServiceImpl implements SessionService {
          .removalListener(removalListener).build(loader);
    private final ObjectMapper objectMapper = new ObjectMapper();
 
-   private RestTemplate buildRestTemplate() {
-      final SSLContext sslContext;
-      try {
-         final TrustStrategy acceptingTrustStrategy = new TrustStrategy() {
-            @Override
-            public boolean isTrusted(X509Certificate[] x509Certificates,
-                  String s) {
-               return CertificateUtil.isThumbprintTrusted(x509Certificates[0],
-                     configurationService.getVcenterSslThumbprint());
-            }
-         };
-         sslContext = SSLContexts.custom()
-               .loadTrustMaterial(null, acceptingTrustStrategy).build();
-      } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException e) {
-         throw new RuntimeException("Failed to build an SSL context", e);
-      }
-
-      final SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(
-            sslContext, NoopHostnameVerifier.INSTANCE);
-      final CloseableHttpClient httpClient = HttpClients.custom()
-            .setSSLSocketFactory(csf).build();
-
-      final HttpComponentsClientHttpRequestFactory requestFactory =
-            new HttpComponentsClientHttpRequestFactory();
-      requestFactory.setHttpClient(httpClient);
-
-      final RestTemplate restTemplate = new RestTemplate(requestFactory);
-      return restTemplate;
-   }
-
    /**
     * Returns a new {@link HttpEntity} and sets the correct headers
     * for the specific vCenter Server.
@@ -184,6 +147,17 @@ public class SessionServiceImpl implements SessionService {
       }
    }
 
+   @Override
+   public VimSessionMetrics getMetrics() {
+      final VimSessionMetrics metrics = new VimSessionMetrics();
+      for (final VimSessionInfo vimSessionInfo : sessionCache.asMap().values()) {
+         metrics.cachedSessions++;
+         metrics.liveContainerViews +=
+               vimSessionInfo.getContainerViews().getLiveViewCount();
+      }
+      return metrics;
+   }
+
    /**
     * "Loads" the session information by first extracting a clone ticket from
     * the vCenter Server and then using {@link VimPortType} clone the ticket
@@ -193,25 +167,17 @@ public class SessionServiceImpl implements SessionService {
       @Override
       public VimSessionInfo load(final VcenterInfo key)
             throws URISyntaxException, InvalidLoginFaultMsg,
-            RuntimeFaultFaultMsg, KeyManagementException,
-            NoSuchAlgorithmException {
+            RuntimeFaultFaultMsg {
          // Step 1. Acquire a clone ticket from the API-GW of the server
          // where the plugin is registered
-         final RestTemplate restTemplate = buildRestTemplate();
          final String uri = UriComponentsBuilder
                .fromHttpUrl(configurationService.getVcenterRestEndpoint())
                .path(CLONE_TICKET_PATH).toUriString();
-         final CloneSessionReply cloneTicket = restTemplate
-               .exchange(uri, HttpMethod.POST,
-                     getHttpRequestEntity(key.sessionId, key.vcGuid),
-                     CloneSessionReply.class).getBody();
+         final CloneSessionReply cloneTicket = gatewayRestClient.post(uri,
+               getHttpRequestEntity(key.sessionId, key.vcGuid),
+               CloneSessionReply.class);
          final VimPortType vimPort = vimService.getVimPort();
-         final Map<String, Object> context = ((BindingProvider) vimPort)
-               .getRequestContext();
-         context.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY,
-               configurationService.getVcenterApiEndpoint().toString());
-         context.put(BindingProvider.SESSION_MAINTAIN_PROPERTY, true);
-         context.put(SSL_SOCKET_FACTORY, getSSLSocketFactory());
+         vimTransportConfigurer.configure(vimPort);
          // Step 2. Contact the SessionManager in VPX (the one which the plugin
          // server is registered against) to build up a session using the
          // acquired clone ticket.
@@ -220,47 +186,38 @@ public class SessionServiceImpl implements SessionService {
          // the configured vcenter.address to build the sdk's URL, instead of
          // relying on the sdk's URL provided by the calling vCenter Server.
          final UserSession userSession = vimPort.cloneSession(sessionManager, cloneTicket.sessionCloneTicket);
-         return new VimSessionInfo(vimPort, userSession);
+         // Step 3. Retrieve the ServiceContent once, it does not change
+         // during the lifetime of the session.
+         final ServiceContent serviceContent = vimPort
+               .retrieveServiceContent(serviceInstanceRef);
+         return new VimSessionInfo(vimPort, userSession, serviceContent);
       }
    }
 
    /**
-    * {@link RemovalListener} that terminates the session on a dedicated {@link VimPortType}
+    * {@link RemovalListener} that stops the inventory mirror, destroys the
+    * ContainerViews of the session and terminates the session on a dedicated
+    * {@link VimPortType}
     */
    public class SessionRemovalListener
          implements RemovalListener<VcenterInfo, VimSessionInfo> {
       @Override
       public void onRemoval(
             final RemovalNotification<VcenterInfo, VimSessionInfo> notification) {
+         final VimSessionInfo vimSessionInfo = notification.getValue();
+         final InventoryMirror inventoryMirror = vimSessionInfo.getInventoryMirror();
+         if (inventoryMirror != null) {
+            inventoryMirror.stop();
+         }
+         vimSessionInfo.getContainerViews().destroyAll();
          try {
-            notification.getValue().getVimPort().logout(sessionManager);
+            vimSessionInfo.getVimPort().logout(sessionManager);
          } catch (RuntimeFaultFaultMsg runtimeFaultFaultMsg) {
             logger.info("The session is already destroyed.");
          }
       }
    }
 
-   /**
-    * Creates a socket factory for TLS/SSL connection.
-    * It is used to validate the identity of the plugin server against the
-    * vCenter APIs.
-    */
-   private SSLSocketFactory getSSLSocketFactory()
-         throws NoSuchAlgorithmException, KeyManagementException {
-      TrustManager[] trustManagers = new TrustManager[1];
-      TrustManager tm = new ThumbprintTrustManager(
-            configurationService.getVcenterSslThumbprint());
-      trustManagers[0] = tm;
-
-      SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-      sslContext.init(null, trustManagers, null);
-
-      SSLSessionContext sslsc = sslContext.getServerSessionContext();
-      sslsc.setSessionTimeout(0);
-
-      return sslContext.getSocketFactory();
-   }
-
    public static class VcenterInfo {
       private final String sessionId;
       private final String vcGuid;
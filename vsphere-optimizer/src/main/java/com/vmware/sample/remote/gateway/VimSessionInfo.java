@@ -1,19 +1,36 @@
 /* Copyright 2020-2023 VMware, Inc. All rights reserved. -- VMware Confidential */
 package com.vmware.sample.remote.gateway;
 
+import com.vmware.sample.remote.vim25.services.ContainerViewRegistry;
+import com.vmware.sample.remote.vim25.services.InventoryMirror;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ServiceContent;
 import com.vmware.vim25.UserSession;
 import com.vmware.vim25.VimPortType;
 
 /**
  * Contains information about the vCenter Server connection.
+ * <p>
+ * The {@link ServiceContent} does not change during the lifetime of a session,
+ * so it is retrieved once when the session is cloned and the well-known
+ * manager references are served from it. The ContainerViews created for the
+ * session are kept in a {@link ContainerViewRegistry} and reused.
+ * </p>
  */
 public class VimSessionInfo {
    private VimPortType vimPort;
    private UserSession userSession;
+   private ServiceContent serviceContent;
+   private final ContainerViewRegistry containerViews;
+   private InventoryMirror inventoryMirror;
 
-   public VimSessionInfo(final VimPortType vimPort, final UserSession userSession) {
+   public VimSessionInfo(final VimPortType vimPort, final UserSession userSession,
+         final ServiceContent serviceContent) {
       this.vimPort = vimPort;
       this.userSession = userSession;
+      this.serviceContent = serviceContent;
+      this.containerViews = new ContainerViewRegistry(vimPort,
+            serviceContent.getViewManager());
    }
 
    public VimPortType getVimPort() {
@@ -31,4 +48,48 @@ public class VimSessionInfo {
    public void setUserSession(final UserSession userSession) {
       this.userSession = userSession;
    }
+
+   public ServiceContent getServiceContent() {
+      return serviceContent;
+   }
+
+   public void setServiceContent(final ServiceContent serviceContent) {
+      this.serviceContent = serviceContent;
+   }
+
+   public ManagedObjectReference getRootFolder() {
+      return serviceContent.getRootFolder();
+   }
+
+   public ManagedObjectReference getPropertyCollector() {
+      return serviceContent.getPropertyCollector();
+   }
+
+   public ManagedObjectReference getViewManager() {
+      return serviceContent.getViewManager();
+   }
+
+   public ManagedObjectReference getTaskManager() {
+      return serviceContent.getTaskManager();
+   }
+
+   public ManagedObjectReference getAuthorizationManager() {
+      return serviceContent.getAuthorizationManager();
+   }
+
+   public ManagedObjectReference getPerformanceManager() {
+      return serviceContent.getPerfManager();
+   }
+
+   public ContainerViewRegistry getContainerViews() {
+      return containerViews;
+   }
+
+   public synchronized InventoryMirror getInventoryMirror() {
+      return inventoryMirror;
+   }
+
+   public synchronized void setInventoryMirror(final InventoryMirror inventoryMirror) {
+      this.inventoryMirror = inventoryMirror;
+   }
 }
@@ -0,0 +1,40 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+/**
+ * Data model of a change of a chassis object.
+ */
+public class ChassisChange {
+
+   public enum Type {
+      /** The chassis object was created or updated. */
+      UPDATED,
+      /** The chassis object was deleted. */
+      DELETED
+   }
+
+   public Type type;
+   public String chassisId;
+   // The current chassis object, or null if it was deleted.
+   public Chassis chassis;
+
+   public ChassisChange() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+
+   public static ChassisChange updated(final Chassis chassis) {
+      final ChassisChange change = new ChassisChange();
+      change.type = Type.UPDATED;
+      change.chassisId = chassis.id;
+      change.chassis = chassis;
+      return change;
+   }
+
+   public static ChassisChange deleted(final String chassisId) {
+      final ChassisChange change = new ChassisChange();
+      change.type = Type.DELETED;
+      change.chassisId = chassisId;
+      return change;
+   }
+}
@@ -0,0 +1,47 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data model of the changes of the chassis objects since a given version.
+ * <p>
+ * Each changed chassis object is listed once, in its current state, so the
+ * changes can be applied in any order and applying them again is harmless.
+ * </p>
+ */
+public class ChassisChanges {
+
+   // Identifies the store the versions belong to. The versions of another
+   // store, e.g. one started again from scratch, cannot be compared.
+   public String epoch;
+   // The version the changes lead up to, to request the next changes since.
+   public long version;
+   // Whether the changes since the requested version are no longer known,
+   // in which case all chassis objects have to be retrieved again.
+   public boolean resyncRequired;
+   public List<ChassisChange> changes;
+
+   public ChassisChanges() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+
+   public ChassisChanges(final String epoch, final long version,
+         final List<ChassisChange> changes) {
+      this.epoch = epoch;
+      this.version = version;
+      this.changes = changes;
+   }
+
+   /**
+    * @return the answer for a version whose changes are no longer known.
+    */
+   public static ChassisChanges resync(final String epoch, final long version) {
+      final ChassisChanges resync = new ChassisChanges(epoch, version,
+            Collections.emptyList());
+      resync.resyncRequired = true;
+      return resync;
+   }
+}
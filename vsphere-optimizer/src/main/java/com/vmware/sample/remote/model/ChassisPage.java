@@ -0,0 +1,24 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+import java.util.List;
+
+/**
+ * Data model of a page of chassis objects.
+ */
+public class ChassisPage {
+
+   public List<Chassis> items;
+   // Cursor of the next page, or null if this is the last page.
+   public String nextCursor;
+
+   public ChassisPage() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+
+   public ChassisPage(final List<Chassis> items, final String nextCursor) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+   }
+}
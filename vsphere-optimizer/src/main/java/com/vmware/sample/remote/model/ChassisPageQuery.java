@@ -0,0 +1,138 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Describes a page of chassis objects to retrieve.
+ * <p>
+ * The chassis objects are sorted by the value of a {@link SortField}, and then
+ * by id, so the order is total and stable. A page starts after the chassis
+ * object its cursor points to, which keeps the following pages consistent
+ * while chassis objects are created or deleted. The filter is matched
+ * case-sensitively against the value of the sort field.
+ * </p>
+ */
+public class ChassisPageQuery {
+   private static final char CURSOR_SEPARATOR = '\0';
+
+   /**
+    * The fields the chassis objects can be sorted and filtered by.
+    */
+   public enum SortField {
+      NAME,
+      SERVER_TYPE;
+
+      /**
+       * @return the value of this field of the given chassis object,
+       * with a missing value sorted as an empty string.
+       */
+      public String keyOf(final Chassis chassis) {
+         final String key = (this == NAME) ? chassis.name : chassis.serverType;
+         return (key == null) ? StringUtils.EMPTY : key;
+      }
+
+      /**
+       * @return the order of the chassis objects by this field and then by id.
+       */
+      public Comparator<Chassis> comparator() {
+         return Comparator.comparing(this::keyOf)
+               .thenComparing(chassis -> chassis.id);
+      }
+   }
+
+   public enum FilterMode {
+      PREFIX,
+      SUBSTRING
+   }
+
+   public final SortField sortBy;
+   // The value to match, or null to match all chassis objects.
+   public final String filter;
+   public final FilterMode filterMode;
+   // Sort key and id of the last chassis object of the previous page,
+   // or null for the first page.
+   public final String afterKey;
+   public final String afterId;
+   public final int limit;
+
+   /**
+    * @param sortBy     the field to sort and filter by.
+    * @param filter     the value to match, or null to match all.
+    * @param filterMode how to match the filter.
+    * @param cursor     the cursor returned with the previous page,
+    *                   or null for the first page.
+    * @param limit      the maximum number of chassis objects in the page.
+    * @throws IllegalArgumentException if the cursor is not valid
+    *         for the given sort field.
+    */
+   public ChassisPageQuery(final SortField sortBy, final String filter,
+         final FilterMode filterMode, final String cursor, final int limit) {
+      Validate.notNull(sortBy);
+      Validate.notNull(filterMode);
+      Validate.isTrue(limit > 0, "The page limit must be positive.");
+      this.sortBy = sortBy;
+      this.filter = StringUtils.isEmpty(filter) ? null : filter;
+      this.filterMode = filterMode;
+      this.limit = limit;
+
+      if (cursor == null) {
+         this.afterKey = null;
+         this.afterId = null;
+         return;
+      }
+      final String[] position = decodeCursor(cursor);
+      Validate.isTrue(sortBy.name().equals(position[0]),
+            "The cursor was not created for sorting by %s.", sortBy);
+      this.afterKey = position[1];
+      this.afterId = position[2];
+   }
+
+   /**
+    * @return whether the given sort key matches the filter.
+    */
+   public boolean matches(final String key) {
+      if (filter == null) {
+         return true;
+      }
+      return (filterMode == FilterMode.PREFIX) ?
+            key.startsWith(filter) :
+            key.contains(filter);
+   }
+
+   /**
+    * @return the cursor of the page which follows the given chassis object.
+    */
+   public String cursorAfter(final Chassis chassis) {
+      final String position = sortBy.name() + CURSOR_SEPARATOR +
+            sortBy.keyOf(chassis) + CURSOR_SEPARATOR + chassis.id;
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            position.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static String[] decodeCursor(final String cursor) {
+      final String position;
+      try {
+         position = new String(Base64.getUrlDecoder().decode(cursor),
+               StandardCharsets.UTF_8);
+      } catch (final IllegalArgumentException e) {
+         throw new IllegalArgumentException("Invalid page cursor " + cursor, e);
+      }
+      // The sort key may contain the separator, the field and the id do not.
+      final int keyStart = position.indexOf(CURSOR_SEPARATOR);
+      final int keyEnd = position.lastIndexOf(CURSOR_SEPARATOR);
+      Validate.isTrue(keyStart >= 0 && keyStart < keyEnd,
+            "Invalid page cursor %s", cursor);
+      return new String[] {
+            position.substring(0, keyStart),
+            position.substring(keyStart + 1, keyEnd),
+            position.substring(keyEnd + 1)
+      };
+   }
+}
@@ -2,10 +2,84 @@
 
 package com.vmware.sample.remote.model;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 public class Message {
+   /**
+    * The topic of all messages. A client subscribed to it receives every
+    * message, whatever its topics are.
+    */
+   public static final String INVENTORY_TOPIC = "inventory";
+   /**
+    * The topic of the messages about chassis objects which are created,
+    * modified or deleted, rather than only related to other hosts. Lists of
+    * chassis objects subscribe to it, since such changes may change which
+    * chassis objects they show.
+    */
+   public static final String CHASSIS_LIST_TOPIC = "chassis";
+
+   private static final String CHASSIS_TOPIC_PREFIX = "chassis/";
+   private static final String HOST_TOPIC_PREFIX = "host/";
+
    public final MessageType type;
+   // The topics of the objects the message is about, besides the inventory
+   // topic.
+   public final List<String> topics;
+   // The publisher of the message and its position among the messages of that
+   // publisher, assigned once before the message is published to the replicas.
+   // Null and 0 for a message which is not published yet.
+   public final String epoch;
+   public final long sequence;
 
    public Message(MessageType type) {
+      this(type, Collections.emptyList());
+   }
+
+   public Message(MessageType type, Collection<String> topics) {
+      this(type, topics, null, 0);
+   }
+
+   /**
+    * Also used to read the messages a {@code BroadcastBus} carries between the
+    * replicas as JSON.
+    */
+   @JsonCreator
+   public Message(@JsonProperty("type") MessageType type,
+         @JsonProperty("topics") Collection<String> topics,
+         @JsonProperty("epoch") String epoch,
+         @JsonProperty("sequence") long sequence) {
       this.type = type;
+      this.topics = Collections.unmodifiableList(
+            topics.stream().distinct().collect(Collectors.toList()));
+      this.epoch = epoch;
+      this.sequence = sequence;
+   }
+
+   /**
+    * @return a copy of the message at the given position among the messages
+    * of the given publisher.
+    */
+   public Message withSequence(final String epoch, final long sequence) {
+      return new Message(type, topics, epoch, sequence);
+   }
+
+   /**
+    * @return the topic of the messages about a chassis object.
+    */
+   public static String chassisTopic(final String chassisId) {
+      return CHASSIS_TOPIC_PREFIX + chassisId;
+   }
+
+   /**
+    * @return the topic of the messages about a host.
+    */
+   public static String hostTopic(final String hostId) {
+      return HOST_TOPIC_PREFIX + hostId;
    }
 }
@@ -3,5 +3,9 @@
 package com.vmware.sample.remote.model;
 
 public enum MessageType {
-   CHASSIS_UPDATED
+   CHASSIS_UPDATED,
+   HOSTS_UPDATED,
+   // Sent to a reconnecting client which missed more messages than can be
+   // replayed, so it reloads its data instead.
+   RESYNC
 }
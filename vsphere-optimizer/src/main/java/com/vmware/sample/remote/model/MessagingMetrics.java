@@ -0,0 +1,30 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+/**
+ * Data model of the statistics of the messages sent to the WebSocket clients.
+ */
+public class MessagingMetrics {
+
+   // Number of the clients with a send queue.
+   public int sessions;
+   // Number of the messages waiting in all send queues.
+   public int queuedMessages;
+   // Number of the messages waiting in the longest send queue.
+   public int maxQueueDepth;
+   public long sentMessages;
+   // Messages dropped because a send queue was full.
+   public long droppedMessages;
+   // Messages not queued because the same message was already queued.
+   public long coalescedMessages;
+   public long failedMessages;
+   // Clients disconnected because their send queue was full.
+   public long disconnectedSessions;
+   // Clients evicted because they were closed or did not respond to pings.
+   public long evictedSessions;
+
+   public MessagingMetrics() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+}
@@ -0,0 +1,25 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+import java.util.List;
+
+/**
+ * Data model of the text messages sent by the WebSocket clients to change the
+ * topics they receive messages for.
+ */
+public class SubscriptionRequest {
+
+   // Topics to start receiving messages for.
+   public List<String> subscribe;
+   // Topics to stop receiving messages for.
+   public List<String> unsubscribe;
+   // The epoch and sequence of the last message received by a reconnecting
+   // client. The messages it missed since then are replayed.
+   public String lastEpoch;
+   public Long lastSequence;
+
+   public SubscriptionRequest() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+}
@@ -0,0 +1,19 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.model;
+
+/**
+ * Data model of the statistics of the vCenter Server sessions cached by the
+ * plugin server, and of the ContainerViews they keep alive.
+ */
+public class VimSessionMetrics {
+
+   // Number of the cloned sessions in the cache.
+   public int cachedSessions;
+   // ContainerViews kept alive in the vCenter Server by the cached sessions.
+   public int liveContainerViews;
+
+   public VimSessionMetrics() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+}
@@ -0,0 +1,34 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.vmware.sample.remote.model.Message;
+
+/**
+ * Carries the broadcast messages between the replicas of the plugin server,
+ * so that every replica sends them to its own WebSocket clients.
+ * <p>
+ * Every replica must receive the batches in the same order, so that a client
+ * which reconnects to another replica is replayed the messages after its
+ * last one.
+ * </p>
+ */
+public interface BroadcastBus {
+
+   /**
+    * Publishes messages to every replica, including this one. The messages of
+    * a batch are delivered together and in order. The list may be reused by
+    * the caller once the method returns.
+    * @param messages to publish.
+    */
+   void publish(final List<Message> messages);
+
+   /**
+    * Registers a listener of the batches published by any replica.
+    * @param listener invoked with each batch.
+    */
+   void addListener(final Consumer<List<Message>> listener);
+}
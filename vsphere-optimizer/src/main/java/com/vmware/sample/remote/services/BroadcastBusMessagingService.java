@@ -0,0 +1,136 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+/**
+ * MessagingService which broadcasts the messages through a BroadcastBus, so
+ * that the clients of every replica of the plugin server receive them.
+ * <p>
+ * The messages are published by a single thread, in order. All messages
+ * queued while a batch is being published are published together in the
+ * next one, up to {@code messaging.bus.maxBatchSize}, so a burst of messages
+ * costs a few round trips to the bus instead of one per message. The batches
+ * received from the bus are broadcast by the local MessagingService.
+ * </p>
+ * <p>
+ * Each message is assigned its sequence once, before it is published, so
+ * every replica knows it by the same sequence. The sequences are counted
+ * within an epoch which identifies this publisher, since the replicas
+ * publish independently and a restarted replica starts counting again.
+ * </p>
+ * <p>
+ * If a batch cannot be published its messages are lost for every replica,
+ * so a {@link MessageType#RESYNC} message is published ahead of the next
+ * batch, and retried until the bus accepts it.
+ * </p>
+ */
+public class BroadcastBusMessagingService implements MessagingService {
+
+   private static final Log logger = LogFactory.getLog(
+         BroadcastBusMessagingService.class);
+   private static final long PUBLISH_RETRY_MILLIS = 1000;
+
+   private final BroadcastBus bus;
+   private final MessagingService localMessagingService;
+   private final int maxBatchSize;
+   private final String epoch = UUID.randomUUID().toString();
+   // Only used by the publishing thread.
+   private long lastSequence;
+   // Whether a batch failed to be published, so the clients have to resync.
+   // Only used by the publishing thread.
+   private boolean resyncPending;
+
+   private final BlockingQueue<Message> queuedMessages = new LinkedBlockingQueue<>();
+   private final ExecutorService executorService =
+         Executors.newSingleThreadExecutor(
+               new ThreadFactoryBuilder().setNameFormat("messaging-bus-publisher-%d")
+                     .setDaemon(true).build());
+
+   public BroadcastBusMessagingService(final BroadcastBus bus,
+         final MessagingService localMessagingService,
+         final Configuration configuration) {
+      this.bus = bus;
+      this.localMessagingService = localMessagingService;
+      this.maxBatchSize = Math.max(1, configuration.getMessagingBusMaxBatchSize());
+   }
+
+   /**
+    * Starts receiving and publishing messages. Invoked when the application
+    * context is initialized.
+    */
+   public void start() {
+      bus.addListener(this::broadcastLocally);
+      executorService.execute(this::publishQueuedMessages);
+   }
+
+   /**
+    * Stops publishing messages. Invoked when the application context is
+    * destroyed.
+    */
+   public void shutdown() {
+      executorService.shutdownNow();
+   }
+
+   @Override
+   public void broadcastMessage(final Message message) {
+      queuedMessages.add(message);
+   }
+
+   private void publishQueuedMessages() {
+      final List<Message> batch = new ArrayList<>(maxBatchSize);
+      while (!Thread.currentThread().isInterrupted()) {
+         final Message message;
+         try {
+            // A pending resync is retried even if no new messages are queued.
+            message = resyncPending ?
+                  queuedMessages.poll(PUBLISH_RETRY_MILLIS, TimeUnit.MILLISECONDS) :
+                  queuedMessages.take();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+         }
+         if (resyncPending) {
+            batch.add(new Message(MessageType.RESYNC));
+         }
+         if (message != null) {
+            batch.add(message);
+         }
+         queuedMessages.drainTo(batch, maxBatchSize - batch.size());
+         for (int i = 0; i < batch.size(); i++) {
+            batch.set(i, batch.get(i).withSequence(epoch, ++lastSequence));
+         }
+         try {
+            bus.publish(batch);
+            resyncPending = false;
+         } catch (Exception e) {
+            logger.error(String.format("Failed to publish %d messages, " +
+                  "the clients will be resynchronized", batch.size()), e);
+            resyncPending = true;
+         }
+         batch.clear();
+      }
+   }
+
+   private void broadcastLocally(final List<Message> messages) {
+      for (final Message message : messages) {
+         localMessagingService.broadcastMessage(message);
+      }
+   }
+}
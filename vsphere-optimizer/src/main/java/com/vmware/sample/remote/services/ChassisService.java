@@ -5,6 +5,9 @@ package com.vmware.sample.remote.services;
 import java.util.List;
 
 import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
 import com.vmware.sample.remote.model.Host;
 
 /**
@@ -25,6 +28,25 @@ public interface ChassisService {
     */
    List<Chassis> getAllChassis();
 
+   /**
+    * Retrieves a page of chassis objects.
+    *
+    * @param query  the sorting, filtering and position of the page.
+    * @return  the chassis objects of the page and the cursor of the next one.
+    */
+   ChassisPage getChassisPage(ChassisPageQuery query);
+
+   /**
+    * Retrieves the chassis objects changed since the given version.
+    *
+    * @param epoch  the epoch returned with the previous changes,
+    *               or null to retrieve only the current epoch and version.
+    * @param version  the version returned with the previous changes,
+    *                 or a negative number to retrieve only the current version.
+    * @return  the changes and the version they lead up to.
+    */
+   ChassisChanges getChangesSince(String epoch, long version);
+
    /**
     * Creates a new chassis object.
     *
@@ -47,6 +69,27 @@ public interface ChassisService {
     */
    void delete(String chassisId);
 
+   /**
+    * Creates the given chassis objects at once, tracked by a single task.
+    *
+    * @param chassisList chassis data used to create the new chassis objects.
+    */
+   void createAll(List<Chassis> chassisList);
+
+   /**
+    * Updates the given chassis objects at once, tracked by a single task.
+    *
+    * @param chassisList chassis data used to update the chassis objects with.
+    */
+   void updateAll(List<Chassis> chassisList);
+
+   /**
+    * Deletes the given chassis objects at once, tracked by a single task.
+    *
+    * @param chassisIds the ids of the chassis objects.
+    */
+   void deleteAll(List<String> chassisIds);
+
    /**
     * Creates relation between the Chassis object and the provided list of
     * connected Host object IDs
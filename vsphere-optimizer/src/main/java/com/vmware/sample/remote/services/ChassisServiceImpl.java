@@ -3,37 +3,39 @@
 package com.vmware.sample.remote.services;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.util.CollectionUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.vmware.sample.remote.gateway.GatewayCredentials;
 import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
 import com.vmware.sample.remote.model.Host;
 import com.vmware.sample.remote.model.Message;
 import com.vmware.sample.remote.model.MessageType;
 import com.vmware.sample.remote.services.tasks.ChassisTaskType;
 import com.vmware.sample.remote.services.tasks.faults.ChassisAlreadyExistsFault;
+import com.vmware.sample.remote.services.tasks.faults.ChassisNotFoundFault;
+import com.vmware.sample.remote.services.tasks.faults.ChassisOperationFault;
 import com.vmware.sample.remote.services.tasks.faults.RelatedChassisDeletionFault;
 import com.vmware.sample.remote.store.ChassisStore;
 import com.vmware.sample.remote.store.exception.ExistingChassisObjectException;
 import com.vmware.sample.remote.store.exception.ExistingHostRelationException;
+import com.vmware.sample.remote.vim25.services.TaskHandle;
 import com.vmware.sample.remote.vim25.services.TaskService;
-import com.vmware.vim25.InvalidStateFaultMsg;
-import com.vmware.vim25.RuntimeFaultFaultMsg;
-import com.vmware.vim25.TaskInfo;
 
 /**
  * This service can perform create/update/delete actions on chassis objects.
@@ -48,10 +50,11 @@ public class ChassisServiceImpl implements ChassisService {
          "Chassis object with the ID '%s' does not exist.";
    private static final String CHASSIS_OBJECT_CREATED_LOG_MSG =
          "Chassis object with the ID '%s' was successfully created: '%s'.";
-   private static final String MISSING_TASK_IDS_MESSAGE =
-         "Could not create a vCenter Server task. " +
-               "This is possibly due to plug-in extension registration " +
-               "not containing tasks, faults and resources.";
+   private static final String BULK_TASK_DESCRIPTION = "%s chassis objects";
+
+   // The progress reported once the changes of a bulk task are stored, before
+   // the clients are notified and the task completes.
+   private static final int BULK_TASK_STORED_PROGRESS = 90;
 
    private static final Log logger = LogFactory.getLog(
          ChassisServiceImpl.class);
@@ -81,6 +84,16 @@ public class ChassisServiceImpl implements ChassisService {
       return inMemoryChassisStore.getObjects();
    }
 
+   @Override
+   public ChassisPage getChassisPage(final ChassisPageQuery query) {
+      return inMemoryChassisStore.getPage(query);
+   }
+
+   @Override
+   public ChassisChanges getChangesSince(final String epoch, final long version) {
+      return inMemoryChassisStore.getChangesSince(epoch, version);
+   }
+
    /**
     * The creation of chassis object is done with a simulation of a long running task.
     * Namely:
@@ -143,52 +156,110 @@ public class ChassisServiceImpl implements ChassisService {
       executorService.submit(() -> deleteTask(chassisId, credentials));
    }
 
+   /**
+    * All chassis objects are created in a single store transaction, tracked by
+    * one vCenter Server task, and the clients are notified once.
+    * If any of the names is duplicate, none of the chassis objects is created.
+    *
+    * @param chassisList chassis data used to create the new chassis objects.
+    */
    @Override
-   public void setRelatedHosts(final String chassisId, final List<String> relatedHostsIds) {
-      final Chassis chassis = getChassisById(chassisId);
-      if (Objects.equals(chassis.relatedHostsIds, relatedHostsIds)) {
-         return;
+   public void createAll(final List<Chassis> chassisList) {
+      Validate.notEmpty(chassisList);
+      final List<String> names = new ArrayList<>(chassisList.size());
+      for (final Chassis chassis : chassisList) {
+         Validate.notNull(chassis);
+         names.add(Validate.notNull(chassis.name));
       }
 
-      chassis.relatedHostsIds = relatedHostsIds;
+      final GatewayCredentials credentials = getCredentialsFromRequest();
+      executorService.submit(() -> bulkTask(ChassisTaskType.CREATE,
+            getBulkTaskDescription(names), credentials,
+            () -> inMemoryChassisStore.createAll(chassisList)));
+   }
+
+   /**
+    * All chassis objects are updated in a single store transaction, tracked by
+    * one vCenter Server task, and the clients are notified once.
+    * If any of the names is duplicate, none of the chassis objects is updated.
+    *
+    * @param chassisList chassis data used to update the chassis objects with.
+    */
+   @Override
+   public void updateAll(final List<Chassis> chassisList) {
+      Validate.notEmpty(chassisList);
+      final List<String> names = new ArrayList<>(chassisList.size());
+      for (final Chassis chassis : chassisList) {
+         Validate.notNull(chassis);
+         names.add(chassis.name);
+      }
 
-      messagingService.broadcastMessage(new Message(MessageType.CHASSIS_UPDATED));
+      final GatewayCredentials credentials = getCredentialsFromRequest();
+      executorService.submit(() -> bulkTask(ChassisTaskType.UPDATE,
+            getBulkTaskDescription(names), credentials,
+            () -> inMemoryChassisStore.updateAll(chassisList)));
    }
 
+   /**
+    * All chassis objects are deleted in a single store transaction, tracked by
+    * one vCenter Server task, and the clients are notified once.
+    * If any of the chassis objects is related to a host, none is deleted.
+    *
+    * @param chassisIds the ids of the chassis objects.
+    */
    @Override
-   public void updateHostRelation(final Host host) {
-      final String hostId = host.id;
-      final List<String> updatedChassisIds = host.relatedChassisIds;
-      final List<Chassis> allChassis = getAllChassis();
-      for (final Chassis currentChassis : allChassis) {
-         final String currentChassisId = currentChassis.id;
-         final List<String> currentChassisHostIds = currentChassis.relatedHostsIds;
-         // Add to relation
-         if ((CollectionUtils.isEmpty(currentChassisHostIds)
-               || !currentChassisHostIds.contains(hostId)) && updatedChassisIds
-               .contains(currentChassisId)) {
-            addRelatedHost(currentChassisId, hostId);
-            // Remove from relation
-         } else if (!CollectionUtils.isEmpty(currentChassisHostIds)
-               && currentChassisHostIds.contains(hostId) && !updatedChassisIds
-               .contains(currentChassisId)) {
-            removeRelatedHost(currentChassisId, hostId);
+   public void deleteAll(final List<String> chassisIds) {
+      Validate.notEmpty(chassisIds);
+
+      final GatewayCredentials credentials = getCredentialsFromRequest();
+      executorService.submit(() -> {
+         final List<String> names;
+         if (chassisIds.size() == 1) {
+            final Chassis chassis = inMemoryChassisStore.getObjectById(chassisIds.get(0));
+            names = Collections.singletonList(chassis == null ? chassisIds.get(0) : chassis.name);
+         } else {
+            names = chassisIds;
          }
+         bulkTask(ChassisTaskType.DELETE, getBulkTaskDescription(names),
+               credentials, () -> inMemoryChassisStore.deleteAll(chassisIds));
+      });
+   }
+
+   @Override
+   public void setRelatedHosts(final String chassisId, final List<String> relatedHostsIds) {
+      final Chassis chassis = getChassisById(chassisId);
+      if (inMemoryChassisStore.setRelatedHosts(chassisId, relatedHostsIds)) {
+         final List<String> changedHostsIds = new ArrayList<>();
+         if (relatedHostsIds != null) {
+            changedHostsIds.addAll(relatedHostsIds);
+         }
+         if (chassis.relatedHostsIds != null) {
+            changedHostsIds.addAll(chassis.relatedHostsIds);
+         }
+         messagingService.broadcastMessage(chassisUpdatedMessage(
+               Collections.singletonList(chassisId), changedHostsIds));
       }
+   }
 
-      messagingService.broadcastMessage(new Message(MessageType.CHASSIS_UPDATED));
+   @Override
+   public void updateHostRelation(final Host host) {
+      Validate.notNull(host);
+      final List<String> changedChassisIds = new ArrayList<>();
+      if (host.relatedChassisIds != null) {
+         changedChassisIds.addAll(host.relatedChassisIds);
+      }
+      for (final Chassis chassis : inMemoryChassisStore.getRelatedChassis(host.id)) {
+         changedChassisIds.add(chassis.id);
+      }
+      if (inMemoryChassisStore.setRelatedChassis(host.id, host.relatedChassisIds)) {
+         messagingService.broadcastMessage(chassisUpdatedMessage(
+               changedChassisIds, Collections.singletonList(host.id)));
+      }
    }
 
    @Override
    public List<Chassis> getRelatedChassis(final String hostId) {
-      final List<Chassis> allChassis = getAllChassis();
-      if (CollectionUtils.isEmpty(allChassis)) {
-         return Collections.emptyList();
-      }
-      return allChassis.stream().filter(
-            chassis -> !CollectionUtils.isEmpty(chassis.relatedHostsIds)
-                  && chassis.relatedHostsIds.contains(hostId))
-            .collect(Collectors.toList());
+      return inMemoryChassisStore.getRelatedChassis(hostId);
    }
 
    private GatewayCredentials getCredentialsFromRequest() {
@@ -198,17 +269,103 @@ public class ChassisServiceImpl implements ChassisService {
       return GatewayCredentials.fromRequestHeaders(servletRequest);
    }
 
-   private void createTask(final Chassis chassis, final GatewayCredentials credentials) {
-      TaskInfo task = null;
+   /**
+    * Runs a bulk change of the chassis objects as a single vCenter Server
+    * task. The task fails with the fault of the first chassis object which
+    * could not be changed, in which case the store leaves all of them as is.
+    */
+   private void bulkTask(final ChassisTaskType taskType, final String description,
+         final GatewayCredentials credentials,
+         final Supplier<List<Chassis>> storeOperation) {
+      final TaskHandle task = taskService.startTask(credentials, taskType.getTaskId(),
+            description);
+
+      final List<Chassis> changedChassis;
       try {
-         task = taskService.createTask(credentials, ChassisTaskType.CREATE.getTaskId(), chassis.name);
-      } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-         logger.error(
-               "Could not create a vCenter Server task for chassis creation.",
-               ex);
+         changedChassis = storeOperation.get();
+      } catch (final ExistingChassisObjectException | ExistingHostRelationException ex) {
+         logger.warn("Could not change " + description, ex);
+
+         task.fail((ex instanceof ExistingChassisObjectException) ?
+               new ChassisAlreadyExistsFault() :
+               new RelatedChassisDeletionFault());
+         return;
       } catch (final RuntimeException ex) {
-         logger.error(MISSING_TASK_IDS_MESSAGE, ex);
+         failOnError(task, "Could not change " + description, ex);
+         return;
+      }
+
+      task.updateProgress(BULK_TASK_STORED_PROGRESS);
+
+      if (!changedChassis.isEmpty()) {
+         messagingService.broadcastMessage(chassisUpdatedMessage(changedChassis));
+      }
+
+      task.succeed();
+   }
+
+   /**
+    * Fails the task of a chassis change which could not be completed because
+    * of an unexpected error, e.g. the chassis store is not available. Without
+    * this the task would be left running in the vCenter Server.
+    */
+   private static void failOnError(final TaskHandle task, final String message,
+         final RuntimeException ex) {
+      logger.error(message, ex);
+
+      task.fail(new ChassisOperationFault());
+   }
+
+   /**
+    * @return the message about created, modified or deleted chassis objects,
+    * for the clients interested in them, in the hosts related to them, or in
+    * the list of chassis objects.
+    */
+   private static Message chassisUpdatedMessage(final List<Chassis> changedChassis) {
+      final List<String> chassisIds = new ArrayList<>();
+      final List<String> hostsIds = new ArrayList<>();
+      for (final Chassis chassis : changedChassis) {
+         chassisIds.add(chassis.id);
+         if (chassis.relatedHostsIds != null) {
+            hostsIds.addAll(chassis.relatedHostsIds);
+         }
+      }
+      return chassisUpdatedMessage(chassisIds, hostsIds, true);
+   }
+
+   /**
+    * @return the message about chassis objects related to other hosts, for
+    * the clients interested in them or in the hosts.
+    */
+   private static Message chassisUpdatedMessage(final Collection<String> chassisIds,
+         final Collection<String> hostsIds) {
+      return chassisUpdatedMessage(chassisIds, hostsIds, false);
+   }
+
+   private static Message chassisUpdatedMessage(final Collection<String> chassisIds,
+         final Collection<String> hostsIds, final boolean listChanged) {
+      final List<String> topics = new ArrayList<>();
+      if (listChanged) {
+         topics.add(Message.CHASSIS_LIST_TOPIC);
+      }
+      for (final String chassisId : chassisIds) {
+         topics.add(Message.chassisTopic(chassisId));
+      }
+      for (final String hostId : hostsIds) {
+         topics.add(Message.hostTopic(hostId));
       }
+      return new Message(MessageType.CHASSIS_UPDATED, topics);
+   }
+
+   private static String getBulkTaskDescription(final List<String> names) {
+      return (names.size() == 1) ?
+            names.get(0) :
+            String.format(BULK_TASK_DESCRIPTION, names.size());
+   }
+
+   private void createTask(final Chassis chassis, final GatewayCredentials credentials) {
+      final TaskHandle task = taskService.startTask(credentials,
+            ChassisTaskType.CREATE.getTaskId(), chassis.name);
 
       final Chassis newChassis;
       try {
@@ -216,95 +373,56 @@ public class ChassisServiceImpl implements ChassisService {
       } catch (final ExistingChassisObjectException existingChassisObjectException) {
          logger.warn("Could not create chassis.", existingChassisObjectException);
 
-         if (task != null) {
-            try {
-               taskService.failTask(credentials, task, new ChassisAlreadyExistsFault());
-            } catch (RuntimeFaultFaultMsg | InvalidStateFaultMsg ex1) {
-               logger.error(
-                     "Could not fail the vCenter Server Task for chassis deletion: " +
-                           chassis.id,existingChassisObjectException);
-            }
-         }
+         task.fail(new ChassisAlreadyExistsFault());
+         return;
+      } catch (final RuntimeException ex) {
+         failOnError(task, "Could not create chassis.", ex);
          return;
       }
 
       logger.info(String.format(CHASSIS_OBJECT_CREATED_LOG_MSG, newChassis.id,
             newChassis.toString()));
 
-      messagingService.broadcastMessage(new Message(MessageType.CHASSIS_UPDATED));
-      try {
-         if (task != null) {
-            taskService.succeedTask(credentials, task);
-         }
-      } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-         logger.error(
-               "Could not update the vCenter Server task for chassis creation: " +
-                     newChassis.id,
-               ex);
-      } catch (final RuntimeException ex) {
-         logger.error(MISSING_TASK_IDS_MESSAGE, ex);
-      }
+      messagingService.broadcastMessage(
+            chassisUpdatedMessage(Collections.singletonList(newChassis)));
+      task.succeed();
    }
 
    private void updateTask(final Chassis chassis, final GatewayCredentials credentials) {
-      TaskInfo task = null;
-      try {
-         task = taskService.createTask(credentials, ChassisTaskType.UPDATE.getTaskId(),
-               chassis.name);
-      } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-         logger.error(
-               "Could not create a vCenter Server Task for chassis update: " +
-                     chassis.id,
-               ex);
-      } catch (final RuntimeException ex) {
-         logger.error(MISSING_TASK_IDS_MESSAGE, ex);
-      }
+      final TaskHandle task = taskService.startTask(credentials,
+            ChassisTaskType.UPDATE.getTaskId(), chassis.name);
 
+      final boolean updated;
       try {
-         inMemoryChassisStore.update(chassis);
+         updated = inMemoryChassisStore.update(chassis);
       } catch (final ExistingChassisObjectException existingChassisObjectException) {
          logger.warn("Could not update chassis.", existingChassisObjectException);
 
-         if (task != null) {
-            try {
-               taskService.failTask(credentials, task, new ChassisAlreadyExistsFault());
-            } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex1) {
-               logger.error(
-                     "Could not fail the vCenter Server Task for chassis deletion: " +
-                           chassis.id, existingChassisObjectException);
-            }
-         }
+         task.fail(new ChassisAlreadyExistsFault());
+         return;
+      } catch (final RuntimeException ex) {
+         failOnError(task, "Could not update chassis.", ex);
          return;
       }
 
-      messagingService.broadcastMessage(new Message(MessageType.CHASSIS_UPDATED));
+      if (!updated) {
+         logger.warn(String.format(CHASSIS_OBJECT_DOES_NOT_EXIST_LOG_MSG, chassis.id));
 
-      try {
-         if (task != null) {
-            taskService.succeedTask(credentials, task);
-         }
-      } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-         logger.error(
-               "Could not update the vCenter Server Task for chassis update: " +
-                     chassis.id,
-               ex);
-      } catch (final RuntimeException ex) {
-         logger.error(MISSING_TASK_IDS_MESSAGE, ex);
+         task.fail(new ChassisNotFoundFault());
+         return;
       }
+
+      messagingService.broadcastMessage(chassisUpdatedMessage(
+            Collections.singletonList(chassis)));
+
+      task.succeed();
    }
 
    private void deleteTask(final String chassisId, final GatewayCredentials credentials) {
-      TaskInfo task = null;
-      try {
-         task = taskService.createTask(credentials, ChassisTaskType.DELETE.getTaskId(),
-               inMemoryChassisStore.getObjectById(chassisId).name);
-      } catch (final RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-         logger.error(
-               "Could not create a vCenter Server Task for chassis deletion: " + chassisId,
-               ex);
-      } catch (final RuntimeException ex) {
-         logger.error(MISSING_TASK_IDS_MESSAGE, ex);
-      }
+      final Chassis existingChassis = inMemoryChassisStore.getObjectById(chassisId);
+      final TaskHandle task = taskService.startTask(credentials,
+            ChassisTaskType.DELETE.getTaskId(),
+            (existingChassis != null) ? existingChassis.name : chassisId);
 
       final Chassis chassis;
       try {
@@ -312,42 +430,24 @@ public class ChassisServiceImpl implements ChassisService {
       } catch (final ExistingHostRelationException ex) {
          logger.warn("Could not delete chassis.", ex);
 
-         if (task != null) {
-            try {
-               taskService.failTask(credentials, task, new RelatedChassisDeletionFault());
-            } catch (RuntimeFaultFaultMsg | InvalidStateFaultMsg ex1) {
-               logger.error(
-                     "Could not fail the vCenter Server Task for chassis deletion: " +
-                           chassisId,
-                     ex);
-            }
-         }
+         task.fail(new RelatedChassisDeletionFault());
+         return;
+      } catch (final RuntimeException ex) {
+         failOnError(task, "Could not delete chassis.", ex);
          return;
       }
 
-      Validate.notNull(chassis);
-      messagingService.broadcastMessage(new Message(MessageType.CHASSIS_UPDATED));
-
-      if (task != null) {
-         try {
-            taskService.succeedTask(credentials, task);
-         } catch (RuntimeFaultFaultMsg | InvalidStateFaultMsg ex) {
-            logger.error(
-                  "Could not update the vCenter Server Task for chassis deletion: " +
-                        chassisId,
-                  ex);
-         }
-      }
-   }
+      // The chassis object may have been deleted concurrently.
+      if (chassis == null) {
+         logger.warn(String.format(CHASSIS_OBJECT_DOES_NOT_EXIST_LOG_MSG, chassisId));
 
-   private void addRelatedHost(final String chassisId, final String hostId) {
-      if (CollectionUtils.isEmpty(getChassisById(chassisId).relatedHostsIds)) {
-         getChassisById(chassisId).relatedHostsIds = new ArrayList<>();
+         task.fail(new ChassisNotFoundFault());
+         return;
       }
-      getChassisById(chassisId).relatedHostsIds.add(hostId);
-   }
 
-   private void removeRelatedHost(String chassisId, String hostId) {
-      getChassisById(chassisId).relatedHostsIds.remove(hostId);
+      messagingService.broadcastMessage(
+            chassisUpdatedMessage(Collections.singletonList(chassis)));
+
+      task.succeed();
    }
 }
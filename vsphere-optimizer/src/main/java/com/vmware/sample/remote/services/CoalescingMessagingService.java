@@ -0,0 +1,115 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+/**
+ * MessagingService which merges the messages of the same type before they are
+ * broadcast by another MessagingService.
+ * <p>
+ * A message is held back until no message of its type is sent for
+ * {@code messaging.coalesce.windowMs}, and then a single message with the
+ * topics of all of them is broadcast. A message is never held back for longer
+ * than {@code messaging.coalesce.maxLatencyMs}, so a steady stream of
+ * messages is still broadcast, at most once per window.
+ * </p>
+ */
+public class CoalescingMessagingService implements MessagingService {
+
+   private final MessagingService delegate;
+   private final long windowMs;
+   private final long maxLatencyMs;
+
+   private final ScheduledExecutorService executorService =
+         Executors.newSingleThreadScheduledExecutor(
+               new ThreadFactoryBuilder().setNameFormat("messaging-coalescer-%d")
+                     .setDaemon(true).build());
+   // The messages held back, by their type. Guarded by this.
+   private final Map<MessageType, PendingMessage> pendingMessages =
+         new EnumMap<>(MessageType.class);
+
+   public CoalescingMessagingService(final MessagingService delegate,
+         final Configuration configuration) {
+      this.delegate = delegate;
+      this.windowMs = configuration.getMessagingCoalesceWindowMs();
+      this.maxLatencyMs = Math.max(windowMs,
+            configuration.getMessagingCoalesceMaxLatencyMs());
+   }
+
+   @Override
+   public void broadcastMessage(final Message message) {
+      if (windowMs <= 0) {
+         delegate.broadcastMessage(message);
+         return;
+      }
+
+      final long now = System.nanoTime();
+      synchronized (this) {
+         PendingMessage pendingMessage = pendingMessages.get(message.type);
+         if (pendingMessage == null) {
+            pendingMessage = new PendingMessage(now);
+            pendingMessage.message = message;
+            pendingMessages.put(message.type, pendingMessage);
+         } else {
+            pendingMessage.broadcast.cancel(false);
+            final List<String> topics = new ArrayList<>(pendingMessage.message.topics);
+            topics.addAll(message.topics);
+            pendingMessage.message = new Message(message.type, topics);
+         }
+
+         final long delayNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(windowMs),
+               pendingMessage.deadline - now);
+         final PendingMessage scheduledMessage = pendingMessage;
+         pendingMessage.broadcast = executorService.schedule(
+               () -> broadcastPending(scheduledMessage),
+               delayNanos, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   /**
+    * Stops holding back messages. Invoked when the application context is
+    * destroyed.
+    */
+   public void shutdown() {
+      executorService.shutdownNow();
+   }
+
+   private void broadcastPending(final PendingMessage pendingMessage) {
+      final Message message;
+      synchronized (this) {
+         if (!pendingMessages.remove(pendingMessage.message.type, pendingMessage)) {
+            return;
+         }
+         message = pendingMessage.message;
+      }
+      delegate.broadcastMessage(message);
+   }
+
+   /**
+    * The last message of a type which is not broadcast yet.
+    */
+   private final class PendingMessage {
+      // When the message is broadcast at the latest, in System.nanoTime().
+      final long deadline;
+      // The fields below are guarded by the enclosing service.
+      Message message;
+      ScheduledFuture<?> broadcast;
+
+      PendingMessage(final long now) {
+         this.deadline = now + TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+      }
+   }
+}
@@ -16,10 +16,28 @@ public interface HostService {
     */
    List<Host> retrieveConnectedHosts();
 
+   /**
+    * Retrieves only the given properties of the connected hosts. The id and
+    * the connection state are always returned.
+    *
+    * @param properties the host property paths to retrieve, all if null.
+    * @return connected hosts
+    */
+   List<Host> retrieveConnectedHosts(List<String> properties);
+
    /**
     * Retrieves the connected Host object related to the given Chassis
     *
     * @return related Host objects
     */
    List<Host> retrieveConnectedHosts(String chassisId);
+
+   /**
+    * Retrieves only the given properties of the connected hosts related to the
+    * given Chassis.
+    *
+    * @param properties the host property paths to retrieve, all if null.
+    * @return related Host objects
+    */
+   List<Host> retrieveConnectedHosts(String chassisId, List<String> properties);
 }
@@ -3,10 +3,14 @@ package com.vmware.sample.remote.services;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.vmware.sample.remote.model.Host;
+import com.vmware.sample.remote.vim25.services.HostPropertyDecoder;
+import com.vmware.sample.remote.vim25.services.InventoryMirrorService;
 import com.vmware.sample.remote.vim25.services.VimObjectService;
 import org.springframework.util.CollectionUtils;
 
@@ -16,32 +20,64 @@ import org.springframework.util.CollectionUtils;
 public class HostServiceImpl implements HostService {
 
    private final VimObjectService vimObjectService;
+   private final InventoryMirrorService inventoryMirrorService;
    private final ChassisService chassisService;
 
    public HostServiceImpl(final VimObjectService vimObjectService,
+         final InventoryMirrorService inventoryMirrorService,
          final ChassisService chassisService) {
       this.vimObjectService = vimObjectService;
+      this.inventoryMirrorService = inventoryMirrorService;
       this.chassisService = chassisService;
    }
 
    @Override
    public List<Host> retrieveConnectedHosts() {
-      final List<Host> retrievedHosts = vimObjectService.retrieveHosts();
+      return retrieveConnectedHosts((List<String>) null);
+   }
+
+   @Override
+   public List<Host> retrieveConnectedHosts(final List<String> properties) {
+      // Validate the projection before any data is retrieved.
+      final String[] hostProperties = HostPropertyDecoder.toPathSet(properties);
+
+      // Serve the hosts from the inventory mirror when it is enabled and
+      // synchronized, otherwise retrieve them from the vCenter Server. The
+      // mirror always holds all properties, so no projection is applied there.
+      List<Host> retrievedHosts = inventoryMirrorService.getHosts();
+      if (retrievedHosts == null) {
+         retrievedHosts = vimObjectService.retrieveHosts(hostProperties);
+      }
       return filterConnectedHosts(retrievedHosts);
    }
 
    @Override
    public List<Host> retrieveConnectedHosts(final String chassisId) {
+      return retrieveConnectedHosts(chassisId, null);
+   }
+
+   @Override
+   public List<Host> retrieveConnectedHosts(final String chassisId,
+         final List<String> properties) {
       final List<String> relatedHostsIds = chassisService
             .getChassisById(chassisId).relatedHostsIds;
       if (CollectionUtils.isEmpty(relatedHostsIds)) {
          return Collections.emptyList();
       }
-      final List<Host> connectedHosts = retrieveConnectedHosts();
-      final List<Host> relatedHosts = connectedHosts.stream()
-            .filter(host -> relatedHostsIds.contains(host.id))
-            .collect(Collectors.toList());
-      return relatedHosts;
+      final String[] hostProperties = HostPropertyDecoder.toPathSet(properties);
+
+      final List<Host> relatedHosts;
+      final List<Host> mirroredHosts = inventoryMirrorService.getHosts();
+      if (mirroredHosts != null) {
+         final Set<String> relatedHostsIdSet = new HashSet<>(relatedHostsIds);
+         relatedHosts = mirroredHosts.stream()
+               .filter(host -> relatedHostsIdSet.contains(host.id))
+               .collect(Collectors.toList());
+      } else {
+         relatedHosts = vimObjectService.retrieveHosts(relatedHostsIds,
+               hostProperties);
+      }
+      return filterConnectedHosts(relatedHosts);
    }
 
    /**
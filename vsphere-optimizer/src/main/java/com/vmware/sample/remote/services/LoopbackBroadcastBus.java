@@ -0,0 +1,50 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.vmware.sample.remote.model.Message;
+
+/**
+ * BroadcastBus within a single process, used when the plugin server runs as a
+ * single replica.
+ * <p>
+ * A batch is delivered to the listeners on the publishing thread, so it has
+ * been received once publish returns. Several listeners can stand for several
+ * replicas in tests.
+ * </p>
+ */
+public class LoopbackBroadcastBus implements BroadcastBus {
+
+   private static final Log logger = LogFactory.getLog(
+         LoopbackBroadcastBus.class);
+
+   private final List<Consumer<List<Message>>> listeners =
+         new CopyOnWriteArrayList<>();
+
+   @Override
+   public void publish(final List<Message> messages) {
+      final List<Message> batch = Collections.unmodifiableList(
+            new ArrayList<>(messages));
+      for (final Consumer<List<Message>> listener : listeners) {
+         try {
+            listener.accept(batch);
+         } catch (Exception e) {
+            logger.error("Failed to deliver broadcast messages", e);
+         }
+      }
+   }
+
+   @Override
+   public void addListener(final Consumer<List<Message>> listener) {
+      listeners.add(listener);
+   }
+}
@@ -10,7 +10,7 @@ import com.vmware.sample.remote.model.Message;
 public interface MessagingService {
 
    /**
-    * Broadcasts a message to all clients.
+    * Broadcasts a message to the clients subscribed to any of its topics.
     * @param message to send.
     */
    void broadcastMessage(final Message message);
@@ -2,16 +2,11 @@
 
 package com.vmware.sample.remote.services;
 
-import java.util.Set;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vmware.sample.remote.model.Message;
-import com.vmware.sample.remote.websocket.WebSocketSessionRegistry;
+import com.vmware.sample.remote.websocket.MessageReplayBuffer;
 
 /**
  * Implementation of MessagingService.
@@ -21,36 +16,20 @@ public class MessagingServiceImpl implements MessagingService {
    private static final Log logger = LogFactory.getLog(
          MessagingServiceImpl.class);
 
-   private final WebSocketSessionRegistry registry;
-   private final ObjectMapper objectMapper = new ObjectMapper();
+   private final MessageReplayBuffer replayBuffer;
 
    public MessagingServiceImpl(
-         final WebSocketSessionRegistry registry) {
-      this.registry = registry;
+         final MessageReplayBuffer replayBuffer) {
+      this.replayBuffer = replayBuffer;
    }
 
    @Override
    public void broadcastMessage(final Message message) {
-      final String serializedMessage;
+      // The message is serialized once and shared by the send queues.
       try {
-         serializedMessage = objectMapper.writeValueAsString(message);
+         replayBuffer.broadcast(message);
       } catch (Exception e) {
          logger.error("Failed to serialize message", e);
-         return;
       }
-
-      new Thread() {
-         public void run() {
-            final Set<WebSocketSession> sessions = registry.getAllSessions();
-            for (final WebSocketSession session : sessions) {
-               try {
-                  session.sendMessage(new TextMessage(serializedMessage));
-               } catch (Exception e) {
-                  logger.warn(String.format("Failed to send message to client with" +
-                        "session ID: %s", session.getId()), e);
-               }
-            }
-         }
-      }.start();
    }
 }
@@ -0,0 +1,23 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.services.tasks.faults;
+
+import com.vmware.vim25.LocalizableMessage;
+import com.vmware.vim25.VimFault;
+
+/**
+ * Localizable Fault which is displayed when a chassis object could not be changed
+ * because of an unexpected error, e.g. the chassis store is not available.
+ * In order for this fault to be found when a task is created,
+ * it must be provided as part of the plug-in registration in the ExtensionManager.
+ * The fault should have been register with ID:
+ *    "com.vmware.sample.remote.1.0.0.faults.ChassisOperationFault".
+ */
+public class ChassisOperationFault extends VimFault {
+   public ChassisOperationFault() {
+      this.faultMessage = getFaultMessage();
+      final LocalizableMessage msg = new LocalizableMessage();
+      msg.setKey("com.vmware.sample.remote.1.0.0.faults.ChassisOperationFault.summary");
+
+      this.faultMessage.add(msg);
+   }
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Bounded log of the ids of the changed chassis objects.
+ * <p>
+ * Each change gets the next version. Only the last {@code capacity} changes
+ * are kept, in a ring buffer, so the changes since an older version are no
+ * longer known. Versions start from 0 whenever the log is created.
+ * </p>
+ */
+class ChassisChangeLog {
+   private final String[] chassisIds;
+   private long version;
+   private int size;
+
+   ChassisChangeLog(final int capacity) {
+      Validate.isTrue(capacity > 0);
+      this.chassisIds = new String[capacity];
+   }
+
+   /**
+    * Records a change of each of the given chassis objects.
+    */
+   synchronized void append(final Collection<String> changedChassisIds) {
+      for (final String chassisId : changedChassisIds) {
+         version++;
+         chassisIds[(int) (version % chassisIds.length)] = chassisId;
+         size = Math.min(size + 1, chassisIds.length);
+      }
+   }
+
+   /**
+    * @return the version of the last change.
+    */
+   synchronized long getVersion() {
+      return version;
+   }
+
+   /**
+    * @param since the version to return the changes after.
+    * @param until the version to return the changes up to.
+    * @return the ids of the chassis objects changed after {@code since} up to
+    * {@code until}, or null if these changes are no longer known.
+    */
+   synchronized Set<String> getChangedIds(final long since, final long until) {
+      if (since < version - size || since > until || until > version) {
+         return null;
+      }
+      final Set<String> changedChassisIds = new LinkedHashSet<>();
+      for (long changeVersion = since + 1; changeVersion <= until; changeVersion++) {
+         changedChassisIds.add(chassisIds[(int) (changeVersion % chassisIds.length)]);
+      }
+      return changedChassisIds;
+   }
+}
@@ -0,0 +1,212 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Index of the relations between chassis objects and hosts, kept in both
+ * directions.
+ * <p>
+ * The chassis -> hosts and host -> chassis sets are always changed together
+ * under a single write lock, so readers never see an edge in one direction
+ * only. Lookups in either direction cost O(related) instead of a scan of all
+ * chassis objects.
+ * </p>
+ * Relations can only be set for chassis objects which are registered with
+ * {@link #addChassis(String)}, so a chassis object removed with
+ * {@link #removeChassisIfUnrelated(String)} can never gain new relations.
+ */
+public class ChassisHostRelationIndex {
+   // The key is a chassis object's id and the value is the ids of its hosts.
+   private final Map<String, Set<String>> hostsByChassis = new HashMap<>();
+   // The key is a host id and the value is the ids of its chassis objects.
+   private final Map<String, Set<String>> chassisByHost = new HashMap<>();
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   /**
+    * Registers a chassis object without any related hosts.
+    *
+    * @param chassisId the id of the chassis object.
+    */
+   public void addChassis(final String chassisId) {
+      Validate.notNull(chassisId);
+      lock.writeLock().lock();
+      try {
+         hostsByChassis.putIfAbsent(chassisId, new LinkedHashSet<>());
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Unregisters a chassis object if it has no related hosts.
+    *
+    * @param chassisId the id of the chassis object.
+    * @return false if the chassis object has related hosts, true otherwise.
+    */
+   public boolean removeChassisIfUnrelated(final String chassisId) {
+      lock.writeLock().lock();
+      try {
+         final Set<String> hostIds = hostsByChassis.get(chassisId);
+         if (hostIds != null && !hostIds.isEmpty()) {
+            return false;
+         }
+         hostsByChassis.remove(chassisId);
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * @param chassisId the id of a chassis object.
+    * @return an immutable list of the ids of the hosts related to the given
+    * chassis object, in the order they were related.
+    */
+   public List<String> getHostIds(final String chassisId) {
+      lock.readLock().lock();
+      try {
+         return toImmutableList(hostsByChassis.get(chassisId));
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * @param hostId the id of a host.
+    * @return an immutable list of the ids of the chassis objects related to
+    * the given host.
+    */
+   public List<String> getChassisIds(final String hostId) {
+      lock.readLock().lock();
+      try {
+         return toImmutableList(chassisByHost.get(hostId));
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Replaces the hosts related to the given chassis object.
+    *
+    * @param chassisId the id of a registered chassis object.
+    * @param hostIds   the ids of the hosts, null for none.
+    * @return true if the relations have changed, false if they are the same or
+    * the chassis object is not registered.
+    */
+   public boolean setHostIds(final String chassisId,
+         final Collection<String> hostIds) {
+      lock.writeLock().lock();
+      try {
+         final Set<String> currentHostIds = hostsByChassis.get(chassisId);
+         if (currentHostIds == null) {
+            return false;
+         }
+         final Set<String> updatedHostIds = (hostIds == null) ?
+               new LinkedHashSet<>() :
+               new LinkedHashSet<>(hostIds);
+         if (currentHostIds.equals(updatedHostIds)) {
+            return false;
+         }
+
+         for (final String hostId : currentHostIds) {
+            if (!updatedHostIds.contains(hostId)) {
+               removeChassisOfHost(hostId, chassisId);
+            }
+         }
+         for (final String hostId : updatedHostIds) {
+            if (!currentHostIds.contains(hostId)) {
+               chassisByHost.computeIfAbsent(hostId, key -> new HashSet<>())
+                     .add(chassisId);
+            }
+         }
+         hostsByChassis.put(chassisId, updatedHostIds);
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Replaces the chassis objects related to the given host. Ids of chassis
+    * objects which are not registered are ignored.
+    *
+    * @param hostId     the id of a host.
+    * @param chassisIds the ids of the chassis objects, null for none.
+    * @return the ids of the chassis objects whose related hosts have changed.
+    */
+   public Set<String> setChassisIds(final String hostId,
+         final Collection<String> chassisIds) {
+      Validate.notNull(hostId);
+      lock.writeLock().lock();
+      try {
+         final Set<String> currentChassisIds = chassisByHost
+               .getOrDefault(hostId, Collections.emptySet());
+         final Set<String> updatedChassisIds = new HashSet<>();
+         if (chassisIds != null) {
+            for (final String chassisId : chassisIds) {
+               if (hostsByChassis.containsKey(chassisId)) {
+                  updatedChassisIds.add(chassisId);
+               }
+            }
+         }
+
+         final Set<String> changedChassisIds = new HashSet<>();
+         for (final String chassisId : currentChassisIds) {
+            if (!updatedChassisIds.contains(chassisId)) {
+               // Related chassis objects are always registered.
+               hostsByChassis.get(chassisId).remove(hostId);
+               changedChassisIds.add(chassisId);
+            }
+         }
+         for (final String chassisId : updatedChassisIds) {
+            if (!currentChassisIds.contains(chassisId)) {
+               hostsByChassis.get(chassisId).add(hostId);
+               changedChassisIds.add(chassisId);
+            }
+         }
+
+         if (updatedChassisIds.isEmpty()) {
+            chassisByHost.remove(hostId);
+         } else {
+            chassisByHost.put(hostId, updatedChassisIds);
+         }
+         return changedChassisIds;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes a chassis object from the relations of a host, dropping the entry
+    * of the host if it has no chassis objects left.
+    */
+   private void removeChassisOfHost(final String hostId, final String chassisId) {
+      final Set<String> chassisIds = chassisByHost.get(hostId);
+      if (chassisIds != null && chassisIds.remove(chassisId)
+            && chassisIds.isEmpty()) {
+         chassisByHost.remove(hostId);
+      }
+   }
+
+   private static List<String> toImmutableList(final Set<String> values) {
+      if (values == null || values.isEmpty()) {
+         return Collections.emptyList();
+      }
+      return Collections.unmodifiableList(new ArrayList<>(values));
+   }
+}
@@ -0,0 +1,278 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.vmware.sample.remote.model.Chassis;
+
+/**
+ * Immutable index of chassis objects, sorted by a comparator.
+ * <p>
+ * The index is a persistent AVL tree: a change returns a new index which
+ * shares all nodes with this one except for the O(log n) nodes on the path to
+ * the changed chassis object, so an index can be changed without copying it
+ * and is never modified once it is read. Every node knows the size of its
+ * subtree, so a position is found by rank in O(log n) as well.
+ * </p>
+ */
+final class ChassisIndex {
+   private final Comparator<Chassis> comparator;
+   private final Node root;
+
+   private ChassisIndex(final Comparator<Chassis> comparator, final Node root) {
+      this.comparator = comparator;
+      this.root = root;
+   }
+
+   /**
+    * @return an empty index sorted by the given comparator.
+    */
+   static ChassisIndex empty(final Comparator<Chassis> comparator) {
+      return new ChassisIndex(comparator, null);
+   }
+
+   int size() {
+      return size(root);
+   }
+
+   /**
+    * @return the chassis object which sorts equal to the given one,
+    * or null if there is none.
+    */
+   Chassis get(final Chassis position) {
+      Node node = root;
+      while (node != null) {
+         final int order = comparator.compare(position, node.value);
+         if (order == 0) {
+            return node.value;
+         }
+         node = (order < 0) ? node.left : node.right;
+      }
+      return null;
+   }
+
+   /**
+    * @return an index which contains the given chassis object, in place of
+    * the one which sorts equal to it, if any.
+    */
+   ChassisIndex with(final Chassis chassis) {
+      return new ChassisIndex(comparator, insert(root, chassis));
+   }
+
+   /**
+    * @return an index without the chassis object which sorts equal to the
+    * given one.
+    */
+   ChassisIndex without(final Chassis chassis) {
+      return new ChassisIndex(comparator, remove(root, chassis));
+   }
+
+   /**
+    * @param position  the position to count the chassis objects before.
+    * @param inclusive whether to count the chassis object which sorts equal
+    *                  to the position as well.
+    * @return the number of chassis objects which sort before the position.
+    */
+   int countBefore(final Chassis position, final boolean inclusive) {
+      int count = 0;
+      Node node = root;
+      while (node != null) {
+         final int order = comparator.compare(position, node.value);
+         if (order < 0 || (order == 0 && !inclusive)) {
+            node = node.left;
+         } else {
+            count += size(node.left) + 1;
+            node = node.right;
+         }
+      }
+      return count;
+   }
+
+   /**
+    * @return the chassis objects in order, starting at the given index.
+    */
+   Iterator<Chassis> iterator(final int fromIndex) {
+      return new NodeIterator(root, fromIndex);
+   }
+
+   /**
+    * @return an unmodifiable view of the chassis objects in order. The view
+    * never changes, since the index does not.
+    */
+   List<Chassis> asList() {
+      return new AbstractList<Chassis>() {
+         @Override
+         public Chassis get(final int index) {
+            if (index < 0 || index >= size()) {
+               throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            Node node = root;
+            int remaining = index;
+            while (true) {
+               final int leftSize = ChassisIndex.size(node.left);
+               if (remaining < leftSize) {
+                  node = node.left;
+               } else if (remaining == leftSize) {
+                  return node.value;
+               } else {
+                  remaining -= leftSize + 1;
+                  node = node.right;
+               }
+            }
+         }
+
+         @Override
+         public int size() {
+            return ChassisIndex.this.size();
+         }
+
+         @Override
+         public Iterator<Chassis> iterator() {
+            return ChassisIndex.this.iterator(0);
+         }
+      };
+   }
+
+   private Node insert(final Node node, final Chassis chassis) {
+      if (node == null) {
+         return new Node(chassis, null, null);
+      }
+      final int order = comparator.compare(chassis, node.value);
+      if (order < 0) {
+         return balance(node.value, insert(node.left, chassis), node.right);
+      }
+      if (order > 0) {
+         return balance(node.value, node.left, insert(node.right, chassis));
+      }
+      return new Node(chassis, node.left, node.right);
+   }
+
+   private Node remove(final Node node, final Chassis chassis) {
+      if (node == null) {
+         return null;
+      }
+      final int order = comparator.compare(chassis, node.value);
+      if (order < 0) {
+         return balance(node.value, remove(node.left, chassis), node.right);
+      }
+      if (order > 0) {
+         return balance(node.value, node.left, remove(node.right, chassis));
+      }
+      if (node.left == null) {
+         return node.right;
+      }
+      if (node.right == null) {
+         return node.left;
+      }
+      Node successor = node.right;
+      while (successor.left != null) {
+         successor = successor.left;
+      }
+      return balance(successor.value, node.left, removeFirst(node.right));
+   }
+
+   private static Node removeFirst(final Node node) {
+      if (node.left == null) {
+         return node.right;
+      }
+      return balance(node.value, removeFirst(node.left), node.right);
+   }
+
+   /**
+    * @return a node with the given value and children, rotated if the heights
+    * of the children differ by more than one.
+    */
+   private static Node balance(final Chassis value, final Node left, final Node right) {
+      if (height(left) > height(right) + 1) {
+         if (height(left.left) >= height(left.right)) {
+            return new Node(left.value, left.left, new Node(value, left.right, right));
+         }
+         return new Node(left.right.value,
+               new Node(left.value, left.left, left.right.left),
+               new Node(value, left.right.right, right));
+      }
+      if (height(right) > height(left) + 1) {
+         if (height(right.right) >= height(right.left)) {
+            return new Node(right.value, new Node(value, left, right.left), right.right);
+         }
+         return new Node(right.left.value,
+               new Node(value, left, right.left.left),
+               new Node(right.value, right.left.right, right.right));
+      }
+      return new Node(value, left, right);
+   }
+
+   private static int height(final Node node) {
+      return (node == null) ? 0 : node.height;
+   }
+
+   private static int size(final Node node) {
+      return (node == null) ? 0 : node.size;
+   }
+
+   private static final class Node {
+      final Chassis value;
+      final Node left;
+      final Node right;
+      final int height;
+      final int size;
+
+      Node(final Chassis value, final Node left, final Node right) {
+         this.value = value;
+         this.left = left;
+         this.right = right;
+         this.height = Math.max(height(left), height(right)) + 1;
+         this.size = size(left) + size(right) + 1;
+      }
+   }
+
+   /**
+    * In-order iterator, which keeps the nodes still to visit on the path from
+    * the root.
+    */
+   private static final class NodeIterator implements Iterator<Chassis> {
+      private final Deque<Node> path = new ArrayDeque<>();
+
+      NodeIterator(final Node root, final int fromIndex) {
+         Node node = root;
+         int remaining = fromIndex;
+         while (node != null) {
+            final int leftSize = size(node.left);
+            if (remaining < leftSize) {
+               path.push(node);
+               node = node.left;
+            } else if (remaining == leftSize) {
+               path.push(node);
+               break;
+            } else {
+               remaining -= leftSize + 1;
+               node = node.right;
+            }
+         }
+      }
+
+      @Override
+      public boolean hasNext() {
+         return !path.isEmpty();
+      }
+
+      @Override
+      public Chassis next() {
+         if (path.isEmpty()) {
+            throw new NoSuchElementException();
+         }
+         final Node node = path.pop();
+         for (Node next = node.right; next != null; next = next.left) {
+            path.push(next);
+         }
+         return node.value;
+      }
+   }
+}
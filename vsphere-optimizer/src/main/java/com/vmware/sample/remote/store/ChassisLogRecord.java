@@ -0,0 +1,73 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.util.List;
+
+import com.vmware.sample.remote.model.Chassis;
+
+/**
+ * A single change of the chassis objects, as written to the log of the
+ * {@link DurableChassisStore}.
+ * <p>
+ * Records are idempotent, so replaying a record which is already reflected in
+ * the recovered state does not change it.
+ * </p>
+ */
+class ChassisLogRecord {
+
+   enum Type {
+      /** A chassis object was created or updated. */
+      PUT,
+      /** A chassis object was deleted. */
+      DELETE,
+      /** The hosts related to a chassis object were replaced. */
+      CHASSIS_HOSTS,
+      /** The chassis objects related to a host were replaced. */
+      HOST_CHASSIS
+   }
+
+   public Type type;
+   // The stored chassis object of a PUT record.
+   public Chassis chassis;
+   // The chassis object id, or the host id of a HOST_CHASSIS record.
+   public String id;
+   // The related host ids, or the related chassis ids of a HOST_CHASSIS record.
+   public List<String> relatedIds;
+
+   public ChassisLogRecord() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+
+   static ChassisLogRecord put(final Chassis chassis) {
+      final ChassisLogRecord record = new ChassisLogRecord();
+      record.type = Type.PUT;
+      record.chassis = chassis;
+      return record;
+   }
+
+   static ChassisLogRecord delete(final String chassisId) {
+      final ChassisLogRecord record = new ChassisLogRecord();
+      record.type = Type.DELETE;
+      record.id = chassisId;
+      return record;
+   }
+
+   static ChassisLogRecord chassisHosts(final String chassisId,
+         final List<String> hostIds) {
+      final ChassisLogRecord record = new ChassisLogRecord();
+      record.type = Type.CHASSIS_HOSTS;
+      record.id = chassisId;
+      record.relatedIds = hostIds;
+      return record;
+   }
+
+   static ChassisLogRecord hostChassis(final String hostId,
+         final List<String> chassisIds) {
+      final ChassisLogRecord record = new ChassisLogRecord();
+      record.type = Type.HOST_CHASSIS;
+      record.id = hostId;
+      record.relatedIds = chassisIds;
+      return record;
+   }
+}
@@ -2,6 +2,9 @@
 package com.vmware.sample.remote.store;
 
 import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
 
 import java.util.List;
 
@@ -11,9 +14,93 @@ public interface ChassisStore {
 
    Chassis getObjectById(String id);
 
+   /**
+    * Retrieves a page of chassis objects, sorted and filtered as described by
+    * the query.
+    *
+    * @param query the page to retrieve.
+    * @return the chassis objects of the page, and the cursor of the next one.
+    */
+   ChassisPage getPage(ChassisPageQuery query);
+
+   /**
+    * Retrieves the chassis objects changed since the given version.
+    *
+    * @param epoch   the epoch returned with the previous changes,
+    *                or null if none were retrieved yet.
+    * @param version the version returned with the previous changes,
+    *                or a negative number if none were retrieved yet.
+    * @return the changes and the version they lead up to. If the changes
+    *         since the given version are no longer known, e.g. because the
+    *         version belongs to another epoch, only the current epoch and
+    *         version are returned, and all chassis objects have to be
+    *         retrieved again.
+    */
+   ChassisChanges getChangesSince(String epoch, long version);
+
    Chassis create(Chassis chassis);
 
    boolean update(Chassis chassis);
 
    Chassis delete(String id);
+
+   /**
+    * Creates the given chassis objects in a single transaction. Either all of
+    * them are created, or none is.
+    *
+    * @param chassisList the chassis objects to create.
+    * @return the created chassis objects, in the given order.
+    * @throws com.vmware.sample.remote.store.exception.ExistingChassisObjectException
+    *         if any of the names is duplicate.
+    */
+   List<Chassis> createAll(List<Chassis> chassisList);
+
+   /**
+    * Updates the given chassis objects in a single transaction. Either all of
+    * the existing ones are updated, or none is. Chassis objects which do not
+    * exist are skipped.
+    *
+    * @param chassisList the chassis objects to update.
+    * @return the updated chassis objects.
+    * @throws com.vmware.sample.remote.store.exception.ExistingChassisObjectException
+    *         if any of the names is duplicate.
+    */
+   List<Chassis> updateAll(List<Chassis> chassisList);
+
+   /**
+    * Deletes the given chassis objects in a single transaction. Either all of
+    * the existing ones are deleted, or none is. Ids of chassis objects which
+    * do not exist are skipped.
+    *
+    * @param ids the ids of the chassis objects to delete.
+    * @return the deleted chassis objects.
+    * @throws com.vmware.sample.remote.store.exception.ExistingHostRelationException
+    *         if any of the chassis objects has related hosts.
+    */
+   List<Chassis> deleteAll(List<String> ids);
+
+   /**
+    * Replaces the hosts related to the given chassis object.
+    *
+    * @param chassisId the id of the chassis object.
+    * @param hostIds   the ids of the related hosts.
+    * @return true if the relations have changed, false otherwise.
+    */
+   boolean setRelatedHosts(String chassisId, List<String> hostIds);
+
+   /**
+    * Replaces the chassis objects related to the given host in a single
+    * atomic update.
+    *
+    * @param hostId     the id of the host.
+    * @param chassisIds the ids of the related chassis objects.
+    * @return true if the relations have changed, false otherwise.
+    */
+   boolean setRelatedChassis(String hostId, List<String> chassisIds);
+
+   /**
+    * @param hostId the id of a host.
+    * @return the chassis objects related to the given host.
+    */
+   List<Chassis> getRelatedChassis(String hostId);
 }
@@ -0,0 +1,489 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vmware.sample.remote.store.exception.ChassisStoreException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The files of the {@link DurableChassisStore}: an append-only log of
+ * {@link ChassisLogRecord}s and the latest {@link ChassisStoreSnapshot}.
+ * <p>
+ * Every record is framed with its length and a CRC32 checksum, so a record
+ * torn by a crash is detected and dropped on recovery. Records are written by
+ * a single writer thread which drains all records queued in the meantime and
+ * forces them to the disk with a single fsync (group commit).
+ * </p>
+ * Logs are numbered by generation. Writing a snapshot starts the log of the
+ * next generation, and only the logs from the snapshot's generation onwards
+ * are replayed on recovery. Older logs are deleted.
+ * <p>
+ * {@link #append} and {@link #snapshot} must not be called concurrently.
+ * </p>
+ */
+class ChassisStoreLog implements Closeable {
+   private static final Log logger = LogFactory.getLog(ChassisStoreLog.class);
+
+   private static final String LOG_FILE_PREFIX = "chassis-";
+   private static final String LOG_FILE_SUFFIX = ".log";
+   private static final String SNAPSHOT_FILE = "chassis.snapshot";
+   private static final String SNAPSHOT_TEMP_FILE = "chassis.snapshot.tmp";
+   // Each frame starts with the payload length and the payload's CRC32.
+   private static final int FRAME_HEADER_SIZE = 8;
+   private static final int MAX_BATCH_SIZE = 1024;
+   private static final long POLL_TIMEOUT_MS = 100;
+
+   private final Path directory;
+   private final ObjectMapper objectMapper = new ObjectMapper();
+   private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+   // Guards the transitions of running, so no write is queued once the
+   // writer thread may have finished draining the queue.
+   private final Object runningLock = new Object();
+   private volatile boolean running = false;
+   private Thread writerThread;
+
+   // Owned by the writer thread once the log is recovered.
+   private FileChannel channel;
+   private long generation;
+   // The end of the records which are known to be on the disk.
+   private long forcedPosition;
+
+   // Owned by the appending thread.
+   private long requestedGeneration;
+   private int recordsSinceSnapshot;
+
+   /**
+    * A framed record or snapshot waiting for the writer thread.
+    */
+   private static final class PendingWrite {
+      final byte[] frame;
+      // The generation of the log started by a snapshot, -1 for records.
+      final long snapshotGeneration;
+      final CompletableFuture<Void> written = new CompletableFuture<>();
+
+      PendingWrite(final byte[] frame, final long snapshotGeneration) {
+         this.frame = frame;
+         this.snapshotGeneration = snapshotGeneration;
+      }
+
+      boolean isSnapshot() {
+         return snapshotGeneration >= 0;
+      }
+   }
+
+   @FunctionalInterface
+   private interface FrameConsumer {
+      void accept(byte[] payload) throws IOException;
+   }
+
+   ChassisStoreLog(final Path directory) {
+      this.directory = directory;
+   }
+
+   /**
+    * Reads the latest snapshot and replays the logs written after it, then
+    * opens the log for appending.
+    *
+    * @param snapshotConsumer receives the snapshot, if there is one.
+    * @param recordConsumer   receives the logged records, in order.
+    * @return true if any persisted state was found, false on first start.
+    */
+   boolean recover(final Consumer<ChassisStoreSnapshot> snapshotConsumer,
+         final Consumer<ChassisLogRecord> recordConsumer) {
+      boolean recovered = false;
+      try {
+         Files.createDirectories(directory);
+         Files.deleteIfExists(directory.resolve(SNAPSHOT_TEMP_FILE));
+
+         long firstGeneration = 0;
+         final Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+         if (Files.exists(snapshotFile)) {
+            final List<ChassisStoreSnapshot> snapshots = new ArrayList<>(1);
+            readFrames(snapshotFile, payload -> snapshots.add(
+                  objectMapper.readValue(payload, ChassisStoreSnapshot.class)));
+            if (snapshots.size() != 1) {
+               throw new ChassisStoreException(
+                     "The chassis store snapshot " + snapshotFile + " is corrupt.");
+            }
+            final ChassisStoreSnapshot snapshot = snapshots.get(0);
+            snapshotConsumer.accept(snapshot);
+            firstGeneration = snapshot.generation;
+            recovered = true;
+         }
+
+         generation = firstGeneration;
+         final TreeMap<Long, Path> logFiles = listLogFiles();
+         for (final Long logGeneration : logFiles.keySet()) {
+            final Path logFile = logFiles.get(logGeneration);
+            if (logGeneration < firstGeneration) {
+               // Already compacted into the snapshot.
+               Files.delete(logFile);
+               continue;
+            }
+
+            final long validLength = readFrames(logFile, payload -> {
+               recordConsumer.accept(
+                     objectMapper.readValue(payload, ChassisLogRecord.class));
+               recordsSinceSnapshot++;
+            });
+            final long fileLength = Files.size(logFile);
+            if (validLength < fileLength) {
+               if (hasRecordsAfter(logFiles, logGeneration)) {
+                  throw new ChassisStoreException(
+                        "The chassis store log " + logFile + " is corrupt.");
+               }
+               // A record torn by a crash, which was never acknowledged.
+               logger.warn(String.format("Dropping %s bytes of an incomplete " +
+                     "record at the end of %s.", fileLength - validLength, logFile));
+               try (FileChannel logChannel = FileChannel.open(logFile,
+                     StandardOpenOption.WRITE)) {
+                  logChannel.truncate(validLength);
+               }
+            }
+            generation = logGeneration;
+            recovered |= (validLength > 0);
+         }
+
+         requestedGeneration = generation;
+         channel = FileChannel.open(logFile(generation),
+               StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+         forcedPosition = channel.size();
+         channel.position(forcedPosition);
+      } catch (final IOException e) {
+         throw new ChassisStoreException(
+               "Could not recover the chassis store from " + directory, e);
+      }
+
+      running = true;
+      writerThread = new Thread(this::runWriter, "chassis-store-writer");
+      writerThread.setDaemon(true);
+      writerThread.start();
+      return recovered;
+   }
+
+   /**
+    * Queues a record to be written.
+    *
+    * @return completed once the record is on the disk.
+    */
+   CompletableFuture<Void> append(final ChassisLogRecord record) {
+      final PendingWrite write = new PendingWrite(frame(serialize(record)), -1);
+      enqueue(write);
+      recordsSinceSnapshot++;
+      return write.written;
+   }
+
+   /**
+    * Queues a snapshot to be written after the records queued so far. The log
+    * is switched to the next generation once the snapshot is on the disk.
+    *
+    * @return completed once the snapshot is on the disk.
+    */
+   CompletableFuture<Void> snapshot(final ChassisStoreSnapshot snapshot) {
+      snapshot.generation = ++requestedGeneration;
+      final PendingWrite write = new PendingWrite(frame(serialize(snapshot)),
+            snapshot.generation);
+      enqueue(write);
+      recordsSinceSnapshot = 0;
+      return write.written;
+   }
+
+   /**
+    * @return the number of records appended since the last snapshot.
+    */
+   int getRecordsSinceSnapshot() {
+      return recordsSinceSnapshot;
+   }
+
+   /**
+    * Writes the queued records and stops the writer thread. The writes which
+    * could not be written are failed.
+    */
+   @Override
+   public void close() {
+      synchronized (runningLock) {
+         running = false;
+      }
+      if (writerThread == null) {
+         return;
+      }
+      try {
+         writerThread.join();
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      failQueuedWrites();
+      try {
+         channel.force(false);
+         channel.close();
+      } catch (final IOException e) {
+         logger.error("Could not close the chassis store log.", e);
+      }
+   }
+
+   private void enqueue(final PendingWrite write) {
+      synchronized (runningLock) {
+         if (!running) {
+            throw new ChassisStoreException("The chassis store log is closed.");
+         }
+         queue.add(write);
+      }
+   }
+
+   private void runWriter() {
+      final List<PendingWrite> batch = new ArrayList<>();
+      while (running || !queue.isEmpty()) {
+         final PendingWrite first;
+         try {
+            first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+         } catch (final InterruptedException e) {
+            break;
+         }
+         if (first == null) {
+            continue;
+         }
+         batch.add(first);
+         queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+         writeBatch(batch);
+         batch.clear();
+      }
+      failQueuedWrites();
+   }
+
+   /**
+    * Fails the writes left in the queue, e.g. when the writer thread is
+    * interrupted, so that nobody waits for them forever.
+    */
+   private void failQueuedWrites() {
+      final ChassisStoreException closed =
+            new ChassisStoreException("The chassis store log is closed.");
+      PendingWrite write;
+      while ((write = queue.poll()) != null) {
+         write.written.completeExceptionally(closed);
+      }
+   }
+
+   /**
+    * Writes a batch of records with a single fsync. A snapshot in the batch
+    * first forces the records preceding it.
+    */
+   private void writeBatch(final List<PendingWrite> batch) {
+      final List<PendingWrite> unforced = new ArrayList<>(batch.size());
+      try {
+         for (final PendingWrite write : batch) {
+            if (write.isSnapshot()) {
+               force(unforced);
+               writeSnapshot(write);
+            } else {
+               writeFully(channel, write.frame);
+               unforced.add(write);
+            }
+         }
+         force(unforced);
+      } catch (final IOException | RuntimeException e) {
+         logger.error("Could not write the chassis store log.", e);
+         for (final PendingWrite write : batch) {
+            // No effect on the writes which are already completed.
+            write.written.completeExceptionally(e);
+         }
+         // Drop partially written records, so the records appended later are
+         // not hidden behind them on recovery.
+         try {
+            channel.truncate(forcedPosition);
+            channel.position(forcedPosition);
+         } catch (final IOException truncateException) {
+            logger.error("Could not truncate the chassis store log.",
+                  truncateException);
+         }
+      }
+   }
+
+   private void force(final List<PendingWrite> unforced) throws IOException {
+      if (unforced.isEmpty()) {
+         return;
+      }
+      channel.force(false);
+      forcedPosition = channel.position();
+      for (final PendingWrite write : unforced) {
+         write.written.complete(null);
+      }
+      unforced.clear();
+   }
+
+   /**
+    * Replaces the snapshot and switches to the log of its generation. A failed
+    * snapshot is only logged, the records keep going to the current log.
+    */
+   private void writeSnapshot(final PendingWrite write) {
+      final Path newLogFile = logFile(write.snapshotGeneration);
+      FileChannel newChannel = null;
+      try {
+         newChannel = FileChannel.open(newLogFile, StandardOpenOption.CREATE,
+               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+         final Path tempFile = directory.resolve(SNAPSHOT_TEMP_FILE);
+         try (FileChannel snapshotChannel = FileChannel.open(tempFile,
+               StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(snapshotChannel, write.frame);
+            snapshotChannel.force(true);
+         }
+         Files.move(tempFile, directory.resolve(SNAPSHOT_FILE),
+               StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (final IOException e) {
+         logger.warn("Could not write the chassis store snapshot.", e);
+         closeQuietly(newChannel);
+         write.written.completeExceptionally(e);
+         return;
+      }
+
+      final Path oldLogFile = logFile(generation);
+      closeQuietly(channel);
+      channel = newChannel;
+      generation = write.snapshotGeneration;
+      forcedPosition = 0;
+      try {
+         Files.deleteIfExists(oldLogFile);
+      } catch (final IOException e) {
+         // Deleted on the next recovery.
+         logger.info("Could not delete the compacted log " + oldLogFile);
+      }
+      write.written.complete(null);
+   }
+
+   /**
+    * Reads the valid frames of a file through a read-only memory mapping.
+    *
+    * @return the length of the valid frames from the start of the file.
+    */
+   private static long readFrames(final Path file, final FrameConsumer consumer)
+         throws IOException {
+      try (FileChannel fileChannel = FileChannel.open(file,
+            StandardOpenOption.READ)) {
+         final long size = fileChannel.size();
+         if (size == 0) {
+            return 0;
+         }
+         if (size > Integer.MAX_VALUE) {
+            throw new ChassisStoreException("The chassis store file " + file +
+                  " is too large.");
+         }
+         final MappedByteBuffer buffer = fileChannel.map(
+               FileChannel.MapMode.READ_ONLY, 0, size);
+         final CRC32 crc = new CRC32();
+         int validLength = 0;
+         while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+               break;
+            }
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+               break;
+            }
+            consumer.accept(payload);
+            validLength = buffer.position();
+         }
+         return validLength;
+      }
+   }
+
+   /**
+    * @return whether any log after the given generation has records. An
+    * empty log is left behind when a crash interrupts writing a snapshot.
+    */
+   private static boolean hasRecordsAfter(final TreeMap<Long, Path> logFiles,
+         final long logGeneration) throws IOException {
+      for (final Path logFile : logFiles.tailMap(logGeneration, false).values()) {
+         if (Files.size(logFile) > 0) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private TreeMap<Long, Path> listLogFiles() throws IOException {
+      final TreeMap<Long, Path> logFiles = new TreeMap<>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+            LOG_FILE_PREFIX + "*" + LOG_FILE_SUFFIX)) {
+         for (final Path file : files) {
+            final String name = file.getFileName().toString();
+            try {
+               logFiles.put(Long.parseLong(name.substring(LOG_FILE_PREFIX.length(),
+                     name.length() - LOG_FILE_SUFFIX.length())), file);
+            } catch (final NumberFormatException e) {
+               logger.warn("Ignoring unexpected file " + file);
+            }
+         }
+      }
+      return logFiles;
+   }
+
+   private Path logFile(final long logGeneration) {
+      return directory.resolve(LOG_FILE_PREFIX + logGeneration + LOG_FILE_SUFFIX);
+   }
+
+   private byte[] serialize(final Object value) {
+      try {
+         return objectMapper.writeValueAsBytes(value);
+      } catch (final IOException e) {
+         throw new ChassisStoreException("Could not serialize " + value, e);
+      }
+   }
+
+   private static byte[] frame(final byte[] payload) {
+      final CRC32 crc = new CRC32();
+      crc.update(payload);
+      return ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .put(payload)
+            .array();
+   }
+
+   private static void writeFully(final FileChannel fileChannel,
+         final byte[] bytes) throws IOException {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+         fileChannel.write(buffer);
+      }
+   }
+
+   private static void closeQuietly(final FileChannel fileChannel) {
+      if (fileChannel == null) {
+         return;
+      }
+      try {
+         fileChannel.close();
+      } catch (final IOException e) {
+         logger.info("Could not close " + fileChannel, e);
+      }
+   }
+}
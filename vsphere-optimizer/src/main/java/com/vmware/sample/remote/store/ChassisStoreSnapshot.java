@@ -0,0 +1,23 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.util.List;
+
+import com.vmware.sample.remote.model.Chassis;
+
+/**
+ * A compacted copy of all chassis objects and their relations, written by the
+ * {@link DurableChassisStore} in place of the log records which preceded it.
+ */
+class ChassisStoreSnapshot {
+   // The generation of the first log which is not part of the snapshot.
+   public long generation;
+   // The index the next chassis object id is generated from.
+   public int nextIndex;
+   public List<Chassis> chassis;
+
+   public ChassisStoreSnapshot() {
+      // A default constructor is needed for the JSON serialization to work.
+   }
+}
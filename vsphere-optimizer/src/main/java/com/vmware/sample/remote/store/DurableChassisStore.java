@@ -0,0 +1,390 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
+import com.vmware.sample.remote.store.exception.ChassisStoreException;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Chassis store which keeps the chassis objects and their relations across
+ * restarts.
+ * <p>
+ * The objects are served from an {@link InMemoryChassisStore}. Every change is
+ * applied to it and then appended to a {@link ChassisStoreLog}, and the call
+ * returns once the change is on the disk. Changes made concurrently share a
+ * single fsync. After {@code chassis.store.snapshotInterval} changes the whole
+ * state is written to a snapshot, which replaces the log written so far.
+ * </p>
+ * Reads never wait for the disk. A change which fails to be written is
+ * reported to the caller and reverted in memory, unless a later write has
+ * changed the same chassis object meanwhile. Recovery applies the records as
+ * they were written, without checking the names or relations again.
+ * <p>
+ * Selected with the {@code durable-store} Spring profile.
+ * </p>
+ */
+public class DurableChassisStore implements ChassisStore {
+   private static final Log logger = LogFactory.getLog(DurableChassisStore.class);
+
+   private final InMemoryChassisStore delegate = new InMemoryChassisStore(false);
+   private final ChassisStoreLog log;
+   private final int snapshotInterval;
+
+   // Keeps the order of the logged records the same as the order in which
+   // the changes were applied.
+   private final Object writeLock = new Object();
+
+   public DurableChassisStore(final Configuration configuration) {
+      this.log = new ChassisStoreLog(
+            Paths.get(configuration.getChassisStoreDirectory()));
+      this.snapshotInterval = configuration.getChassisStoreSnapshotInterval();
+   }
+
+   /**
+    * Recovers the persisted chassis objects. On first start the initial set of
+    * chassis objects is created instead.
+    */
+   public void open() {
+      final long startTime = System.currentTimeMillis();
+      final boolean recovered = log.recover(this::restoreSnapshot, this::replay);
+      if (!recovered) {
+         for (final Chassis newChassis : InMemoryChassisStore.newInitialObjects()) {
+            create(newChassis);
+         }
+      }
+      logger.info(String.format("Chassis store %s with %s chassis objects in %sms.",
+            recovered ? "recovered" : "initialized", delegate.getObjects().size(),
+            System.currentTimeMillis() - startTime));
+   }
+
+   /**
+    * Writes the pending changes and closes the log.
+    */
+   public void close() {
+      log.close();
+   }
+
+   @Override
+   public List<Chassis> getObjects() {
+      return delegate.getObjects();
+   }
+
+   @Override
+   public Chassis getObjectById(final String id) {
+      return delegate.getObjectById(id);
+   }
+
+   @Override
+   public ChassisPage getPage(final ChassisPageQuery query) {
+      return delegate.getPage(query);
+   }
+
+   @Override
+   public ChassisChanges getChangesSince(final String epoch, final long version) {
+      return delegate.getChangesSince(epoch, version);
+   }
+
+   @Override
+   public Chassis create(final Chassis chassis) {
+      final Chassis newChassis;
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         newChassis = delegate.create(chassis);
+         changes.created(newChassis);
+         changes.written.add(append(ChassisLogRecord.put(newChassis)));
+      }
+      awaitWritten(changes);
+      return newChassis;
+   }
+
+   @Override
+   public boolean update(final Chassis chassis) {
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         changes.before(chassis.id);
+         if (!delegate.update(chassis)) {
+            return false;
+         }
+         changes.after();
+         changes.written.add(append(ChassisLogRecord.put(
+               delegate.getObjectById(chassis.id))));
+      }
+      awaitWritten(changes);
+      return true;
+   }
+
+   @Override
+   public Chassis delete(final String id) {
+      final Chassis deletedChassis;
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         changes.before(id);
+         deletedChassis = delegate.delete(id);
+         if (deletedChassis == null) {
+            return null;
+         }
+         changes.after();
+         changes.written.add(append(ChassisLogRecord.delete(id)));
+      }
+      awaitWritten(changes);
+      return deletedChassis;
+   }
+
+   /**
+    * The records of all created chassis objects share a single write.
+    */
+   @Override
+   public List<Chassis> createAll(final List<Chassis> chassisList) {
+      final List<Chassis> newChassisList;
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         newChassisList = delegate.createAll(chassisList);
+         for (final Chassis newChassis : newChassisList) {
+            changes.created(newChassis);
+            changes.written.add(append(ChassisLogRecord.put(newChassis)));
+         }
+      }
+      awaitWritten(changes);
+      return newChassisList;
+   }
+
+   @Override
+   public List<Chassis> updateAll(final List<Chassis> chassisList) {
+      final List<Chassis> updatedChassisList;
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         for (final Chassis chassis : chassisList) {
+            changes.before(chassis.id);
+         }
+         updatedChassisList = delegate.updateAll(chassisList);
+         changes.after();
+         for (final Chassis updatedChassis : updatedChassisList) {
+            changes.written.add(append(ChassisLogRecord.put(updatedChassis)));
+         }
+      }
+      awaitWritten(changes);
+      return updatedChassisList;
+   }
+
+   @Override
+   public List<Chassis> deleteAll(final List<String> ids) {
+      final List<Chassis> deletedChassisList;
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         for (final String id : ids) {
+            changes.before(id);
+         }
+         deletedChassisList = delegate.deleteAll(ids);
+         changes.after();
+         for (final Chassis deletedChassis : deletedChassisList) {
+            changes.written.add(append(ChassisLogRecord.delete(deletedChassis.id)));
+         }
+      }
+      awaitWritten(changes);
+      return deletedChassisList;
+   }
+
+   @Override
+   public boolean setRelatedHosts(final String chassisId,
+         final List<String> hostIds) {
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         changes.before(chassisId);
+         if (!delegate.setRelatedHosts(chassisId, hostIds)) {
+            return false;
+         }
+         changes.after();
+         changes.written.add(append(ChassisLogRecord.chassisHosts(chassisId,
+               delegate.getObjectById(chassisId).relatedHostsIds)));
+      }
+      awaitWritten(changes);
+      return true;
+   }
+
+   @Override
+   public boolean setRelatedChassis(final String hostId,
+         final List<String> chassisIds) {
+      final WrittenChanges changes = new WrittenChanges();
+      synchronized (writeLock) {
+         for (final Chassis relatedChassis : delegate.getRelatedChassis(hostId)) {
+            changes.before(relatedChassis.id);
+         }
+         if (chassisIds != null) {
+            for (final String chassisId : chassisIds) {
+               changes.before(chassisId);
+            }
+         }
+         if (!delegate.setRelatedChassis(hostId, chassisIds)) {
+            return false;
+         }
+         changes.after();
+         changes.written.add(append(ChassisLogRecord.hostChassis(hostId, chassisIds)));
+      }
+      awaitWritten(changes);
+      return true;
+   }
+
+   @Override
+   public List<Chassis> getRelatedChassis(final String hostId) {
+      return delegate.getRelatedChassis(hostId);
+   }
+
+   /**
+    * Appends a record, followed by a snapshot if enough records were written
+    * since the last one. Must be called while holding the write lock.
+    */
+   private CompletableFuture<Void> append(final ChassisLogRecord record) {
+      try {
+         final CompletableFuture<Void> written = log.append(record);
+         if (log.getRecordsSinceSnapshot() >= snapshotInterval) {
+            writeSnapshot();
+         }
+         return written;
+      } catch (final ChassisStoreException e) {
+         // Reported like a failed write, so the change is reverted.
+         final CompletableFuture<Void> failed = new CompletableFuture<>();
+         failed.completeExceptionally(e);
+         return failed;
+      }
+   }
+
+   /**
+    * Queues a snapshot of the current state. Must be called while holding the
+    * write lock.
+    */
+   private void writeSnapshot() {
+      final ChassisStoreSnapshot snapshot = new ChassisStoreSnapshot();
+      snapshot.nextIndex = delegate.getNextIndex();
+      snapshot.chassis = delegate.getObjects();
+      log.snapshot(snapshot);
+   }
+
+   /**
+    * Waits until the records of the changes are on the disk. If they cannot
+    * be written, the changes are reverted before the failure is reported.
+    */
+   private void awaitWritten(final WrittenChanges changes) {
+      try {
+         CompletableFuture.allOf(
+               changes.written.toArray(new CompletableFuture<?>[0])).get();
+      } catch (final ExecutionException e) {
+         revert(changes);
+         throw new ChassisStoreException("Could not persist the chassis change.",
+               e.getCause());
+      } catch (final InterruptedException e) {
+         // The records may still be written, so the changes are kept.
+         Thread.currentThread().interrupt();
+         throw new ChassisStoreException(
+               "Interrupted while persisting the chassis change.", e);
+      }
+   }
+
+   /**
+    * Puts back the chassis objects changed by a write which could not be
+    * persisted, in reverse order, unless a later write changed them again.
+    * <p>
+    * A snapshot may have been queued since, with the reverted changes in it,
+    * so another snapshot is queued to replace it.
+    * </p>
+    */
+   private void revert(final WrittenChanges changes) {
+      synchronized (writeLock) {
+         for (int i = changes.ids.size() - 1; i >= 0; i--) {
+            final String id = changes.ids.get(i);
+            final Chassis before = changes.beforeById.get(id);
+            final Chassis after = changes.afterById.get(id);
+            if (before != after) {
+               delegate.revert(id, after, before);
+            }
+         }
+         try {
+            writeSnapshot();
+         } catch (final ChassisStoreException e) {
+            logger.error("Could not replace the snapshot of the chassis store.", e);
+         }
+      }
+   }
+
+   private void restoreSnapshot(final ChassisStoreSnapshot snapshot) {
+      Validate.notNull(snapshot.chassis);
+      for (final Chassis chassis : snapshot.chassis) {
+         delegate.restore(chassis);
+      }
+      delegate.advanceIndex(snapshot.nextIndex);
+   }
+
+   private void replay(final ChassisLogRecord record) {
+      switch (record.type) {
+         case PUT:
+            delegate.restore(record.chassis);
+            break;
+         case DELETE:
+            // The relations were checked when the chassis object was deleted.
+            delegate.remove(record.id);
+            break;
+         case CHASSIS_HOSTS:
+            delegate.setRelatedHosts(record.id, record.relatedIds);
+            break;
+         case HOST_CHASSIS:
+            delegate.setRelatedChassis(record.id, record.relatedIds);
+            break;
+         default:
+            logger.warn("Skipping unknown chassis log record " + record.type);
+            break;
+      }
+   }
+
+   /**
+    * The log records of a write, and the chassis objects it changed as they
+    * were before and after it, so that it can be reverted.
+    */
+   private final class WrittenChanges {
+      final List<CompletableFuture<Void>> written = new ArrayList<>();
+      final List<String> ids = new ArrayList<>();
+      final Map<String, Chassis> beforeById = new HashMap<>();
+      final Map<String, Chassis> afterById = new HashMap<>();
+
+      /**
+       * Records the state of a chassis object before the write.
+       */
+      void before(final String id) {
+         if (id != null && !beforeById.containsKey(id)) {
+            ids.add(id);
+            beforeById.put(id, delegate.getObjectById(id));
+         }
+      }
+
+      /**
+       * Records the state of the chassis objects after the write.
+       */
+      void after() {
+         for (final String id : ids) {
+            afterById.put(id, delegate.getObjectById(id));
+         }
+      }
+
+      /**
+       * Records a chassis object created by the write.
+       */
+      void created(final Chassis newChassis) {
+         ids.add(newChassis.id);
+         beforeById.put(newChassis.id, null);
+         afterById.put(newChassis.id, newChassis);
+      }
+   }
+}
@@ -3,21 +3,35 @@
 package com.vmware.sample.remote.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.vmware.sample.remote.exception.RemotePluginException;
-import com.vmware.sample.remote.gateway.SessionServiceImpl;
 import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChange;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
 import com.vmware.sample.remote.store.exception.ExistingChassisObjectException;
 import com.vmware.sample.remote.store.exception.ExistingHostRelationException;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Simplified in-memory data store for the Chassis objects, and related utilities.
@@ -31,38 +45,102 @@ import org.springframework.util.CollectionUtils;
  * <p>
  * Note that this class is thread-safe but doesn't deal with complex operations
  * or large data sets. It is not intended to be used as-is!
+ * <p>
+ * The chassis objects are kept in a concurrent map, so reads never block behind
+ * writers. Names are unique, compared case-sensitively, and are reserved in a
+ * secondary name index with an atomic putIfAbsent. Writes to a single chassis
+ * object are serialized by the map, so a name check and the write which
+ * depends on it are never interleaved with another write to the same object.
+ * The host relations are kept in a {@link ChassisHostRelationIndex}, and each
+ * chassis object's relatedHostsIds is an immutable copy of its relations.
+ * Bulk writes exclude all other writes, so their changes are never published
+ * by a concurrent write before all of them are applied, or rolled back.
+ * <p>
+ * Reads are served from an immutable snapshot of all chassis objects, which is
+ * swapped in atomically after every write, so a read never copies and always
+ * sees a single point in time. The snapshot keeps the chassis objects in
+ * {@link ChassisIndex}es, by id and sorted by each
+ * {@link ChassisPageQuery.SortField}, which serve the pages of chassis
+ * objects. The indexes are persistent trees, so a write builds the next
+ * snapshot by copying only the O(log n) nodes on the paths to the chassis
+ * objects it changed. The store keeps its own copy of each chassis object and
+ * never modifies it once stored, so the returned objects must not be modified
+ * by the callers either.
  */
 public class InMemoryChassisStore implements ChassisStore {
    private static final Log logger = LogFactory
-         .getLog(SessionServiceImpl.class);
+         .getLog(InMemoryChassisStore.class);
    // Default number of pre-defined chassis objects is 4.
    private static final int CHASSIS_INITIAL_COUNT = 4;
 
-   private static final String CHASSIS_ID = "chassis:%s";
+   // Number of the last changes which can be retrieved.
+   static final int CHANGE_LOG_CAPACITY = 1000;
+
+   private static final String CHASSIS_ID_PREFIX = "chassis:";
+   private static final String CHASSIS_ID = CHASSIS_ID_PREFIX + "%s";
    private static final String CHASSIS_NAME = "Chassis %s";
    private static final String CHASSIS_SERVER_TYPE = "Server_Type %s";
    private static final String CHASSIS_DIMENSIONS = "20in x 30in x 17in";
 
    // Internal index used to create unique ids.
-   private static int index = 0;
+   private final AtomicInteger index = new AtomicInteger();
 
    // Map of chassis objects used in the sample.
    // The key is a chassis object's id and the value is the chassis object.
-   private final Map<String, Chassis> store;
+   private final ConcurrentMap<String, Chassis> store = new ConcurrentHashMap<>();
+
+   // Index of the chassis names in use.
+   // The key is a chassis object's name and the value is the chassis object's id.
+   private final ConcurrentMap<String, String> nameIndex = new ConcurrentHashMap<>();
+
+   // Relations between the chassis objects and the hosts.
+   private final ChassisHostRelationIndex relations = new ChassisHostRelationIndex();
+
+   // The versions of the change log start again with every store instance,
+   // so they are only comparable within the same epoch.
+   private final String epoch = UUID.randomUUID().toString();
+
+   // The ids of the recently changed chassis objects.
+   private final ChassisChangeLog changeLog = new ChassisChangeLog(CHANGE_LOG_CAPACITY);
+
+   // Single writes hold the read lock, so they still run concurrently with
+   // each other, and bulk writes hold the write lock.
+   private final ReadWriteLock bulkWriteLock = new ReentrantReadWriteLock();
+
+   // The chassis objects as of their last published writes.
+   private volatile Snapshot snapshot = Snapshot.EMPTY;
+   private final Object publishLock = new Object();
 
    public InMemoryChassisStore() {
-      Map<String, Chassis> store = new HashMap<>(CHASSIS_INITIAL_COUNT);
-      this.store = Collections.synchronizedMap(store);
+      this(true);
+   }
 
-      // Create an initial set of chassis objects.
+   /**
+    * @param createInitialObjects whether to create the initial set of chassis
+    *                             objects.
+    */
+   InMemoryChassisStore(final boolean createInitialObjects) {
+      if (createInitialObjects) {
+         for (final Chassis newChassis : newInitialObjects()) {
+            create(newChassis);
+         }
+      }
+   }
+
+   /**
+    * Creates an initial set of chassis objects, which are not stored yet.
+    */
+   static List<Chassis> newInitialObjects() {
+      final List<Chassis> initialObjects = new ArrayList<>(CHASSIS_INITIAL_COUNT);
       for (int i = 0; i < CHASSIS_INITIAL_COUNT; i++) {
          final Chassis newChassis = new Chassis();
          newChassis.name = String.format(CHASSIS_NAME, i);
          newChassis.serverType = String.format(CHASSIS_SERVER_TYPE, i);
          newChassis.dimensions = CHASSIS_DIMENSIONS;
          newChassis.isActive = false;
-         create(newChassis);
+         initialObjects.add(newChassis);
       }
+      return initialObjects;
    }
 
    /**
@@ -74,7 +152,7 @@ public class InMemoryChassisStore implements ChassisStore {
     */
    @Override
    public List<Chassis> getObjects() {
-      return new ArrayList<>(store.values());
+      return snapshot.objects;
    }
 
    /**
@@ -87,7 +165,81 @@ public class InMemoryChassisStore implements ChassisStore {
    @Override
    public Chassis getObjectById(final String id) {
       Validate.notNull(id);
-      return store.get(id);
+      return snapshot.getObjectById(id);
+   }
+
+   /**
+    * Serves the page from the sorted index of the current snapshot. The start
+    * of the page is found by rank in the index, so retrieving a page does not
+    * depend on the number of chassis objects before it. A substring filter
+    * scans the index from there until the page is full.
+    */
+   @Override
+   public ChassisPage getPage(final ChassisPageQuery query) {
+      Validate.notNull(query);
+      final ChassisPageQuery.SortField sortBy = query.sortBy;
+      final ChassisIndex sortedObjects = snapshot.sortedObjects.get(sortBy);
+
+      int position = 0;
+      if (query.afterId != null) {
+         position = sortedObjects.countBefore(
+               sortPosition(sortBy, query.afterKey, query.afterId), true);
+      }
+      final boolean prefixFilter = query.filter != null &&
+            query.filterMode == ChassisPageQuery.FilterMode.PREFIX;
+      if (prefixFilter) {
+         // Matching keys are the ones sorted from the prefix on, as no id
+         // sorts before the empty one.
+         position = Math.max(position, sortedObjects.countBefore(
+               sortPosition(sortBy, query.filter, StringUtils.EMPTY), false));
+      }
+
+      final List<Chassis> items = new ArrayList<>(
+            Math.min(query.limit, sortedObjects.size() - position));
+      final Iterator<Chassis> iterator = sortedObjects.iterator(position);
+      while (iterator.hasNext()) {
+         final Chassis chassis = iterator.next();
+         if (!query.matches(sortBy.keyOf(chassis))) {
+            if (prefixFilter) {
+               break;
+            }
+            continue;
+         }
+         if (items.size() == query.limit) {
+            return new ChassisPage(items,
+                  query.cursorAfter(items.get(items.size() - 1)));
+         }
+         items.add(chassis);
+      }
+      return new ChassisPage(items, null);
+   }
+
+   /**
+    * The changed chassis objects are taken from a snapshot which is at least
+    * as recent as the returned version, so a change may be returned again with
+    * the changes of the following version.
+    */
+   @Override
+   public ChassisChanges getChangesSince(final String epoch, final long version) {
+      final long currentVersion = changeLog.getVersion();
+      if (!this.epoch.equals(epoch)) {
+         return ChassisChanges.resync(this.epoch, currentVersion);
+      }
+      final Set<String> changedChassisIds = changeLog.getChangedIds(version,
+            currentVersion);
+      if (changedChassisIds == null) {
+         return ChassisChanges.resync(this.epoch, currentVersion);
+      }
+
+      final Snapshot currentSnapshot = snapshot;
+      final List<ChassisChange> changes = new ArrayList<>(changedChassisIds.size());
+      for (final String chassisId : changedChassisIds) {
+         final Chassis chassis = currentSnapshot.getObjectById(chassisId);
+         changes.add((chassis == null) ?
+               ChassisChange.deleted(chassisId) :
+               ChassisChange.updated(chassis));
+      }
+      return new ChassisChanges(this.epoch, currentVersion, changes);
    }
 
    /**
@@ -99,16 +251,15 @@ public class InMemoryChassisStore implements ChassisStore {
     */
    @Override
    public Chassis create(final Chassis chassis) {
-      if (isNameDuplicate(chassis.name)) {
-         logger.error(String.format("Chassis with name %s already exists.",
-               chassis.name));
-         throw new ExistingChassisObjectException(
-               "The chassis with name '" + chassis.name + "' already exists");
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         final Chassis newChassis = createObject(chassis);
+         publish(Collections.singleton(newChassis.id));
+         return newChassis;
+      } finally {
+         lock.unlock();
       }
-      // Add the chassis object to the in-memory store.
-      chassis.id = generateId();
-      store.put(chassis.id, chassis);
-      return chassis;
    }
 
    /**
@@ -121,16 +272,17 @@ public class InMemoryChassisStore implements ChassisStore {
     */
    @Override
    public boolean update(final Chassis chassis) {
-      final boolean checkForDuplicateName = !chassis.name
-            .equals(Validate.notNull(getObjectById(chassis.id)).name);
-      if (checkForDuplicateName && isNameDuplicate(chassis.name)) {
-         logger.error(String.format("Chassis with name %s already exists.",
-               chassis.name));
-         throw new ExistingChassisObjectException(
-               "The chassis with name '" + chassis.name + "' already exists");
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         if (updateObject(chassis) == null) {
+            return false;
+         }
+         publish(Collections.singleton(chassis.id));
+         return true;
+      } finally {
+         lock.unlock();
       }
-      final Chassis updatedChassis = store.put(chassis.id, chassis);
-      return (updatedChassis != null);
    }
 
    /**
@@ -146,12 +298,437 @@ public class InMemoryChassisStore implements ChassisStore {
          return null;
       }
 
-      if (!CollectionUtils.isEmpty(store.get(id).relatedHostsIds)) {
-         throw new ExistingHostRelationException(
-               String.format("Chassis %s cannot be deleted because it has related hosts.", id));
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         final Chassis deletedChassis = deleteObject(id);
+         if (deletedChassis != null) {
+            publish(Collections.singleton(id));
+         }
+         return deletedChassis;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * The chassis objects are published to the readers only after all of them
+    * are created. If one fails, the ones created before it are removed again.
+    */
+   @Override
+   public List<Chassis> createAll(final List<Chassis> chassisList) {
+      Validate.notNull(chassisList);
+      final Lock lock = bulkWriteLock.writeLock();
+      lock.lock();
+      try {
+         final List<Chassis> newChassisList = new ArrayList<>(chassisList.size());
+         try {
+            for (final Chassis chassis : chassisList) {
+               newChassisList.add(createObject(chassis));
+            }
+         } catch (final RuntimeException e) {
+            for (final Chassis newChassis : newChassisList) {
+               removeObject(newChassis.id);
+            }
+            republish(idsOf(newChassisList));
+            throw e;
+         }
+         publish(idsOf(newChassisList));
+         return newChassisList;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * The changes are published to the readers only after all chassis objects
+    * are updated. If one fails, the ones updated before it are restored.
+    */
+   @Override
+   public List<Chassis> updateAll(final List<Chassis> chassisList) {
+      Validate.notNull(chassisList);
+      final Lock lock = bulkWriteLock.writeLock();
+      lock.lock();
+      try {
+         final List<Chassis> previousChassisList = new ArrayList<>(chassisList.size());
+         try {
+            for (final Chassis chassis : chassisList) {
+               final Chassis previousChassis = updateObject(chassis);
+               if (previousChassis != null) {
+                  previousChassisList.add(previousChassis);
+               }
+            }
+         } catch (final RuntimeException e) {
+            rollback(previousChassisList);
+            throw e;
+         }
+         final List<Chassis> updatedChassisList = new ArrayList<>(previousChassisList.size());
+         for (final Chassis previousChassis : previousChassisList) {
+            updatedChassisList.add(store.get(previousChassis.id));
+         }
+         publish(idsOf(updatedChassisList));
+         return updatedChassisList;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * The deletions are published to the readers only after all chassis
+    * objects are deleted. If one fails, the ones deleted before it are
+    * restored.
+    */
+   @Override
+   public List<Chassis> deleteAll(final List<String> ids) {
+      Validate.notNull(ids);
+      final Lock lock = bulkWriteLock.writeLock();
+      lock.lock();
+      try {
+         final List<Chassis> deletedChassisList = new ArrayList<>(ids.size());
+         try {
+            for (final String id : ids) {
+               final Chassis deletedChassis = (id == null) ? null : deleteObject(id);
+               if (deletedChassis != null) {
+                  deletedChassisList.add(deletedChassis);
+               }
+            }
+         } catch (final RuntimeException e) {
+            rollback(deletedChassisList);
+            throw e;
+         }
+         if (!deletedChassisList.isEmpty()) {
+            publish(idsOf(deletedChassisList));
+         }
+         return deletedChassisList;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public boolean setRelatedHosts(final String chassisId,
+         final List<String> hostIds) {
+      Validate.notNull(chassisId);
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         if (!relations.setHostIds(chassisId, hostIds)) {
+            return false;
+         }
+         refreshRelatedHosts(chassisId);
+         publish(Collections.singleton(chassisId));
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public boolean setRelatedChassis(final String hostId,
+         final List<String> chassisIds) {
+      Validate.notNull(hostId);
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         final Set<String> changedChassisIds = relations.setChassisIds(hostId,
+               chassisIds);
+         if (changedChassisIds.isEmpty()) {
+            return false;
+         }
+         for (final String chassisId : changedChassisIds) {
+            refreshRelatedHosts(chassisId);
+         }
+         publish(changedChassisIds);
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public List<Chassis> getRelatedChassis(final String hostId) {
+      Validate.notNull(hostId);
+      final List<String> chassisIds = relations.getChassisIds(hostId);
+      final Snapshot currentSnapshot = snapshot;
+      final List<Chassis> relatedChassis = new ArrayList<>(chassisIds.size());
+      for (final String chassisId : chassisIds) {
+         final Chassis chassis = currentSnapshot.getObjectById(chassisId);
+         if (chassis != null) {
+            relatedChassis.add(chassis);
+         }
+      }
+      return relatedChassis;
+   }
+
+   /**
+    * Puts a chassis object with a known id into the store, replacing the
+    * existing one with the same id. Used to recover persisted chassis objects,
+    * so the name is not checked for duplicates.
+    *
+    * @param chassis the chassis object, including its id and related hosts.
+    */
+   void restore(final Chassis chassis) {
+      Validate.notNull(chassis.id);
+      Validate.notNull(chassis.name);
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         restoreObject(chassis);
+         publish(Collections.singleton(chassis.id));
+      } finally {
+         lock.unlock();
+      }
+
+      // Never hand out the id of a restored chassis object again.
+      if (chassis.id.startsWith(CHASSIS_ID_PREFIX)) {
+         try {
+            advanceIndex(Integer.parseInt(
+                  chassis.id.substring(CHASSIS_ID_PREFIX.length())) + 1);
+         } catch (final NumberFormatException e) {
+            logger.warn("Restored chassis with an unexpected id " + chassis.id);
+         }
+      }
+   }
+
+   /**
+    * Removes a chassis object and its host relations. Used to recover
+    * persisted deletions, so the relations are not checked.
+    *
+    * @param id the id of the chassis object.
+    */
+   void remove(final String id) {
+      Validate.notNull(id);
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         if (store.containsKey(id)) {
+            removeObject(id);
+            publish(Collections.singleton(id));
+         }
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Puts back a chassis object as it was before a write which could not be
+    * persisted, unless it has changed since that write. Neither the relations
+    * nor the name are checked, except that a name which another chassis
+    * object has taken meanwhile is not taken back.
+    *
+    * @param id       the id of the chassis object.
+    * @param written  the chassis object as the write left it, or null if the
+    *                 write deleted it.
+    * @param previous the chassis object before the write, or null if the
+    *                 write created it.
+    * @return whether the chassis object was put back.
+    */
+   boolean revert(final String id, final Chassis written, final Chassis previous) {
+      Validate.notNull(id);
+      final Lock lock = bulkWriteLock.readLock();
+      lock.lock();
+      try {
+         if (store.get(id) != written) {
+            return false;
+         }
+         if (previous == null) {
+            removeObject(id);
+         } else {
+            final String nameOwnerId = nameIndex.get(previous.name);
+            if (nameOwnerId != null && !nameOwnerId.equals(id)) {
+               logger.warn(String.format("Could not revert chassis %s, its name %s " +
+                     "is used by chassis %s.", id, previous.name, nameOwnerId));
+               return false;
+            }
+            restoreObject(previous);
+         }
+         publish(Collections.singleton(id));
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * @return the index the next chassis object id is generated from.
+    */
+   int getNextIndex() {
+      return index.get();
+   }
+
+   /**
+    * Makes sure the next generated ids are not lower than the given index.
+    */
+   void advanceIndex(final int nextIndex) {
+      index.accumulateAndGet(nextIndex, Math::max);
+   }
+
+   private Chassis createObject(final Chassis chassis) {
+      Validate.notNull(chassis.name);
+      final String id = generateId();
+      reserveName(chassis.name, id);
+
+      // Add the chassis object to the in-memory store.
+      relations.addChassis(id);
+      relations.setHostIds(id, chassis.relatedHostsIds);
+      final Chassis newChassis = copyOf(chassis, id, relations.getHostIds(id));
+      store.put(id, newChassis);
+      return newChassis;
+   }
+
+   /**
+    * @return the chassis object before the update,
+    * or null if the chassis object does not exist.
+    */
+   private Chassis updateObject(final Chassis chassis) {
+      Validate.notNull(chassis.id);
+      Validate.notNull(chassis.name);
+      final Chassis[] previousChassis = new Chassis[1];
+      store.computeIfPresent(chassis.id, (id, existingChassis) -> {
+         if (!chassis.name.equals(existingChassis.name)) {
+            // Throwing leaves the existing chassis object in place.
+            reserveName(chassis.name, id);
+            nameIndex.remove(existingChassis.name, id);
+         }
+         relations.setHostIds(id, chassis.relatedHostsIds);
+         previousChassis[0] = existingChassis;
+         return copyOf(chassis, id, relations.getHostIds(id));
+      });
+      return previousChassis[0];
+   }
+
+   /**
+    * @return the deleted chassis object,
+    * or null if the chassis object does not exist.
+    */
+   private Chassis deleteObject(final String id) {
+      final Chassis[] deletedChassis = new Chassis[1];
+      store.computeIfPresent(id, (key, existingChassis) -> {
+         if (!relations.removeChassisIfUnrelated(id)) {
+            throw new ExistingHostRelationException(
+                  String.format("Chassis %s cannot be deleted because it has related hosts.", id));
+         }
+         nameIndex.remove(existingChassis.name, id);
+         deletedChassis[0] = existingChassis;
+         return null;
+      });
+      return deletedChassis[0];
+   }
+
+   /**
+    * Removes a chassis object along with its name and relations.
+    */
+   private void removeObject(final String id) {
+      relations.setHostIds(id, null);
+      relations.removeChassisIfUnrelated(id);
+      final Chassis removedChassis = store.remove(id);
+      if (removedChassis != null) {
+         nameIndex.remove(removedChassis.name, id);
+      }
+   }
+
+   private void restoreObject(final Chassis chassis) {
+      store.compute(chassis.id, (id, existingChassis) -> {
+         if (existingChassis != null) {
+            nameIndex.remove(existingChassis.name, id);
+         }
+         nameIndex.put(chassis.name, id);
+         relations.addChassis(id);
+         relations.setHostIds(id, chassis.relatedHostsIds);
+         return copyOf(chassis, id, relations.getHostIds(id));
+      });
+   }
+
+   /**
+    * Puts back the given chassis objects, as they were before a failed
+    * bulk operation. They are restored in reverse order, so a chassis object
+    * changed several times ends up as it was before the first change.
+    */
+   private void rollback(final List<Chassis> previousChassisList) {
+      for (int i = previousChassisList.size() - 1; i >= 0; i--) {
+         restoreObject(previousChassisList.get(i));
       }
+      republish(idsOf(previousChassisList));
+   }
 
-      return store.remove(id);
+   /**
+    * Copies the current relations of a chassis object to its relatedHostsIds.
+    */
+   private void refreshRelatedHosts(final String chassisId) {
+      store.computeIfPresent(chassisId, (id, chassis) ->
+            copyOf(chassis, id, relations.getHostIds(id)));
+   }
+
+   /**
+    * Swaps in a snapshot with the current state of the given chassis objects,
+    * and then records their changes.
+    * <p>
+    * A change is recorded only once it is visible in the snapshot, so the
+    * snapshot always reflects all changes up to the version of the log.
+    * </p>
+    */
+   private void publish(final Collection<String> changedChassisIds) {
+      republish(changedChassisIds);
+      changeLog.append(changedChassisIds);
+   }
+
+   /**
+    * Swaps in a snapshot with the current state of the given chassis objects,
+    * without recording any change. Also used after a failed bulk write, so
+    * that the snapshot reflects the rolled back chassis objects.
+    * <p>
+    * Concurrent writes of the same chassis object may publish in any order,
+    * since each publishes the state which is current at that point.
+    * </p>
+    */
+   private void republish(final Collection<String> chassisIds) {
+      synchronized (publishLock) {
+         Snapshot nextSnapshot = snapshot;
+         for (final String chassisId : chassisIds) {
+            nextSnapshot = nextSnapshot.with(chassisId, store.get(chassisId));
+         }
+         snapshot = nextSnapshot;
+      }
+   }
+
+   private static List<String> idsOf(final List<Chassis> chassisList) {
+      final List<String> ids = new ArrayList<>(chassisList.size());
+      for (final Chassis chassis : chassisList) {
+         ids.add(chassis.id);
+      }
+      return ids;
+   }
+
+   /**
+    * @return a chassis object which is sorted at the given sort key and id,
+    * to look up a position in the sorted index of the given sort field.
+    */
+   private static Chassis sortPosition(final ChassisPageQuery.SortField sortBy,
+         final String key, final String id) {
+      final Chassis position = new Chassis();
+      position.id = id;
+      if (sortBy == ChassisPageQuery.SortField.NAME) {
+         position.name = key;
+      } else {
+         position.serverType = key;
+      }
+      return position;
+   }
+
+   /**
+    * Copies a chassis object, so that the stored object is not shared with
+    * the caller.
+    */
+   private static Chassis copyOf(final Chassis chassis, final String id,
+         final List<String> relatedHostsIds) {
+      final Chassis copy = new Chassis();
+      copy.id = id;
+      copy.name = chassis.name;
+      copy.dimensions = chassis.dimensions;
+      copy.serverType = chassis.serverType;
+      copy.isActive = chassis.isActive;
+      copy.relatedHostsIds = relatedHostsIds;
+      return copy;
    }
 
    /**
@@ -159,24 +736,89 @@ public class InMemoryChassisStore implements ChassisStore {
     *
     * @return a chassis object id.
     */
-   private static String generateId() {
-      return String.format(CHASSIS_ID, index++);
+   private String generateId() {
+      return String.format(CHASSIS_ID, index.getAndIncrement());
    }
 
    /**
-    * Validates if the given chassis name is already in use.
+    * Reserves the given chassis name for the chassis object with the given id.
     *
     * @param name the name of a chassis object.
-    * @return true if the given chassis name is duplicate, or false otherwise.
+    * @param id   the id of the chassis object.
+    * @throws ExistingChassisObjectException if the name is already in use.
+    */
+   private void reserveName(final String name, final String id) {
+      if (nameIndex.putIfAbsent(name, id) != null) {
+         logger.error(String.format("Chassis with name %s already exists.",
+               name));
+         throw new ExistingChassisObjectException(
+               "The chassis with name '" + name + "' already exists");
+      }
+   }
+
+   /**
+    * An immutable view of all chassis objects, as of the writes published so
+    * far.
     */
-   private boolean isNameDuplicate(final String name) {
-      synchronized (store) {
-         for (final Chassis chassis : store.values()) {
-            if (name.equals(chassis.name)) {
-               return true;
+   private static final class Snapshot {
+      private static final Comparator<Chassis> ID_ORDER =
+            Comparator.comparing(chassis -> chassis.id);
+
+      static final Snapshot EMPTY = new Snapshot();
+
+      final ChassisIndex objectsById;
+      // The same chassis objects, as a list which never changes.
+      final List<Chassis> objects;
+      // The chassis objects sorted by each of the sort fields.
+      final Map<ChassisPageQuery.SortField, ChassisIndex> sortedObjects;
+
+      private Snapshot() {
+         this.objectsById = ChassisIndex.empty(ID_ORDER);
+         this.objects = objectsById.asList();
+         this.sortedObjects = new EnumMap<>(ChassisPageQuery.SortField.class);
+         for (final ChassisPageQuery.SortField sortBy : ChassisPageQuery.SortField.values()) {
+            sortedObjects.put(sortBy, ChassisIndex.empty(sortBy.comparator()));
+         }
+      }
+
+      private Snapshot(final ChassisIndex objectsById,
+            final Map<ChassisPageQuery.SortField, ChassisIndex> sortedObjects) {
+         this.objectsById = objectsById;
+         this.objects = objectsById.asList();
+         this.sortedObjects = sortedObjects;
+      }
+
+      Chassis getObjectById(final String id) {
+         final Chassis position = new Chassis();
+         position.id = id;
+         return objectsById.get(position);
+      }
+
+      /**
+       * @return a snapshot with the given state of a chassis object, or
+       * without the chassis object if the state is null.
+       */
+      Snapshot with(final String id, final Chassis chassis) {
+         final Chassis previousChassis = getObjectById(id);
+         if (previousChassis == chassis) {
+            return this;
+         }
+         final Map<ChassisPageQuery.SortField, ChassisIndex> nextSortedObjects =
+               new EnumMap<>(ChassisPageQuery.SortField.class);
+         for (final Map.Entry<ChassisPageQuery.SortField, ChassisIndex> index :
+               sortedObjects.entrySet()) {
+            ChassisIndex nextIndex = index.getValue();
+            if (previousChassis != null) {
+               nextIndex = nextIndex.without(previousChassis);
+            }
+            if (chassis != null) {
+               nextIndex = nextIndex.with(chassis);
             }
+            nextSortedObjects.put(index.getKey(), nextIndex);
          }
-         return false;
+         return new Snapshot((chassis == null) ?
+               objectsById.without(previousChassis) : objectsById.with(chassis),
+               nextSortedObjects);
       }
    }
 }
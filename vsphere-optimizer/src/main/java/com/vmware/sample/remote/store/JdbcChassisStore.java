@@ -0,0 +1,630 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChange;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
+import com.vmware.sample.remote.store.exception.ExistingChassisObjectException;
+import com.vmware.sample.remote.store.exception.ExistingHostRelationException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Chassis store backed by a SQL database, so the plugin server keeps no
+ * chassis state of its own and several replicas can share the chassis objects.
+ * <p>
+ * Connections are pooled with HikariCP. By default an embedded H2 database is
+ * used, which runs in-process and lets the other processes on the same machine
+ * connect to it. Any database reachable through chassis.store.jdbc.url, e.g.
+ * a shared H2 server, can be used instead.
+ * </p>
+ * Names are unique through a unique constraint and the host relations are kept
+ * in a separate table, indexed in both directions. Relation changes are written
+ * with JDBC batches within a single transaction.
+ * <p>
+ * Selected with the {@code jdbc-store} Spring profile.
+ * </p>
+ */
+public class JdbcChassisStore implements ChassisStore {
+   private static final Log logger = LogFactory.getLog(JdbcChassisStore.class);
+
+   private static final String SCHEMA_SCRIPT = "store/chassis-schema.sql";
+   private static final String H2_URL_PREFIX = "jdbc:h2:";
+   // Number of parsed statements H2 keeps per connection.
+   private static final String H2_QUERY_CACHE_SIZE = "64";
+   private static final String CHASSIS_ID = "chassis:%s";
+
+   private static final String SELECT_NEXT_ID =
+         "SELECT NEXT VALUE FOR chassis_id_seq";
+   private static final String COUNT_CHASSIS = "SELECT COUNT(*) FROM chassis";
+   private static final String SELECT_CHASSIS =
+         "SELECT id, name, dimensions, server_type, is_active FROM chassis";
+   private static final String SELECT_CHASSIS_BY_ID =
+         SELECT_CHASSIS + " WHERE id = ?";
+   private static final String SELECT_CHASSIS_BY_IDS =
+         SELECT_CHASSIS + " WHERE id IN (:ids)";
+   // Selects a page sorted by the %1$s column and then by id. The filter and
+   // the cursor conditions are %2$s.
+   private static final String SELECT_PAGE =
+         SELECT_CHASSIS + " WHERE %2$s ORDER BY %1$s, id LIMIT :limit";
+   private static final String PAGE_FILTER = "%s LIKE :pattern ESCAPE '\\'";
+   private static final String PAGE_CURSOR =
+         "(%1$s > :afterKey OR (%1$s = :afterKey AND id > :afterId))";
+   private static final String LIKE_ESCAPE = "\\";
+   private static final String LOCK_VERSION =
+         "SELECT version FROM chassis_version WHERE id = 0 FOR UPDATE";
+   private static final String SELECT_VERSION =
+         "SELECT version FROM chassis_version WHERE id = 0";
+   private static final String SELECT_EPOCH =
+         "SELECT epoch FROM chassis_version WHERE id = 0";
+   private static final String UPDATE_VERSION =
+         "UPDATE chassis_version SET version = ? WHERE id = 0";
+   private static final String INSERT_CHANGE =
+         "INSERT INTO chassis_change (version, chassis_id) VALUES (?, ?)";
+   private static final String DELETE_CHANGES_UNTIL =
+         "DELETE FROM chassis_change WHERE version <= ?";
+   private static final String SELECT_OLDEST_CHANGE =
+         "SELECT MIN(version) FROM chassis_change";
+   private static final String SELECT_CHANGED_IDS =
+         "SELECT DISTINCT chassis_id FROM chassis_change " +
+               "WHERE version > ? AND version <= ?";
+   private static final String SELECT_CHASSIS_IDS_BY_HOST =
+         "SELECT chassis_id FROM chassis_host WHERE host_id = ?";
+   private static final String SELECT_RELATIONS =
+         "SELECT chassis_id, host_id FROM chassis_host ORDER BY chassis_id, position";
+   private static final String SELECT_RELATIONS_BY_CHASSIS =
+         "SELECT chassis_id, host_id FROM chassis_host WHERE chassis_id IN (:ids) " +
+               "ORDER BY chassis_id, position";
+   private static final String SELECT_EXISTING_IDS =
+         "SELECT id FROM chassis WHERE id IN (:ids)";
+   private static final String LOCK_CHASSIS =
+         "SELECT id FROM chassis WHERE id = ? FOR UPDATE";
+   private static final String INSERT_CHASSIS =
+         "INSERT INTO chassis (id, name, dimensions, server_type, is_active) " +
+               "VALUES (?, ?, ?, ?, ?)";
+   private static final String UPDATE_CHASSIS =
+         "UPDATE chassis SET name = ?, dimensions = ?, server_type = ?, " +
+               "is_active = ? WHERE id = ?";
+   private static final String DELETE_CHASSIS = "DELETE FROM chassis WHERE id = ?";
+   private static final String COUNT_RELATIONS_BY_CHASSIS =
+         "SELECT COUNT(*) FROM chassis_host WHERE chassis_id = ?";
+   private static final String INSERT_RELATION =
+         "INSERT INTO chassis_host (chassis_id, host_id, position) VALUES (?, ?, ?)";
+   private static final String APPEND_RELATION =
+         "INSERT INTO chassis_host (chassis_id, host_id, position) " +
+               "SELECT ?, ?, COALESCE(MAX(position) + 1, 0) FROM chassis_host " +
+               "WHERE chassis_id = ?";
+   private static final String DELETE_RELATION =
+         "DELETE FROM chassis_host WHERE chassis_id = ? AND host_id = ?";
+   private static final String DELETE_RELATIONS_BY_CHASSIS =
+         "DELETE FROM chassis_host WHERE chassis_id = ?";
+
+   private static final RowMapper<Chassis> CHASSIS_ROW_MAPPER = (rs, rowNum) -> {
+      final Chassis chassis = new Chassis();
+      chassis.id = rs.getString("id");
+      chassis.name = rs.getString("name");
+      chassis.dimensions = rs.getString("dimensions");
+      chassis.serverType = rs.getString("server_type");
+      chassis.isActive = rs.getBoolean("is_active");
+      return chassis;
+   };
+
+   private final HikariDataSource dataSource;
+   private final JdbcTemplate jdbcTemplate;
+   private final NamedParameterJdbcTemplate namedJdbcTemplate;
+   private final TransactionTemplate transactionTemplate;
+
+   // The epoch of the versions in the database, set once it is opened.
+   private volatile String epoch;
+
+   public JdbcChassisStore(final Configuration configuration) {
+      final HikariConfig hikariConfig = new HikariConfig();
+      hikariConfig.setPoolName("chassis-store");
+      hikariConfig.setJdbcUrl(configuration.getChassisStoreJdbcUrl());
+      hikariConfig.setUsername(configuration.getChassisStoreJdbcUsername());
+      hikariConfig.setPassword(configuration.getChassisStoreJdbcPassword());
+      hikariConfig.setMaximumPoolSize(configuration.getChassisStoreJdbcMaxPoolSize());
+      if (configuration.getChassisStoreJdbcUrl().startsWith(H2_URL_PREFIX)) {
+         // Reuse the parsed prepared statements of a pooled connection.
+         hikariConfig.addDataSourceProperty("QUERY_CACHE_SIZE", H2_QUERY_CACHE_SIZE);
+      }
+
+      this.dataSource = new HikariDataSource(hikariConfig);
+      this.jdbcTemplate = new JdbcTemplate(dataSource);
+      this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+      this.transactionTemplate = new TransactionTemplate(
+            new DataSourceTransactionManager(dataSource));
+   }
+
+   /**
+    * Creates the schema if needed. On first start the initial set of chassis
+    * objects is created as well.
+    */
+   public void open() {
+      new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT))
+            .execute(dataSource);
+      epoch = jdbcTemplate.queryForObject(SELECT_EPOCH, String.class);
+
+      if (jdbcTemplate.queryForObject(COUNT_CHASSIS, Integer.class) == 0) {
+         for (final Chassis newChassis : InMemoryChassisStore.newInitialObjects()) {
+            try {
+               create(newChassis);
+            } catch (final ExistingChassisObjectException e) {
+               // Created by another replica in the meantime.
+               logger.info("Initial chassis " + newChassis.name + " already exists.");
+            }
+         }
+      }
+   }
+
+   /**
+    * Closes the pooled connections.
+    */
+   public void close() {
+      dataSource.close();
+   }
+
+   @Override
+   public List<Chassis> getObjects() {
+      final List<Chassis> chassisList = jdbcTemplate.query(
+            SELECT_CHASSIS + " ORDER BY id", CHASSIS_ROW_MAPPER);
+      final Map<String, List<String>> relations = jdbcTemplate.query(
+            SELECT_RELATIONS, this::groupHostsByChassis);
+      return setRelatedHostsIds(chassisList, relations);
+   }
+
+   @Override
+   public Chassis getObjectById(final String id) {
+      Validate.notNull(id);
+      final List<Chassis> chassisList = jdbcTemplate.query(SELECT_CHASSIS_BY_ID,
+            CHASSIS_ROW_MAPPER, id);
+      if (chassisList.isEmpty()) {
+         return null;
+      }
+      return setRelatedHostsIds(chassisList, getHostsByChassis(
+            Collections.singleton(id))).get(0);
+   }
+
+   /**
+    * The page is read with a range scan of the index of its sort column, which
+    * starts right after the cursor.
+    */
+   @Override
+   public ChassisPage getPage(final ChassisPageQuery query) {
+      Validate.notNull(query);
+      final String sortColumn = (query.sortBy == ChassisPageQuery.SortField.NAME) ?
+            "name" : "server_type_key";
+      final List<String> conditions = new ArrayList<>(2);
+      final MapSqlParameterSource parameters = new MapSqlParameterSource();
+      if (query.filter != null) {
+         conditions.add(String.format(PAGE_FILTER, sortColumn));
+         final String escapedFilter = query.filter
+               .replace(LIKE_ESCAPE, LIKE_ESCAPE + LIKE_ESCAPE)
+               .replace("%", LIKE_ESCAPE + "%")
+               .replace("_", LIKE_ESCAPE + "_");
+         parameters.addValue("pattern",
+               (query.filterMode == ChassisPageQuery.FilterMode.PREFIX) ?
+                     escapedFilter + "%" :
+                     "%" + escapedFilter + "%");
+      }
+      if (query.afterId != null) {
+         conditions.add(String.format(PAGE_CURSOR, sortColumn));
+         parameters.addValue("afterKey", query.afterKey);
+         parameters.addValue("afterId", query.afterId);
+      }
+      // Read one more chassis object to find out if there is a next page.
+      parameters.addValue("limit", query.limit + 1);
+
+      final List<Chassis> items = namedJdbcTemplate.query(
+            String.format(SELECT_PAGE, sortColumn,
+                  conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions)),
+            parameters, CHASSIS_ROW_MAPPER);
+      if (items.isEmpty()) {
+         return new ChassisPage(items, null);
+      }
+
+      String nextCursor = null;
+      if (items.size() > query.limit) {
+         items.remove(query.limit);
+         nextCursor = query.cursorAfter(items.get(query.limit - 1));
+      }
+      final Set<String> ids = new HashSet<>(items.size());
+      for (final Chassis chassis : items) {
+         ids.add(chassis.id);
+      }
+      return new ChassisPage(setRelatedHostsIds(items, getHostsByChassis(ids)),
+            nextCursor);
+   }
+
+   /**
+    * The changes are read from the chassis_change table, which keeps the last
+    * changes made through any of the plugin server replicas.
+    */
+   @Override
+   public ChassisChanges getChangesSince(final String epoch, final long version) {
+      return transactionTemplate.execute(status -> {
+         final long currentVersion = jdbcTemplate.queryForObject(SELECT_VERSION,
+               Long.class);
+         if (!this.epoch.equals(epoch) || version < 0 || version > currentVersion) {
+            return ChassisChanges.resync(this.epoch, currentVersion);
+         }
+         final Long oldestVersion = jdbcTemplate.queryForObject(
+               SELECT_OLDEST_CHANGE, Long.class);
+         if (version < currentVersion &&
+               (oldestVersion == null || version < oldestVersion - 1)) {
+            return ChassisChanges.resync(this.epoch, currentVersion);
+         }
+
+         final List<String> changedChassisIds = jdbcTemplate.queryForList(
+               SELECT_CHANGED_IDS, String.class, version, currentVersion);
+         final List<ChassisChange> changes = new ArrayList<>(changedChassisIds.size());
+         if (changedChassisIds.isEmpty()) {
+            return new ChassisChanges(this.epoch, currentVersion, changes);
+         }
+         final List<Chassis> chassisList = namedJdbcTemplate.query(
+               SELECT_CHASSIS_BY_IDS,
+               new MapSqlParameterSource("ids", changedChassisIds),
+               CHASSIS_ROW_MAPPER);
+         setRelatedHostsIds(chassisList, getHostsByChassis(changedChassisIds));
+         final Set<String> deletedChassisIds = new LinkedHashSet<>(changedChassisIds);
+         for (final Chassis chassis : chassisList) {
+            deletedChassisIds.remove(chassis.id);
+            changes.add(ChassisChange.updated(chassis));
+         }
+         for (final String chassisId : deletedChassisIds) {
+            changes.add(ChassisChange.deleted(chassisId));
+         }
+         return new ChassisChanges(this.epoch, currentVersion, changes);
+      });
+   }
+
+   @Override
+   public Chassis create(final Chassis chassis) {
+      Validate.notNull(chassis.name);
+      try {
+         return transactionTemplate.execute(status -> {
+            final String id = String.format(CHASSIS_ID,
+                  jdbcTemplate.queryForObject(SELECT_NEXT_ID, Long.class));
+            jdbcTemplate.update(INSERT_CHASSIS, id, chassis.name,
+                  chassis.dimensions, chassis.serverType, chassis.isActive);
+            chassis.id = id;
+            chassis.relatedHostsIds = insertRelations(id, chassis.relatedHostsIds);
+            recordChanges(Collections.singleton(id));
+            return chassis;
+         });
+      } catch (final DuplicateKeyException e) {
+         throw duplicateName(chassis.name, e);
+      }
+   }
+
+   @Override
+   public boolean update(final Chassis chassis) {
+      Validate.notNull(chassis.id);
+      Validate.notNull(chassis.name);
+      try {
+         return transactionTemplate.execute(status -> {
+            final int updatedRows = jdbcTemplate.update(UPDATE_CHASSIS,
+                  chassis.name, chassis.dimensions, chassis.serverType,
+                  chassis.isActive, chassis.id);
+            if (updatedRows == 0) {
+               return false;
+            }
+            jdbcTemplate.update(DELETE_RELATIONS_BY_CHASSIS, chassis.id);
+            chassis.relatedHostsIds = insertRelations(chassis.id,
+                  chassis.relatedHostsIds);
+            recordChanges(Collections.singleton(chassis.id));
+            return true;
+         });
+      } catch (final DuplicateKeyException e) {
+         throw duplicateName(chassis.name, e);
+      }
+   }
+
+   @Override
+   public Chassis delete(final String id) {
+      if (id == null) {
+         return null;
+      }
+
+      try {
+         return transactionTemplate.execute(status -> {
+            final Chassis chassis = getObjectById(id);
+            if (chassis == null) {
+               return null;
+            }
+            if (jdbcTemplate.queryForObject(COUNT_RELATIONS_BY_CHASSIS,
+                  Integer.class, id) > 0) {
+               throw relatedHostsExist(id, null);
+            }
+            jdbcTemplate.update(DELETE_CHASSIS, id);
+            recordChanges(Collections.singleton(id));
+            return chassis;
+         });
+      } catch (final DataIntegrityViolationException e) {
+         // A host was related concurrently.
+         throw relatedHostsExist(id, e);
+      }
+   }
+
+   /**
+    * All chassis objects are created in one transaction, which is rolled back
+    * when any of them fails.
+    */
+   @Override
+   public List<Chassis> createAll(final List<Chassis> chassisList) {
+      Validate.notNull(chassisList);
+      return transactionTemplate.execute(status -> {
+         final List<Chassis> newChassisList = new ArrayList<>(chassisList.size());
+         for (final Chassis chassis : chassisList) {
+            newChassisList.add(create(chassis));
+         }
+         return newChassisList;
+      });
+   }
+
+   @Override
+   public List<Chassis> updateAll(final List<Chassis> chassisList) {
+      Validate.notNull(chassisList);
+      return transactionTemplate.execute(status -> {
+         final List<Chassis> updatedChassisList = new ArrayList<>(chassisList.size());
+         for (final Chassis chassis : chassisList) {
+            if (update(chassis)) {
+               updatedChassisList.add(chassis);
+            }
+         }
+         return updatedChassisList;
+      });
+   }
+
+   @Override
+   public List<Chassis> deleteAll(final List<String> ids) {
+      Validate.notNull(ids);
+      return transactionTemplate.execute(status -> {
+         final List<Chassis> deletedChassisList = new ArrayList<>(ids.size());
+         for (final String id : ids) {
+            final Chassis deletedChassis = delete(id);
+            if (deletedChassis != null) {
+               deletedChassisList.add(deletedChassis);
+            }
+         }
+         return deletedChassisList;
+      });
+   }
+
+   @Override
+   public boolean setRelatedHosts(final String chassisId,
+         final List<String> hostIds) {
+      Validate.notNull(chassisId);
+      return transactionTemplate.execute(status -> {
+         // Serialize the relation changes of the chassis object.
+         if (jdbcTemplate.queryForList(LOCK_CHASSIS, String.class, chassisId)
+               .isEmpty()) {
+            return false;
+         }
+         final List<String> currentHostIds = getHostsByChassis(
+               Collections.singleton(chassisId))
+               .getOrDefault(chassisId, Collections.emptyList());
+         final Set<String> updatedHostIds = (hostIds == null) ?
+               Collections.emptySet() :
+               new LinkedHashSet<>(hostIds);
+         if (new HashSet<>(currentHostIds).equals(updatedHostIds)) {
+            return false;
+         }
+
+         jdbcTemplate.update(DELETE_RELATIONS_BY_CHASSIS, chassisId);
+         insertRelations(chassisId, new ArrayList<>(updatedHostIds));
+         recordChanges(Collections.singleton(chassisId));
+         return true;
+      });
+   }
+
+   @Override
+   public boolean setRelatedChassis(final String hostId,
+         final List<String> chassisIds) {
+      Validate.notNull(hostId);
+      return transactionTemplate.execute(status -> {
+         final Set<String> currentChassisIds = new HashSet<>(jdbcTemplate
+               .queryForList(SELECT_CHASSIS_IDS_BY_HOST, String.class, hostId));
+         final Set<String> updatedChassisIds = (chassisIds == null || chassisIds.isEmpty()) ?
+               Collections.emptySet() :
+               new HashSet<>(namedJdbcTemplate.queryForList(SELECT_EXISTING_IDS,
+                     new MapSqlParameterSource("ids", new HashSet<>(chassisIds)),
+                     String.class));
+
+         final List<String> removedChassisIds = new ArrayList<>();
+         for (final String chassisId : currentChassisIds) {
+            if (!updatedChassisIds.contains(chassisId)) {
+               removedChassisIds.add(chassisId);
+            }
+         }
+         final List<String> addedChassisIds = new ArrayList<>();
+         for (final String chassisId : updatedChassisIds) {
+            if (!currentChassisIds.contains(chassisId)) {
+               addedChassisIds.add(chassisId);
+            }
+         }
+         if (removedChassisIds.isEmpty() && addedChassisIds.isEmpty()) {
+            return false;
+         }
+
+         jdbcTemplate.batchUpdate(DELETE_RELATION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(final PreparedStatement ps, final int i)
+                  throws SQLException {
+               ps.setString(1, removedChassisIds.get(i));
+               ps.setString(2, hostId);
+            }
+
+            @Override
+            public int getBatchSize() {
+               return removedChassisIds.size();
+            }
+         });
+         jdbcTemplate.batchUpdate(APPEND_RELATION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(final PreparedStatement ps, final int i)
+                  throws SQLException {
+               ps.setString(1, addedChassisIds.get(i));
+               ps.setString(2, hostId);
+               ps.setString(3, addedChassisIds.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+               return addedChassisIds.size();
+            }
+         });
+         final List<String> changedChassisIds = new ArrayList<>(removedChassisIds);
+         changedChassisIds.addAll(addedChassisIds);
+         recordChanges(changedChassisIds);
+         return true;
+      });
+   }
+
+   @Override
+   public List<Chassis> getRelatedChassis(final String hostId) {
+      Validate.notNull(hostId);
+      final List<String> chassisIds = jdbcTemplate.queryForList(
+            SELECT_CHASSIS_IDS_BY_HOST, String.class, hostId);
+      if (chassisIds.isEmpty()) {
+         return Collections.emptyList();
+      }
+      final List<Chassis> chassisList = namedJdbcTemplate.query(
+            SELECT_CHASSIS_BY_IDS, new MapSqlParameterSource("ids", chassisIds),
+            CHASSIS_ROW_MAPPER);
+      return setRelatedHostsIds(chassisList, getHostsByChassis(chassisIds));
+   }
+
+   /**
+    * Inserts the relations of a chassis object with a single batch.
+    *
+    * @return the ids of the related hosts, as an immutable list.
+    */
+   private List<String> insertRelations(final String chassisId,
+         final List<String> hostIds) {
+      if (hostIds == null || hostIds.isEmpty()) {
+         return Collections.emptyList();
+      }
+      final List<String> uniqueHostIds = new ArrayList<>(new LinkedHashSet<>(hostIds));
+      jdbcTemplate.batchUpdate(INSERT_RELATION, new BatchPreparedStatementSetter() {
+         @Override
+         public void setValues(final PreparedStatement ps, final int i)
+               throws SQLException {
+            ps.setString(1, chassisId);
+            ps.setString(2, uniqueHostIds.get(i));
+            ps.setInt(3, i);
+         }
+
+         @Override
+         public int getBatchSize() {
+            return uniqueHostIds.size();
+         }
+      });
+      return Collections.unmodifiableList(uniqueHostIds);
+   }
+
+   /**
+    * Records the changes of the given chassis objects within the current
+    * transaction, and drops the changes which no longer fit in the log.
+    */
+   private void recordChanges(final Collection<String> changedChassisIds) {
+      if (changedChassisIds.isEmpty()) {
+         return;
+      }
+      final long previousVersion = jdbcTemplate.queryForObject(LOCK_VERSION,
+            Long.class);
+      final List<String> chassisIds = new ArrayList<>(changedChassisIds);
+      final long currentVersion = previousVersion + chassisIds.size();
+      jdbcTemplate.update(UPDATE_VERSION, currentVersion);
+      jdbcTemplate.batchUpdate(INSERT_CHANGE, new BatchPreparedStatementSetter() {
+         @Override
+         public void setValues(final PreparedStatement ps, final int i)
+               throws SQLException {
+            ps.setLong(1, previousVersion + i + 1);
+            ps.setString(2, chassisIds.get(i));
+         }
+
+         @Override
+         public int getBatchSize() {
+            return chassisIds.size();
+         }
+      });
+      jdbcTemplate.update(DELETE_CHANGES_UNTIL,
+            currentVersion - InMemoryChassisStore.CHANGE_LOG_CAPACITY);
+   }
+
+   private Map<String, List<String>> getHostsByChassis(
+         final Collection<String> chassisIds) {
+      return namedJdbcTemplate.query(SELECT_RELATIONS_BY_CHASSIS,
+            new MapSqlParameterSource("ids", chassisIds), this::groupHostsByChassis);
+   }
+
+   private Map<String, List<String>> groupHostsByChassis(final ResultSet rs)
+         throws SQLException {
+      final Map<String, List<String>> hostsByChassis = new HashMap<>();
+      while (rs.next()) {
+         hostsByChassis.computeIfAbsent(rs.getString("chassis_id"),
+               key -> new ArrayList<>()).add(rs.getString("host_id"));
+      }
+      return hostsByChassis;
+   }
+
+   private static List<Chassis> setRelatedHostsIds(final List<Chassis> chassisList,
+         final Map<String, List<String>> hostsByChassis) {
+      for (final Chassis chassis : chassisList) {
+         final List<String> hostIds = hostsByChassis.get(chassis.id);
+         chassis.relatedHostsIds = (hostIds == null) ?
+               Collections.emptyList() :
+               Collections.unmodifiableList(hostIds);
+      }
+      return chassisList;
+   }
+
+   private static ExistingChassisObjectException duplicateName(final String name,
+         final Exception cause) {
+      logger.error(String.format("Chassis with name %s already exists.", name),
+            cause);
+      return new ExistingChassisObjectException(
+            "The chassis with name '" + name + "' already exists");
+   }
+
+   private static ExistingHostRelationException relatedHostsExist(final String id,
+         final Exception cause) {
+      if (cause != null) {
+         logger.warn("Chassis " + id + " was related to a host concurrently.", cause);
+      }
+      return new ExistingHostRelationException(String.format(
+            "Chassis %s cannot be deleted because it has related hosts.", id));
+   }
+}
@@ -0,0 +1,15 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.store.exception;
+
+/**
+ * Exception representing a failure to persist or recover the chassis objects.
+ */
+public class ChassisStoreException extends RuntimeException {
+   public ChassisStoreException(final String message) {
+      super(message);
+   }
+
+   public ChassisStoreException(final String message, final Throwable cause) {
+      super(message, cause);
+   }
+}
@@ -13,24 +13,19 @@ import com.vmware.sample.remote.gateway.VimSessionInfo;
 import com.vmware.vim25.EntityPrivilege;
 import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.PrivilegeAvailability;
-import com.vmware.vim25.ServiceContent;
 import com.vmware.vim25.VimPortType;
 
 /**
  * Responsible for checking user privileges using vCenter Server's AuthorizationManager
  */
 public class AuthorizationService {
-   private static final String PROP_SERVICE_INSTANCE = "ServiceInstance";
    private static final Log logger = LogFactory.getLog(
          AuthorizationService.class);
 
    private final SessionService sessionService;
-   private final ManagedObjectReference serviceInstanceRef = new ManagedObjectReference();
 
    public AuthorizationService(final SessionService sessionService) {
       this.sessionService = sessionService;
-      serviceInstanceRef.setType(PROP_SERVICE_INSTANCE);
-      serviceInstanceRef.setValue(PROP_SERVICE_INSTANCE);
    }
 
    public boolean hasPrivilege(final List<String> objectIds, final String privilegeId) {
@@ -51,11 +46,11 @@ public class AuthorizationService {
       }
 
       try {
-         final ServiceContent serviceContent = vimPort.retrieveServiceContent(serviceInstanceRef);
-         final ManagedObjectReference authorizationManagerMor = serviceContent.getAuthorizationManager();
+         final ManagedObjectReference authorizationManagerMor =
+               vimSessionInfo.getAuthorizationManager();
          final List<EntityPrivilege> entityPrivileges =
                vimPort.hasPrivilegeOnEntities(authorizationManagerMor, objectReferences,
-                     sessionService.getVimSessionInfo().getUserSession().getKey(), Arrays.asList(privilegeId));
+                     vimSessionInfo.getUserSession().getKey(), Arrays.asList(privilegeId));
          for (final EntityPrivilege entityPrivilege : entityPrivileges) {
             for (final PrivilegeAvailability privilegeAvailability : entityPrivilege.getPrivAvailability()) {
                if (!privilegeAvailability.isIsGranted()) {
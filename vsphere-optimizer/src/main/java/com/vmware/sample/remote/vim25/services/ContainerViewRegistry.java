@@ -0,0 +1,111 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.services;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.VimPortType;
+
+/**
+ * Keeps the ContainerViews created for a single vCenter Server session, so they
+ * are reused across requests instead of being created on every retrieval.
+ * <p>
+ * Views are keyed by the object type and the container they are rooted at.
+ * All views are destroyed with {@link #destroyAll()} when the session is
+ * evicted, otherwise they would stay alive in the vCenter Server until the
+ * session is logged out.
+ * </p>
+ */
+public class ContainerViewRegistry {
+   private static final Log logger = LogFactory.getLog(ContainerViewRegistry.class);
+
+   private final VimPortType vimPort;
+   private final ManagedObjectReference viewManager;
+   private final Map<String, ManagedObjectReference> views = new ConcurrentHashMap<>();
+
+   public ContainerViewRegistry(final VimPortType vimPort,
+         final ManagedObjectReference viewManager) {
+      this.vimPort = vimPort;
+      this.viewManager = viewManager;
+   }
+
+   /**
+    * Returns a recursive ContainerView of the given object type rooted at the
+    * given container, creating it on first use.
+    *
+    * @param container the container the view is rooted at, e.g. the root folder.
+    * @param type      the vSphere object type, e.g. HostSystem.
+    * @return the reference to the ContainerView.
+    */
+   public ManagedObjectReference getContainerView(
+         final ManagedObjectReference container, final String type)
+         throws RuntimeFaultFaultMsg {
+      final String key = toKey(container, type);
+      ManagedObjectReference view = views.get(key);
+      if (view != null) {
+         return view;
+      }
+
+      synchronized (views) {
+         view = views.get(key);
+         if (view == null) {
+            view = vimPort.createContainerView(viewManager, container,
+                  Collections.singletonList(type), true);
+            views.put(key, view);
+         }
+      }
+      return view;
+   }
+
+   /**
+    * Forgets the view of the given object type and container, e.g. after the
+    * vCenter Server reported it as missing. The next call to
+    * {@link #getContainerView} creates a new one.
+    */
+   public void invalidate(final ManagedObjectReference container,
+         final String type) {
+      final ManagedObjectReference view = views.remove(toKey(container, type));
+      if (view != null) {
+         destroyView(view);
+      }
+   }
+
+   /**
+    * Destroys all views created through this registry.
+    */
+   public void destroyAll() {
+      for (final String key : views.keySet()) {
+         final ManagedObjectReference view = views.remove(key);
+         if (view != null) {
+            destroyView(view);
+         }
+      }
+   }
+
+   /**
+    * @return the number of views which are currently alive in the vCenter Server.
+    */
+   public int getLiveViewCount() {
+      return views.size();
+   }
+
+   private void destroyView(final ManagedObjectReference view) {
+      try {
+         vimPort.destroyView(view);
+      } catch (RuntimeFaultFaultMsg | RuntimeException e) {
+         logger.info("Could not destroy ContainerView " + view.getValue()
+               + ", it is already destroyed.");
+      }
+   }
+
+   private static String toKey(final ManagedObjectReference container,
+         final String type) {
+      return type + '@' + container.getType() + ':' + container.getValue();
+   }
+}
@@ -0,0 +1,217 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.services;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+import com.vmware.sample.remote.model.Host;
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.HostSystemConnectionState;
+import com.vmware.vim25.ObjectContent;
+
+/**
+ * Decodes HostSystem properties returned by the PropertyCollector directly into
+ * {@link Host} objects.
+ * <p>
+ * Every supported property path is resolved once to a {@link HostProperty} slot
+ * which knows how to set its value on the Host, so no intermediate property
+ * maps are built. The object ids are assembled from a precomputed prefix and
+ * suffix instead of being formatted.
+ * </p>
+ */
+public class HostPropertyDecoder {
+   static final String HOST_TYPE = "HostSystem";
+   private static final String OBJECT_ID_PREFIX = "urn:vmomi:" + HOST_TYPE + ":";
+
+   /**
+    * The HostSystem properties which can be decoded into a Host.
+    */
+   public enum HostProperty {
+      NAME("name") {
+         @Override
+         void apply(final Host host, final Object value) {
+            host.name = (String) value;
+         }
+      },
+      CONNECTION_STATE("runtime.connectionState") {
+         @Override
+         void apply(final Host host, final Object value) {
+            host.state = (value == null) ?
+                  "" :
+                  ((HostSystemConnectionState) value).value();
+         }
+      },
+      NUM_CPU_CORES("hardware.cpuInfo.numCpuCores") {
+         @Override
+         void apply(final Host host, final Object value) {
+            host.numCpus = (value == null) ? "" : value.toString();
+         }
+      },
+      MEMORY_SIZE("systemResources.config.memoryAllocation.limit") {
+         @Override
+         void apply(final Host host, final Object value) {
+            host.memorySize = (value == null) ? "" : value.toString();
+         }
+      };
+
+      private static final Map<String, HostProperty> BY_PATH = new HashMap<>();
+
+      static {
+         for (final HostProperty property : values()) {
+            BY_PATH.put(property.path, property);
+         }
+      }
+
+      private final String path;
+
+      HostProperty(final String path) {
+         this.path = path;
+      }
+
+      public String getPath() {
+         return path;
+      }
+
+      /**
+       * Sets the given value, or clears the field if the value is null.
+       */
+      abstract void apply(Host host, Object value);
+
+      /**
+       * @return the property with the given path, or null if it is not decoded.
+       */
+      public static HostProperty fromPath(final String path) {
+         return BY_PATH.get(path);
+      }
+   }
+
+   /**
+    * The paths of all properties which are decoded into a Host.
+    */
+   static final String[] ALL_PROPERTIES;
+
+   static {
+      final HostProperty[] properties = HostProperty.values();
+      ALL_PROPERTIES = new String[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+         ALL_PROPERTIES[i] = properties[i].getPath();
+      }
+   }
+
+   /**
+    * Resolves a projection of host properties to the paths to retrieve.
+    * The connection state is always included, since only connected hosts are
+    * returned to the clients.
+    *
+    * @param properties the requested property paths, e.g. name and
+    *                   runtime.connectionState. If null or empty, all properties
+    *                   are retrieved.
+    * @return the property paths for the PropertySpec.
+    * @throws IllegalArgumentException if a property is not supported.
+    */
+   public static String[] toPathSet(final Collection<String> properties) {
+      if (properties == null || properties.isEmpty()) {
+         return ALL_PROPERTIES;
+      }
+      final EnumSet<HostProperty> projection =
+            EnumSet.of(HostProperty.CONNECTION_STATE);
+      for (final String path : properties) {
+         final HostProperty property = HostProperty.fromPath(path);
+         Validate.isTrue(property != null, "Unsupported host property: %s", path);
+         projection.add(property);
+      }
+      final String[] pathSet = new String[projection.size()];
+      int i = 0;
+      for (final HostProperty property : projection) {
+         pathSet[i++] = property.getPath();
+      }
+      return pathSet;
+   }
+
+   private final String vCenterFqdn;
+   private final String objectIdSuffix;
+
+   /**
+    * @param vCenterFqdn the FQDN of the vCenter Server, set on every Host.
+    * @param vCenterGuid the GUID of the vCenter Server, used in the host ids.
+    */
+   public HostPropertyDecoder(final String vCenterFqdn, final String vCenterGuid) {
+      this.vCenterFqdn = vCenterFqdn;
+      this.objectIdSuffix = ":" + vCenterGuid;
+   }
+
+   /**
+    * Decodes a retrieved HostSystem object into a Host.
+    */
+   public Host decode(final ObjectContent objectContent) {
+      final Host host = newHost(objectContent.getObj().getValue());
+      final List<DynamicProperty> dps = objectContent.getPropSet();
+      if (dps != null) {
+         for (final DynamicProperty dp : dps) {
+            apply(host, dp.getName(), dp.getVal());
+         }
+      }
+      return host;
+   }
+
+   /**
+    * Creates an empty Host for the HostSystem with the given managed object id.
+    */
+   public Host newHost(final String hostMoId) {
+      final Host host = new Host();
+      host.id = toObjectId(hostMoId);
+      host.state = "";
+      host.memorySize = "";
+      host.numCpus = "";
+      host.vCenterName = vCenterFqdn;
+      return host;
+   }
+
+   /**
+    * Applies a single property to the given Host. Unknown properties are ignored.
+    */
+   public void apply(final Host host, final String path, final Object value) {
+      final HostProperty property = HostProperty.fromPath(path);
+      if (property != null) {
+         property.apply(host, value);
+      }
+   }
+
+   /**
+    * Extracts the managed object id from the object id of a host of this
+    * vCenter Server.
+    *
+    * @param objectId the object id, e.g.
+    *                 urn:vmomi:HostSystem:host-15:28a09968-ddd6-47e2-a28f-616048f32939
+    * @return the managed object id, e.g. host-15, or null if the object id
+    * does not belong to a host of this vCenter Server.
+    */
+   public String toHostMoId(final String objectId) {
+      if (objectId == null
+            || objectId.length() <= OBJECT_ID_PREFIX.length() + objectIdSuffix.length()
+            || !objectId.startsWith(OBJECT_ID_PREFIX)
+            || !objectId.endsWith(objectIdSuffix)) {
+         return null;
+      }
+      return objectId.substring(OBJECT_ID_PREFIX.length(),
+            objectId.length() - objectIdSuffix.length());
+   }
+
+   /**
+    * Builds the object id of a host, e.g.
+    * urn:vmomi:HostSystem:host-15:28a09968-ddd6-47e2-a28f-616048f32939
+    */
+   private String toObjectId(final String hostMoId) {
+      return new StringBuilder(OBJECT_ID_PREFIX.length() + hostMoId.length()
+            + objectIdSuffix.length())
+            .append(OBJECT_ID_PREFIX)
+            .append(hostMoId)
+            .append(objectIdSuffix)
+            .toString();
+   }
+}
@@ -0,0 +1,264 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.vmware.sample.remote.gateway.VimSessionInfo;
+import com.vmware.sample.remote.model.Host;
+import com.vmware.vim25.InvalidCollectorVersionFaultMsg;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VimPortType;
+import com.vmware.vim25.WaitOptions;
+
+/**
+ * In-memory mirror of the HostSystem objects visible to a single vCenter Server
+ * session.
+ * <p>
+ * The mirror creates a dedicated PropertyCollector with one long-lived filter on
+ * its own HostSystem ContainerView and consumes it with WaitForUpdatesEx
+ * on a background thread. Enter, modify and leave updates are applied to an
+ * index keyed by the host's managed object id, so reads are served from memory
+ * instead of re-fetching every host property from the vCenter Server.
+ * The view is not shared through the session's {@link ContainerViewRegistry},
+ * so a view invalidated there does not end the mirror.
+ * </p>
+ */
+public class InventoryMirror {
+   private static final Log logger = LogFactory.getLog(InventoryMirror.class);
+
+   private final VimSessionInfo vimSessionInfo;
+   private final HostPropertyDecoder hostPropertyDecoder;
+   private final int maxWaitSeconds;
+   private final Runnable onHostsChanged;
+
+   // Hosts are replaced, never modified in place, so readers always see a
+   // consistent object.
+   private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+   private volatile ManagedObjectReference collector;
+   private ManagedObjectReference view;
+   private volatile boolean synced = false;
+   private volatile boolean stopped = false;
+   private volatile boolean terminated = false;
+
+   /**
+    * @param vimSessionInfo the session to mirror the inventory of.
+    * @param hostPropertyDecoder decodes the host properties into Host objects.
+    * @param maxWaitSeconds how long a single WaitForUpdatesEx call blocks.
+    * @param onHostsChanged called after changes to an already synchronized
+    *                       mirror have been applied.
+    */
+   public InventoryMirror(final VimSessionInfo vimSessionInfo,
+         final HostPropertyDecoder hostPropertyDecoder,
+         final int maxWaitSeconds, final Runnable onHostsChanged) {
+      this.vimSessionInfo = vimSessionInfo;
+      this.hostPropertyDecoder = hostPropertyDecoder;
+      this.maxWaitSeconds = maxWaitSeconds;
+      this.onHostsChanged = onHostsChanged;
+   }
+
+   /**
+    * Starts consuming updates on a thread of the given executor.
+    *
+    * @param onTerminated called once the mirror no longer consumes updates.
+    */
+   public void start(final ExecutorService executorService,
+         final Runnable onTerminated) {
+      executorService.submit(() -> {
+         try {
+            run();
+         } finally {
+            onTerminated.run();
+         }
+      });
+   }
+
+   /**
+    * Stops consuming updates and destroys the PropertyCollector of the mirror.
+    */
+   public void stop() {
+      stopped = true;
+      final ManagedObjectReference currentCollector = collector;
+      if (currentCollector != null) {
+         try {
+            vimSessionInfo.getVimPort().cancelWaitForUpdates(currentCollector);
+         } catch (RuntimeFaultFaultMsg | RuntimeException e) {
+            logger.info("The inventory mirror collector is already destroyed.");
+         }
+      }
+   }
+
+   /**
+    * @return whether the mirror was stopped, rather than failed.
+    */
+   public boolean isStopped() {
+      return stopped;
+   }
+
+   /**
+    * @return whether the mirror no longer consumes updates, because it was
+    * stopped or failed.
+    */
+   public boolean isTerminated() {
+      return terminated;
+   }
+
+   /**
+    * @return copies of the mirrored hosts, or null if the mirror has not
+    * completed its initial synchronization.
+    */
+   public List<Host> getHosts() {
+      if (!synced) {
+         return null;
+      }
+      final List<Host> result = new ArrayList<>(hosts.size());
+      for (final Host host : hosts.values()) {
+         result.add(copy(host));
+      }
+      return result;
+   }
+
+   private void run() {
+      final VimPortType vimPort = vimSessionInfo.getVimPort();
+      String version = "";
+      try {
+         collector = vimPort.createPropertyCollector(
+               vimSessionInfo.getPropertyCollector());
+         view = vimPort.createContainerView(vimSessionInfo.getViewManager(),
+               vimSessionInfo.getRootFolder(),
+               Collections.singletonList(VimObjectService.PROP_HOST), true);
+         vimPort.createFilter(collector, VimObjectService.createPropertyFilterSpec(
+               view, VimObjectService.PROP_HOST, VimObjectService.HOST_PROPERTIES),
+               true);
+
+         final WaitOptions options = new WaitOptions();
+         options.setMaxWaitSeconds(maxWaitSeconds);
+         while (!stopped) {
+            final UpdateSet updateSet;
+            try {
+               updateSet = vimPort.waitForUpdatesEx(collector, version, options);
+            } catch (InvalidCollectorVersionFaultMsg e) {
+               logger.warn("Inventory mirror is out of sync, resynchronizing.");
+               synced = false;
+               hosts.clear();
+               version = "";
+               continue;
+            }
+            if (updateSet == null) {
+               // No changes within maxWaitSeconds.
+               continue;
+            }
+
+            version = updateSet.getVersion();
+            final boolean wasSynced = synced;
+            final boolean changed = applyUpdates(updateSet);
+            if (!Boolean.TRUE.equals(updateSet.isTruncated())) {
+               synced = true;
+            }
+            if (changed && wasSynced) {
+               onHostsChanged.run();
+            }
+         }
+      } catch (Exception e) {
+         if (!stopped) {
+            logger.error("The inventory mirror stopped due to an error.", e);
+         }
+      } finally {
+         synced = false;
+         destroyCollector(vimPort);
+         destroyView(vimPort);
+         terminated = true;
+      }
+   }
+
+   /**
+    * @return whether any host was added, modified or removed.
+    */
+   private boolean applyUpdates(final UpdateSet updateSet) {
+      boolean changed = false;
+      for (final PropertyFilterUpdate filterUpdate : updateSet.getFilterSet()) {
+         for (final ObjectUpdate objectUpdate : filterUpdate.getObjectSet()) {
+            final String hostId = objectUpdate.getObj().getValue();
+            switch (objectUpdate.getKind()) {
+               case ENTER:
+                  final Host enteredHost = hostPropertyDecoder.newHost(hostId);
+                  applyChanges(enteredHost, objectUpdate.getChangeSet());
+                  hosts.put(hostId, enteredHost);
+                  changed = true;
+                  break;
+               case MODIFY:
+                  final Host existingHost = hosts.get(hostId);
+                  if (existingHost != null) {
+                     final Host modifiedHost = copy(existingHost);
+                     applyChanges(modifiedHost, objectUpdate.getChangeSet());
+                     hosts.put(hostId, modifiedHost);
+                     changed = true;
+                  }
+                  break;
+               case LEAVE:
+                  changed |= (hosts.remove(hostId) != null);
+                  break;
+               default:
+                  break;
+            }
+         }
+      }
+      return changed;
+   }
+
+   private void applyChanges(final Host host,
+         final List<PropertyChange> changes) {
+      for (final PropertyChange change : changes) {
+         final boolean removed = change.getOp() == PropertyChangeOp.REMOVE
+               || change.getOp() == PropertyChangeOp.INDIRECT_REMOVE;
+         hostPropertyDecoder.apply(host, change.getName(),
+               removed ? null : change.getVal());
+      }
+   }
+
+   private void destroyCollector(final VimPortType vimPort) {
+      final ManagedObjectReference currentCollector = collector;
+      collector = null;
+      if (currentCollector == null) {
+         return;
+      }
+      try {
+         // Destroying the collector destroys its filter as well.
+         vimPort.destroyPropertyCollector(currentCollector);
+      } catch (RuntimeFaultFaultMsg | RuntimeException e) {
+         logger.info("The inventory mirror collector is already destroyed.");
+      }
+   }
+
+   private void destroyView(final VimPortType vimPort) {
+      final ManagedObjectReference currentView = view;
+      view = null;
+      if (currentView == null) {
+         return;
+      }
+      try {
+         vimPort.destroyView(currentView);
+      } catch (RuntimeFaultFaultMsg | RuntimeException e) {
+         logger.info("The inventory mirror ContainerView is already destroyed.");
+      }
+   }
+
+   private static Host copy(final Host host) {
+      return new Host(host.id, host.name, host.state, host.vCenterName,
+            host.memorySize, host.numCpus);
+   }
+}
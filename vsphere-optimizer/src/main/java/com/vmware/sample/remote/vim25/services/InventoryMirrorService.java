@@ -0,0 +1,133 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.services;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.gateway.SessionService;
+import com.vmware.sample.remote.gateway.VimSessionInfo;
+import com.vmware.sample.remote.model.Host;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+import com.vmware.sample.remote.services.MessagingService;
+
+/**
+ * Serves HostSystem data from the {@link InventoryMirror} of the current user.
+ * <p>
+ * The mirror only holds the hosts visible to the user it runs for, so each
+ * vCenter Server user has their own mirror, which is shared by the sessions
+ * of that user. A mirror is started lazily on the first read of the user,
+ * through the session of that read, and is stopped when this session is
+ * evicted. A stopped mirror is replaced on the next read of the user, and a
+ * failed one once the restart interval has passed. Changes applied to a
+ * synchronized mirror are pushed to the clients as
+ * {@link MessageType#HOSTS_UPDATED} messages.
+ * The mirror is disabled unless {@code inventory.mirror.enabled} is set,
+ * since every mirrored user keeps a background thread and a long-lived
+ * PropertyCollector in the vCenter Server.
+ * </p>
+ */
+public class InventoryMirrorService {
+   private static final Log logger = LogFactory.getLog(InventoryMirrorService.class);
+
+   // The minimum time between two starts of the mirror of a user, so a mirror
+   // which keeps failing, e.g. because the vCenter Server is down, is not
+   // restarted on every read.
+   private static final long RESTART_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+   private final SessionService sessionService;
+   private final Configuration configuration;
+   private final MessagingService messagingService;
+   private final HostPropertyDecoder hostPropertyDecoder;
+
+   private final ExecutorService executorService = Executors.newCachedThreadPool(
+         new ThreadFactoryBuilder().setNameFormat("inventory-mirror-%d")
+               .setDaemon(true).build());
+
+   // The mirrors by the name of the user they run for. A stopped mirror is
+   // removed, a failed one is kept until it is restarted.
+   private final ConcurrentMap<String, MirrorEntry> mirrors = new ConcurrentHashMap<>();
+
+   public InventoryMirrorService(final SessionService sessionService,
+         final Configuration configuration,
+         final MessagingService messagingService) {
+      this.sessionService = sessionService;
+      this.configuration = configuration;
+      this.messagingService = messagingService;
+      this.hostPropertyDecoder = new HostPropertyDecoder(
+            configuration.getVcenterServerFqdn(), configuration.getVcenterGuid());
+   }
+
+   /**
+    * @return the hosts of the current user's mirror, or null if the mirror is
+    * disabled or not synchronized yet.
+    */
+   public List<Host> getHosts() {
+      if (!configuration.isInventoryMirrorEnabled()) {
+         return null;
+      }
+
+      final VimSessionInfo vimSessionInfo = sessionService.getVimSessionInfo();
+      final String userName = vimSessionInfo.getUserSession().getUserName();
+      final MirrorEntry entry = mirrors.compute(userName, (user, existingEntry) -> {
+         if (existingEntry == null || existingEntry.mirror.isStopped()) {
+            return startMirror(user, vimSessionInfo);
+         }
+         if (existingEntry.mirror.isTerminated() &&
+               System.currentTimeMillis() - existingEntry.startMillis >=
+                     RESTART_INTERVAL_MILLIS) {
+            logger.info("The inventory mirror of " + user + " failed, restarting it.");
+            return startMirror(user, vimSessionInfo);
+         }
+         return existingEntry;
+      });
+      return entry.mirror.getHosts();
+   }
+
+   private MirrorEntry startMirror(final String userName,
+         final VimSessionInfo vimSessionInfo) {
+      final InventoryMirror mirror = new InventoryMirror(vimSessionInfo,
+            hostPropertyDecoder,
+            configuration.getInventoryMirrorMaxWaitSeconds(),
+            () -> messagingService.broadcastMessage(
+                  new Message(MessageType.HOSTS_UPDATED)));
+      final MirrorEntry entry = new MirrorEntry(mirror, System.currentTimeMillis());
+      // The mirror is stopped along with the session it runs through.
+      vimSessionInfo.setInventoryMirror(mirror);
+      mirror.start(executorService, () -> {
+         if (mirror.isStopped()) {
+            mirrors.remove(userName, entry);
+         }
+      });
+      return entry;
+   }
+
+   /**
+    * Stops the mirror threads. Invoked when the application context is destroyed.
+    */
+   public void destroy() {
+      executorService.shutdownNow();
+   }
+
+   /**
+    * A mirror along with the time it was started at.
+    */
+   private static final class MirrorEntry {
+      final InventoryMirror mirror;
+      final long startMillis;
+
+      MirrorEntry(final InventoryMirror mirror, final long startMillis) {
+         this.mirror = mirror;
+         this.startMillis = startMillis;
+      }
+   }
+}
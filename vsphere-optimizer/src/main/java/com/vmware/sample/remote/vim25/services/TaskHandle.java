@@ -0,0 +1,116 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.vmware.vim25.MethodFault;
+import com.vmware.vim25.TaskInfo;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.VimPortType;
+
+/**
+ * A vCenter Server task started with {@link TaskService#startTask}, which is
+ * created and updated in the background.
+ * <p>
+ * The updates are applied in the order they are requested, once the task is
+ * created and its initial state and description are set. An update which
+ * fails is logged and does not prevent the next ones. If the task cannot be
+ * created the updates are skipped.
+ * </p>
+ */
+public class TaskHandle {
+   private static final Log logger = LogFactory.getLog(
+         TaskHandle.class);
+
+   private final String description;
+   private final Executor executor;
+   private final CompletableFuture<CreatedTask> created;
+   // Completes once the last requested update is applied. Guarded by this.
+   private CompletableFuture<Void> updated;
+
+   TaskHandle(final String description, final Executor executor,
+         final CompletableFuture<CreatedTask> created) {
+      this.description = description;
+      this.executor = executor;
+      this.created = created;
+      this.updated = created.thenApply(createdTask -> null);
+   }
+
+   public void succeed() {
+      update("complete", (vimPort, task) ->
+            TaskService.setState(vimPort, task, TaskInfoState.SUCCESS, null));
+   }
+
+   public void fail(final MethodFault fault) {
+      Validate.notNull(fault);
+      update("fail", (vimPort, task) ->
+            TaskService.setState(vimPort, task, TaskInfoState.ERROR, fault));
+   }
+
+   public void updateProgress(final int percentDone) {
+      update("update the progress of", (vimPort, task) ->
+            TaskService.setProgress(vimPort, task, percentDone));
+   }
+
+   /**
+    * @return a future which completes once the updates requested so far are
+    * applied, or skipped.
+    */
+   public synchronized CompletableFuture<Void> whenUpdated() {
+      return updated;
+   }
+
+   /**
+    * Applies the initial updates of the created task in the given order,
+    * before any update requested through this handle.
+    */
+   synchronized void start(final TaskUpdate... updates) {
+      for (final TaskUpdate update : updates) {
+         update("start", update);
+      }
+   }
+
+   private synchronized void update(final String action, final TaskUpdate update) {
+      updated = updated.handle((result, ex) -> null)
+            .thenRunAsync(() -> apply(action, update), executor);
+   }
+
+   private void apply(final String action, final TaskUpdate update) {
+      if (created.isCompletedExceptionally()) {
+         return;
+      }
+      final CreatedTask createdTask = created.join();
+      try {
+         update.apply(createdTask.vimPort, createdTask.task);
+      } catch (final Exception ex) {
+         logger.error(String.format("Could not %s the vCenter Server task for %s",
+               action, description), ex);
+      }
+   }
+
+   /**
+    * A call which updates the task in the vCenter Server.
+    */
+   @FunctionalInterface
+   interface TaskUpdate {
+      void apply(VimPortType vimPort, TaskInfo task) throws Exception;
+   }
+
+   /**
+    * The task created in the vCenter Server and the port it was created with.
+    */
+   static final class CreatedTask {
+      final VimPortType vimPort;
+      final TaskInfo task;
+
+      CreatedTask(final VimPortType vimPort, final TaskInfo task) {
+         this.vimPort = vimPort;
+         this.task = task;
+      }
+   }
+}
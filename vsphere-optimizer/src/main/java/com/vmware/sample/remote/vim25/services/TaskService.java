@@ -1,79 +1,113 @@
 /* Copyright (c) 2020-2023 VMware, Inc. All rights reserved. */
 package com.vmware.sample.remote.vim25.services;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
 import com.vmware.sample.remote.gateway.GatewayCredentials;
 import com.vmware.sample.remote.gateway.SessionService;
 import com.vmware.sample.remote.gateway.VimSessionInfo;
 import com.vmware.vim25.InvalidStateFaultMsg;
 import com.vmware.vim25.LocalizableMessage;
 import com.vmware.vim25.LocalizedMethodFault;
-import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.MethodFault;
+import com.vmware.vim25.OutOfBoundsFaultMsg;
 import com.vmware.vim25.RuntimeFaultFaultMsg;
-import com.vmware.vim25.ServiceContent;
 import com.vmware.vim25.TaskInfo;
 import com.vmware.vim25.TaskInfoState;
 import com.vmware.vim25.VimPortType;
 
 /**
  * Task service used to create and update tasks in the vCenter Server.
+ * <p>
+ * The tasks started with {@link #startTask} are created and updated in the
+ * background, so the operation they stand for does not wait for the vCenter
+ * Server.
+ * </p>
  */
 public class TaskService {
-   private static final String PROP_SERVICE_INSTANCE = "ServiceInstance";
-
    private static final Log logger = LogFactory.getLog(
          TaskService.class);
 
+   private static final String MISSING_TASK_IDS_MESSAGE =
+         "Could not create a vCenter Server task. " +
+               "This is possibly due to plug-in extension registration " +
+               "not containing tasks, faults and resources.";
+
    private final SessionService sessionService;
-   private final ManagedObjectReference serviceInstanceRef = new ManagedObjectReference();
+   private final ExecutorService executorService;
 
-   public TaskService(final SessionService sessionService) {
+   public TaskService(final SessionService sessionService,
+         final Configuration configuration) {
       this.sessionService = sessionService;
-      serviceInstanceRef.setType(PROP_SERVICE_INSTANCE);
-      serviceInstanceRef.setValue(PROP_SERVICE_INSTANCE);
+      this.executorService = Executors.newFixedThreadPool(
+            configuration.getVimTasksThreads(),
+            new ThreadFactoryBuilder().setNameFormat("vim-tasks-%d")
+                  .setDaemon(true).build());
    }
 
-   public TaskInfo createTask(final GatewayCredentials credentials, final String taskId, final String descriptionMsg) throws
-         RuntimeFaultFaultMsg, InvalidStateFaultMsg {
+   /**
+    * Starts creating a running task with the given description, and returns
+    * right away. The state and then the description of the created task are
+    * set, and the updates requested through the handle are applied in order
+    * after them. Failures are logged.
+    */
+   public TaskHandle startTask(final GatewayCredentials credentials, final String taskId,
+         final String descriptionMsg) {
       Validate.notEmpty(taskId);
 
-      final VimSessionInfo vimSessionInfo = sessionService.getVimSessionInfo(credentials);
-      final VimPortType vimPort = vimSessionInfo.getVimPort();
-      final ServiceContent serviceContent = vimPort.retrieveServiceContent(
-            serviceInstanceRef);
-
-      final ManagedObjectReference taskMgr = serviceContent.getTaskManager();
-      final ManagedObjectReference rootFolder = serviceContent.getRootFolder();
-
-      final TaskInfo task = vimPort.createTask(taskMgr, rootFolder, taskId,
-            vimSessionInfo.getUserSession().getUserName(), false, null, null);
-
-      updateState(credentials, task, TaskInfoState.RUNNING, null);
-      updateDescription(credentials, task, descriptionMsg);
-
-      logger.info(String.format("Created task with task id: %s, and description: %s",
-            taskId, descriptionMsg));
-      return task;
+      final CompletableFuture<TaskHandle.CreatedTask> created =
+            CompletableFuture.supplyAsync(() -> {
+               try {
+                  final VimSessionInfo vimSessionInfo =
+                        sessionService.getVimSessionInfo(credentials);
+                  final VimPortType vimPort = vimSessionInfo.getVimPort();
+                  final TaskInfo task = vimPort.createTask(vimSessionInfo.getTaskManager(),
+                        vimSessionInfo.getRootFolder(), taskId,
+                        vimSessionInfo.getUserSession().getUserName(), false, null, null);
+                  logger.info(String.format("Created task with task id: %s, and description: %s",
+                        taskId, descriptionMsg));
+                  return new TaskHandle.CreatedTask(vimPort, task);
+               } catch (final RuntimeFaultFaultMsg ex) {
+                  logger.error("Could not create a vCenter Server task for " +
+                        descriptionMsg, ex);
+                  throw new CompletionException(ex);
+               } catch (final RuntimeException ex) {
+                  logger.error(MISSING_TASK_IDS_MESSAGE, ex);
+                  throw ex;
+               }
+            }, executorService);
+
+      final TaskHandle handle = new TaskHandle(descriptionMsg, executorService, created);
+      handle.start((vimPort, task) -> setState(vimPort, task, TaskInfoState.RUNNING, null),
+            (vimPort, task) -> setDescription(vimPort, task, descriptionMsg));
+      return handle;
    }
 
-   public void succeedTask(final GatewayCredentials credentials, final TaskInfo task) throws
-         RuntimeFaultFaultMsg, InvalidStateFaultMsg {
-      updateState(credentials, task, TaskInfoState.SUCCESS, null);
+   /**
+    * Stops creating and updating tasks. Invoked when the application context
+    * is destroyed.
+    */
+   public void shutdown() {
+      executorService.shutdownNow();
    }
 
-   public void failTask(final GatewayCredentials credentials, final TaskInfo task, final MethodFault fault) throws
-         InvalidStateFaultMsg, RuntimeFaultFaultMsg {
-      Validate.notNull(task);
-      updateState(credentials, task, TaskInfoState.ERROR, fault);
+   static void setProgress(final VimPortType vimPort, final TaskInfo task, final int percentDone) throws
+         RuntimeFaultFaultMsg, InvalidStateFaultMsg, OutOfBoundsFaultMsg {
+      vimPort.updateProgress(task.getTask(), percentDone);
+      task.setProgress(percentDone);
    }
 
-   public void updateDescription(final GatewayCredentials credentials, final TaskInfo task, final String descriptionMsg) throws
+   static void setDescription(final VimPortType vimPort, final TaskInfo task, final String descriptionMsg) throws
          RuntimeFaultFaultMsg {
-      final VimPortType vimPort = sessionService.getVimSessionInfo(credentials).getVimPort();
       final LocalizableMessage locMsg = new LocalizableMessage();
       locMsg.setKey(task.getKey() + ".details");
       locMsg.setMessage(descriptionMsg);
@@ -81,10 +115,9 @@ public class TaskService {
       vimPort.setTaskDescription(task.getTask(), locMsg);
    }
 
-   public void updateState(final GatewayCredentials credentials, final TaskInfo task, final TaskInfoState state,
+   static void setState(final VimPortType vimPort, final TaskInfo task, final TaskInfoState state,
          final MethodFault fault) throws
          InvalidStateFaultMsg, RuntimeFaultFaultMsg {
-      final VimPortType vimPort = sessionService.getVimSessionInfo(credentials).getVimPort();
       if (fault == null) {
          vimPort.setTaskState(task.getTask(), state, null, null);
       } else {
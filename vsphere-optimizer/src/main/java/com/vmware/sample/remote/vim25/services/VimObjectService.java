@@ -3,17 +3,23 @@ package com.vmware.sample.remote.vim25.services;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.exception.RemotePluginException;
 import com.vmware.sample.remote.gateway.SessionService;
+import com.vmware.sample.remote.gateway.VimSessionInfo;
 import com.vmware.sample.remote.model.Host;
 import com.vmware.vim25.DynamicProperty;
-import com.vmware.vim25.HostSystemConnectionState;
 import com.vmware.vim25.InvalidPropertyFaultMsg;
+import com.vmware.vim25.ManagedObjectNotFound;
 import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.ObjectContent;
 import com.vmware.vim25.ObjectSpec;
@@ -22,7 +28,6 @@ import com.vmware.vim25.PropertySpec;
 import com.vmware.vim25.RetrieveOptions;
 import com.vmware.vim25.RetrieveResult;
 import com.vmware.vim25.RuntimeFaultFaultMsg;
-import com.vmware.vim25.ServiceContent;
 import com.vmware.vim25.TraversalSpec;
 import com.vmware.vim25.VimPortType;
 import org.apache.commons.lang3.Validate;
@@ -36,25 +41,19 @@ import org.apache.commons.logging.LogFactory;
 public class VimObjectService {
    private static final Log logger = LogFactory.getLog(
          VimObjectService.class);
-   private static final String OBJECT_ID_FORMAT = "urn:vmomi:%s:%s:%s";
-   private static final String PROP_SERVICE_INSTANCE = "ServiceInstance";
-   private static final String PROP_NAME = "name";
-   private static final String PROP_HOST = "HostSystem";
-   private static final String PROP_HOST_SUMMARY = "summary.host";
-   private static final String PROP_HOST_CONNECTION_STATE = "runtime.connectionState";
-   private static final String PROP_NUM_CPU_CORES = "hardware.cpuInfo.numCpuCores";
-   private static final String PROP_MEMORY_SIZE = "systemResources.config.memoryAllocation.limit";
-   private static final String[] HOST_PROPERTIES = { PROP_NAME,
-         PROP_HOST_SUMMARY, PROP_NUM_CPU_CORES, PROP_HOST_CONNECTION_STATE,
-         PROP_MEMORY_SIZE };
+   static final String PROP_HOST = HostPropertyDecoder.HOST_TYPE;
+   static final String[] HOST_PROPERTIES = HostPropertyDecoder.ALL_PROPERTIES;
 
    private final SessionService sessionService;
    private final Configuration configuration;
+   private final HostPropertyDecoder hostPropertyDecoder;
 
    public VimObjectService(final SessionService sessionService,
          final Configuration configuration) {
       this.sessionService = sessionService;
       this.configuration = configuration;
+      this.hostPropertyDecoder = new HostPropertyDecoder(
+            configuration.getVcenterServerFqdn(), configuration.getVcenterGuid());
    }
 
    // hachaton code
@@ -66,10 +65,7 @@ public class VimObjectService {
     * @return a list of Host objects
     */
    public List<Host> retrieveSomething() {
-      List<Map<String, Object>> retrievedHosts = retrieveObjectProperties(
-            configuration.getVcenterGuid(), PROP_HOST, HOST_PROPERTIES);
-
-      return transformHostsPropertiesToObjects(retrievedHosts);
+      return retrieveHosts();
    }
 
 
@@ -92,10 +88,94 @@ public class VimObjectService {
     * @return a list of Host objects
     */
    public List<Host> retrieveHosts() {
-      List<Map<String, Object>> retrievedHosts = retrieveObjectProperties(
-            configuration.getVcenterGuid(), PROP_HOST, HOST_PROPERTIES);
+      return retrieveHosts(HOST_PROPERTIES);
+   }
 
-      return transformHostsPropertiesToObjects(retrievedHosts);
+   /**
+    * Retrieves the given properties of the vSphere Host Objects from a
+    * vCenter Server. Properties which are not retrieved keep their defaults.
+    *
+    * @param hostProperties the property paths to retrieve, see
+    *                       {@link HostPropertyDecoder#toPathSet}
+    * @return a list of Host objects
+    */
+   public List<Host> retrieveHosts(final String[] hostProperties) {
+      final List<Host> hosts = new ArrayList<>();
+      retrieveObjectProperties(configuration.getVcenterGuid(), PROP_HOST,
+            hostProperties, objectContent -> {
+               hosts.add(hostPropertyDecoder.decode(objectContent));
+               return true;
+            });
+      return hosts;
+   }
+
+   /**
+    * Retrieves the given properties of the given vSphere Host Objects only.
+    * <p>
+    * The hosts are fetched directly by their managed object references, so the
+    * cost depends on the number of requested hosts rather than on the size of
+    * the inventory. If any of the hosts no longer exists the vCenter Server
+    * fails the whole request, in which case all hosts are retrieved through the
+    * ContainerView and filtered instead.
+    *
+    * @param hostIds the object ids of the hosts. Ids of objects which are not
+    *                hosts of this vCenter Server are ignored.
+    * @param hostProperties the property paths to retrieve
+    * @return a list of the existing Host objects
+    */
+   public List<Host> retrieveHosts(final Collection<String> hostIds,
+         final String[] hostProperties) {
+      Validate.notNull(hostIds);
+      Validate.notNull(hostProperties);
+      final Set<String> requestedIds = new HashSet<>(hostIds);
+      final PropertyFilterSpec fSpec = new PropertyFilterSpec();
+      for (final String hostId : requestedIds) {
+         final String hostMoId = hostPropertyDecoder.toHostMoId(hostId);
+         if (hostMoId == null) {
+            continue;
+         }
+         final ManagedObjectReference hostRef = new ManagedObjectReference();
+         hostRef.setType(PROP_HOST);
+         hostRef.setValue(hostMoId);
+         final ObjectSpec oSpec = new ObjectSpec();
+         oSpec.setObj(hostRef);
+         oSpec.setSkip(false);
+         fSpec.getObjectSet().add(oSpec);
+      }
+      if (fSpec.getObjectSet().isEmpty()) {
+         return new ArrayList<>();
+      }
+      final PropertySpec pSpec = new PropertySpec();
+      pSpec.setType(PROP_HOST);
+      pSpec.getPathSet().addAll(Arrays.asList(hostProperties));
+      fSpec.getPropSet().add(pSpec);
+
+      final VimSessionInfo vimSessionInfo = this.sessionService.getVimSessionInfo();
+      final List<Host> hosts = new ArrayList<>(fSpec.getObjectSet().size());
+      try {
+         retrieveProperties(vimSessionInfo.getVimPort(),
+               vimSessionInfo.getPropertyCollector(), fSpec, objectContent -> {
+                  hosts.add(hostPropertyDecoder.decode(objectContent));
+                  return true;
+               });
+         return hosts;
+      } catch (RuntimeFaultFaultMsg runtimeFaultFaultMsg) {
+         logger.info("Could not retrieve the hosts by reference, some of them " +
+               "may no longer exist. Retrieving all hosts instead.");
+      } catch (InvalidPropertyFaultMsg invalidPropertyFaultMsg) {
+         logger.error("Could not retrieve the properties of " + PROP_HOST,
+               invalidPropertyFaultMsg);
+         throw new RemotePluginException("errors.vcenterConnectivity",
+               invalidPropertyFaultMsg);
+      }
+
+      hosts.clear();
+      for (final Host host : retrieveHosts(hostProperties)) {
+         if (requestedIds.contains(host.id)) {
+            hosts.add(host);
+         }
+      }
+      return hosts;
    }
 
    /**
@@ -103,7 +183,7 @@ public class VimObjectService {
     * and properties, retrieves the values of properties for the given
     * vSphere Object in the vCenter Server defined in the vSphereObjectProperties
     * <p>
-    * Sets up PropertyCollector and ViewManager, Creates the PropertyFilterSpec,
+    * Uses the session's PropertyCollector and ContainerView, Creates the PropertyFilterSpec,
     * retrieves data using the vimPort field and formats them for easier usage.
     *
     * @param vcenterGuid - specifies the GUID of the vCenter Server
@@ -111,145 +191,127 @@ public class VimObjectService {
     * @param vSphereObjectProperties - properties to be retrieved
     *
     * @return List of all vSphere Objects of the specified type.
+    * @throws RemotePluginException if the properties could not be retrieved,
+    * rather than returning an incomplete list.
     */
    public List<Map<String, Object>> retrieveObjectProperties(
          final String vcenterGuid, final String vSphereObject,
          final String[] vSphereObjectProperties) {
+      final List<Map<String, Object>> objectsProperties = new ArrayList<>();
+      retrieveObjectProperties(vcenterGuid, vSphereObject, vSphereObjectProperties,
+            objectContent -> {
+               objectsProperties.add(formatRetrievedProperties(objectContent));
+               return true;
+            });
+      return objectsProperties;
+   }
+
+   /**
+    * Streams the properties of all vSphere Objects of the given type to the
+    * given consumer, page by page, as they are returned by the PropertyCollector.
+    * At most one page of objects is held in memory at a time.
+    * <p>
+    * The consumer returns false to stop the retrieval, in which case the
+    * remaining pages are cancelled on the PropertyCollector. If any page
+    * cannot be retrieved the retrieval fails, the consumer may have received
+    * the objects of the earlier pages only.
+    *
+    * @param vcenterGuid - specifies the GUID of the vCenter Server
+    * @param vSphereObject - for which vSphere Object to retrieve the properties
+    * @param vSphereObjectProperties - properties to be retrieved
+    * @param consumer - called for every retrieved object, returns whether to
+    *                 continue with the retrieval
+    * @throws RemotePluginException if the properties could not be retrieved.
+    */
+   public void retrieveObjectProperties(final String vcenterGuid,
+         final String vSphereObject, final String[] vSphereObjectProperties,
+         final Predicate<ObjectContent> consumer) {
       Validate.notNull(vcenterGuid);
       Validate.notNull(vSphereObject);
       Validate.notNull(vSphereObjectProperties);
-      ServiceContent serviceContent = null;
-
-      final VimPortType vimPort = this.sessionService.getVimSessionInfo().getVimPort();
-
-      try {
-         serviceContent = getServiceContent(vimPort);
-      } catch (RuntimeFaultFaultMsg runtimeFaultFaultMsg) {
-         logger.warn(
-               "Could not retrieve the ServiceContent using sessionCookie",
-               runtimeFaultFaultMsg);
-      }
-      if (serviceContent == null) {
-         return Collections.emptyList();
-      }
-      // Get references to the ViewManager and the PropertyCollector
-      final ManagedObjectReference viewMgrRef = serviceContent.getViewManager();
-      final ManagedObjectReference propColl = serviceContent
-            .getPropertyCollector();
+      Validate.notNull(consumer);
+      final VimSessionInfo vimSessionInfo = this.sessionService.getVimSessionInfo();
+      final VimPortType vimPort = vimSessionInfo.getVimPort();
 
-      // Create a container view for the vSphere Object.
-      final List<String> vObjects = Collections.singletonList(vSphereObject);
+      // Get references to the PropertyCollector and the session's ContainerViews
+      final ManagedObjectReference propColl = vimSessionInfo.getPropertyCollector();
+      final ContainerViewRegistry containerViews = vimSessionInfo.getContainerViews();
 
-      RetrieveResult props = null;
       try {
-         ManagedObjectReference cViewRef = vimPort
-               .createContainerView(viewMgrRef, serviceContent.getRootFolder(),
-                     vObjects, true);
+         // Reuse the container view for the vSphere Object.
+         final ManagedObjectReference cViewRef = containerViews
+               .getContainerView(vimSessionInfo.getRootFolder(), vSphereObject);
 
-         props = retrieveProperties(vimPort, cViewRef, propColl, vSphereObject,
-               vSphereObjectProperties);
+         retrieveProperties(vimPort, propColl, createPropertyFilterSpec(cViewRef,
+               vSphereObject, vSphereObjectProperties), consumer);
       } catch (RuntimeFaultFaultMsg runtimeFaultFaultMsg) {
-         logger.error("Could not create ContainerView for " + vSphereObject,
+         logger.error("Could not retrieve the properties of " + vSphereObject,
+               runtimeFaultFaultMsg);
+         if (runtimeFaultFaultMsg.getFaultInfo() instanceof ManagedObjectNotFound) {
+            // The view no longer exists, a new one is created on the next call.
+            // Other faults may be transient and keep the view.
+            containerViews.invalidate(vimSessionInfo.getRootFolder(), vSphereObject);
+         }
+         throw new RemotePluginException("errors.vcenterConnectivity",
                runtimeFaultFaultMsg);
       } catch (InvalidPropertyFaultMsg invalidPropertyFaultMsg) {
-         logger.error("Could not retrieveProperties for " + vSphereObject,
+         logger.error("Could not retrieve the properties of " + vSphereObject,
+               invalidPropertyFaultMsg);
+         throw new RemotePluginException("errors.vcenterConnectivity",
                invalidPropertyFaultMsg);
       }
-
-      return formatRetrievedProperties(props);
-   }
-
-   /**
-    * Formats the list of host properties to a real Host objects
-    */
-   private List<Host> transformHostsPropertiesToObjects(
-         final List<Map<String, Object>> retrievedHosts) {
-      final List<Host> hosts = new ArrayList<>();
-      final String vCenterFqdn = configuration.getVcenterServerFqdn();
-      final String vCenterGuid = configuration.getVcenterGuid();
-      for (final Map<String, Object> retrievedHost : retrievedHosts) {
-         final String objectId = getFormattedObjectId(retrievedHost,
-               vCenterGuid);
-         final String connectionState = getHostConnectionState(retrievedHost);
-
-         final Object numCpuObject = retrievedHost.get(PROP_NUM_CPU_CORES);
-         final Object memSizeObject = retrievedHost.get(PROP_MEMORY_SIZE);
-         final String numCpus = (numCpuObject == null) ?
-               "" :
-               numCpuObject.toString();
-         final String memSize = (memSizeObject == null) ?
-               "" :
-               memSizeObject.toString();
-
-         final Host host = new Host(objectId,
-               (String) retrievedHost.get(PROP_NAME), connectionState,
-               vCenterFqdn, memSize, numCpus);
-
-         hosts.add(host);
-      }
-      return hosts;
-   }
-
-   /**
-    * Uses the host id and the serviceUrl to create the objectId for the current host
-    */
-   private String getFormattedObjectId(Map<String, Object> host, String serviceUrl) {
-      String hostId = ((ManagedObjectReference) host.get(PROP_HOST_SUMMARY)).getValue();
-      return String.format(OBJECT_ID_FORMAT, PROP_HOST, hostId, serviceUrl);
    }
 
    /**
-    * Retrieves the connection state for the given host
+    * Retrieves the properties page by page, following the continuation token
+    * returned by the PropertyCollector, and hands every object to the consumer.
+    * If the retrieval is stopped by the consumer or fails before the last page,
+    * the remaining results are cancelled.
     */
-   private String getHostConnectionState(Map<String, Object> host) {
-      HostSystemConnectionState conState =
-            (HostSystemConnectionState) host.get(PROP_HOST_CONNECTION_STATE);
-      return (conState == null) ? "" : conState.value();
-   }
-
-   /**
-    * @return a ServiceContent instance
-    *
-    * @throws RuntimeFaultFaultMsg
-    */
-   private ServiceContent getServiceContent(VimPortType vimPort)
-         throws RuntimeFaultFaultMsg {
-      ManagedObjectReference serviceInstanceRef = createSvcInstanceRef();
-
-      ServiceContent serviceContent = vimPort.retrieveServiceContent(serviceInstanceRef);
-
-      return serviceContent;
-   }
-
-   /**
-    * @return The Service Instance ManagedObjectReference
-    */
-   private ManagedObjectReference createSvcInstanceRef() {
-      final ManagedObjectReference svcInstanceRef = new ManagedObjectReference();
-      svcInstanceRef.setType(PROP_SERVICE_INSTANCE);
-      svcInstanceRef.setValue(PROP_SERVICE_INSTANCE);
-
-      return svcInstanceRef;
-   }
-
-   /**
-    * @return Retrieved properties if it succeeds, null otherwise
-    */
-   private RetrieveResult retrieveProperties(VimPortType vimPort,
-                                             ManagedObjectReference cViewRef,
-                                             ManagedObjectReference propColl,
-                                             String vSphereObject,
-                                             String vSphereObjectProperties[])
+   private void retrieveProperties(VimPortType vimPort,
+                                   ManagedObjectReference propColl,
+                                   PropertyFilterSpec fSpec,
+                                   Predicate<ObjectContent> consumer)
          throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
-      PropertyFilterSpec fSpec = createPropertyFilterSpec(cViewRef, vSphereObject,
-            vSphereObjectProperties);
-
       List<PropertyFilterSpec> fSpecList = Collections.singletonList(fSpec);
 
       RetrieveOptions ro = new RetrieveOptions();
+      ro.setMaxObjects(configuration.getVimRetrievePageSize());
       RetrieveResult props = vimPort.retrievePropertiesEx(propColl, fSpecList, ro);
 
-      return props;
+      String token = null;
+      try {
+         while (props != null) {
+            token = props.getToken();
+            for (ObjectContent oc : props.getObjects()) {
+               if (!consumer.test(oc)) {
+                  return;
+               }
+            }
+            if (token == null) {
+               return;
+            }
+            props = vimPort.continueRetrievePropertiesEx(propColl, token);
+            token = null;
+         }
+      } finally {
+         if (token != null) {
+            cancelRetrieveProperties(vimPort, propColl, token);
+         }
+      }
+   }
+
+   /**
+    * Releases the results which have not been retrieved yet.
+    */
+   private void cancelRetrieveProperties(VimPortType vimPort,
+                                         ManagedObjectReference propColl,
+                                         String token) {
+      try {
+         vimPort.cancelRetrievePropertiesEx(propColl, token);
+      } catch (InvalidPropertyFaultMsg | RuntimeFaultFaultMsg | RuntimeException e) {
+         logger.warn("Could not cancel the retrieval of properties.", e);
+      }
    }
 
    /**
@@ -258,7 +320,7 @@ public class VimObjectService {
     *
     * @return the newly created PropertyFilterSpec
     */
-   private PropertyFilterSpec createPropertyFilterSpec(
+   static PropertyFilterSpec createPropertyFilterSpec(
          ManagedObjectReference cViewRef, String vSphereObject,
          String[] vSphereObjectProperties) {
       // Creates an object specification to define the starting point for inventory navigation
@@ -290,31 +352,23 @@ public class VimObjectService {
    }
 
    /**
-    * Given RetrieveResult, converts the properties in a list of maps, where the maps
-    * contain string keys(i.e. the property name) and Object values(i.e. the retrieved
-    * properties)
+    * Given ObjectContent, converts the properties in a map, where the map
+    * contains string keys(i.e. the property name) and Object values(i.e. the
+    * retrieved properties)
     *
-    * @param props containing the properties of the retrieved vSphere Object
+    * @param oc containing the properties of the retrieved vSphere Object
     * @return The retrieved object in a more suitable format
     */
-   private List<Map<String, Object>> formatRetrievedProperties(
-         RetrieveResult props) {
-      List<Map<String, Object>> objectsProperties = new ArrayList<>();
-
-      if (props != null) {
-         for (ObjectContent oc : props.getObjects()) {
-            List<DynamicProperty> dps = oc.getPropSet();
-
-            Map<String, Object> managedObject = new HashMap<>(dps.size());
+   private Map<String, Object> formatRetrievedProperties(ObjectContent oc) {
+      List<DynamicProperty> dps = oc.getPropSet();
+      if (dps == null) {
+         return new HashMap<>();
+      }
 
-            if (dps != null) {
-               for (DynamicProperty dp : dps) {
-                  managedObject.put(dp.getName(), dp.getVal());
-               }
-            }
-            objectsProperties.add(managedObject);
-         }
+      Map<String, Object> managedObject = new HashMap<>(dps.size());
+      for (DynamicProperty dp : dps) {
+         managedObject.put(dp.getName(), dp.getVal());
       }
-      return objectsProperties;
+      return managedObject;
    }
 }
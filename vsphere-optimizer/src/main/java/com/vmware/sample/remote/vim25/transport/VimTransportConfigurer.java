@@ -0,0 +1,106 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+package com.vmware.sample.remote.vim25.transport;
+
+import java.net.URISyntaxException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import com.sun.xml.ws.developer.JAXWSProperties;
+import jakarta.xml.ws.BindingProvider;
+import jakarta.xml.ws.handler.MessageContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.vim25.ssl.ThumbprintTrustManager;
+import com.vmware.vim25.VimPortType;
+
+/**
+ * Configures the HTTP transport used by the {@link VimPortType}s to talk to the
+ * vCenter Server SDK endpoint.
+ * <p>
+ * All ports share one thumbprint-validated {@link SSLContext}, so connections
+ * opened for different sessions resume the cached TLS session instead of doing
+ * a full handshake. The JAX-WS transport is backed by the JDK keep-alive cache,
+ * whose size is bounded by the {@code http.maxConnections} system property.
+ * </p>
+ */
+public class VimTransportConfigurer {
+   private static final Log logger = LogFactory.getLog(VimTransportConfigurer.class);
+
+   private static final String HTTP_MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+   private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+   private static final String GZIP_ENCODING = "gzip";
+
+   private final Configuration configuration;
+   private final SSLSocketFactory sslSocketFactory;
+
+   public VimTransportConfigurer(final Configuration configuration) {
+      this.configuration = configuration;
+      this.sslSocketFactory = buildSSLSocketFactory();
+
+      // The JDK keep-alive cache reads the property once, when the first
+      // connection is returned to it. Values passed explicitly on the command
+      // line take precedence.
+      if (System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY) == null) {
+         System.setProperty(HTTP_MAX_CONNECTIONS_PROPERTY,
+               String.valueOf(configuration.getVimMaxConnections()));
+      }
+      logger.info(String.format("vCenter Server SDK transport: max connections %s, " +
+                  "connect timeout %sms, read timeout %sms, compression %s",
+            System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY),
+            configuration.getVimConnectTimeoutMs(),
+            configuration.getVimReadTimeoutMs(),
+            configuration.isVimCompressionEnabled()));
+   }
+
+   /**
+    * Points the given port to the configured vCenter Server SDK endpoint and
+    * applies the shared transport settings to it.
+    *
+    * @param vimPort the port to configure.
+    */
+   public void configure(final VimPortType vimPort) throws URISyntaxException {
+      final Map<String, Object> context = ((BindingProvider) vimPort)
+            .getRequestContext();
+      context.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY,
+            configuration.getVcenterApiEndpoint().toString());
+      context.put(BindingProvider.SESSION_MAINTAIN_PROPERTY, true);
+      context.put(JAXWSProperties.SSL_SOCKET_FACTORY, sslSocketFactory);
+      context.put(JAXWSProperties.CONNECT_TIMEOUT,
+            configuration.getVimConnectTimeoutMs());
+      context.put(JAXWSProperties.REQUEST_TIMEOUT,
+            configuration.getVimReadTimeoutMs());
+
+      if (configuration.isVimCompressionEnabled()) {
+         // The JAX-WS transport transparently inflates gzip encoded responses.
+         final Map<String, List<String>> headers = new HashMap<>();
+         headers.put(ACCEPT_ENCODING_HEADER, Collections.singletonList(GZIP_ENCODING));
+         context.put(MessageContext.HTTP_REQUEST_HEADERS, headers);
+      }
+   }
+
+   /**
+    * Creates a socket factory for TLS/SSL connection.
+    * It is used to validate the identity of the plugin server against the
+    * vCenter APIs.
+    */
+   private SSLSocketFactory buildSSLSocketFactory() {
+      final TrustManager[] trustManagers = new TrustManager[] {
+            new ThumbprintTrustManager(configuration.getVcenterSslThumbprint()) };
+      try {
+         final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+         sslContext.init(null, trustManagers, null);
+         return sslContext.getSocketFactory();
+      } catch (NoSuchAlgorithmException | KeyManagementException e) {
+         throw new RuntimeException("Failed to build an SSL context", e);
+      }
+   }
+}
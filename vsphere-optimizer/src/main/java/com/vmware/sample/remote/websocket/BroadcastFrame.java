@@ -0,0 +1,88 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * A message encoded once for all the WebSocket clients it is sent to.
+ * <p>
+ * The JSON payload is encoded up front and shared as a single
+ * {@link TextMessage}, which keeps the UTF-8 bytes so that they are not
+ * encoded again to measure the message. The CBOR payload is encoded when the
+ * first client which negotiated it is sent the frame, and its bytes are
+ * shared by the {@link BinaryMessage}s of all such clients.
+ * </p>
+ */
+public final class BroadcastFrame {
+
+   private static final ObjectMapper jsonMapper = new ObjectMapper();
+   private static final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+   private final Object message;
+   private final Object coalescingKey;
+   private final byte[] jsonPayload;
+   private final TextMessage textMessage;
+   private volatile byte[] cborPayload;
+
+   /**
+    * @param message to encode. Must not be modified afterwards.
+    * @param coalescingKey equal for the messages of which only the latest one
+    * needs to be delivered to a slow client, null for none.
+    * @throws JsonProcessingException if the message cannot be encoded.
+    */
+   public BroadcastFrame(final Object message, final Object coalescingKey)
+         throws JsonProcessingException {
+      this.message = message;
+      this.coalescingKey = coalescingKey;
+      this.jsonPayload = jsonMapper.writeValueAsBytes(message);
+      this.textMessage = new TextMessage(jsonPayload);
+   }
+
+   /**
+    * @return the message to send to a client of the given encoding.
+    */
+   WebSocketMessage<?> toWebSocketMessage(final MessageEncoding encoding) {
+      if (encoding == MessageEncoding.CBOR) {
+         // A BinaryMessage wraps a ByteBuffer, whose position is moved by the
+         // send, so each client gets its own one over the shared bytes.
+         return new BinaryMessage(getCborPayload());
+      }
+      return textMessage;
+   }
+
+   private byte[] getCborPayload() {
+      byte[] payload = cborPayload;
+      if (payload == null) {
+         try {
+            payload = cborMapper.writeValueAsBytes(message);
+         } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode message as CBOR", e);
+         }
+         // Encoding it twice on a race is harmless.
+         cborPayload = payload;
+      }
+      return payload;
+   }
+
+   /**
+    * @return whether the other frame can be dropped in favour of this one.
+    */
+   boolean supersedes(final BroadcastFrame other) {
+      return coalescingKey != null && Objects.equals(coalescingKey, other.coalescingKey);
+   }
+
+   @Override
+   public String toString() {
+      return new String(jsonPayload, StandardCharsets.UTF_8);
+   }
+}
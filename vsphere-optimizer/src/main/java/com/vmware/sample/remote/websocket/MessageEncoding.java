@@ -0,0 +1,39 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Encodings of the messages sent to the WebSocket clients. A client selects
+ * one by requesting its WebSocket subprotocol.
+ */
+public enum MessageEncoding {
+   /** JSON in text frames. The encoding of the clients requesting none. */
+   JSON("json"),
+   /** CBOR in binary frames. */
+   CBOR("cbor");
+
+   private final String subProtocol;
+
+   MessageEncoding(final String subProtocol) {
+      this.subProtocol = subProtocol;
+   }
+
+   public String getSubProtocol() {
+      return subProtocol;
+   }
+
+   /**
+    * @return the encoding of the subprotocol accepted for the session.
+    */
+   public static MessageEncoding of(final WebSocketSession session) {
+      final String acceptedProtocol = session.getAcceptedProtocol();
+      for (final MessageEncoding encoding : values()) {
+         if (encoding.subProtocol.equals(acceptedProtocol)) {
+            return encoding;
+         }
+      }
+      return JSON;
+   }
+}
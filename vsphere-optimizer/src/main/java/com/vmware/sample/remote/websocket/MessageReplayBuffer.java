@@ -0,0 +1,149 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+/**
+ * Keeps the most recent broadcast messages, so that they can be replayed to a
+ * client which reconnects after missing them.
+ * <p>
+ * The messages keep the epoch and sequence their publisher assigned to them,
+ * which are the same on every replica. A reconnecting client is replayed the
+ * messages received after its last one, which is found by its epoch and
+ * sequence. A client of a restarted publisher, or of a replica the messages
+ * are no longer kept by, is sent a {@link MessageType#RESYNC} message.
+ * </p>
+ * <p>
+ * Broadcasts, subscriptions and replays are serialized, so a resuming client
+ * receives the replayed messages before any newer one, each of them once.
+ * </p>
+ */
+public class MessageReplayBuffer {
+
+   private final WebSocketMessageDispatcher dispatcher;
+   private final WebSocketSessionRegistry registry;
+   // The recent messages, the one received at a position at index
+   // position % length. Guarded by this.
+   private final ReplayedMessage[] messages;
+   // The number of messages received so far. Guarded by this.
+   private long lastPosition;
+
+   public MessageReplayBuffer(final WebSocketMessageDispatcher dispatcher,
+         final WebSocketSessionRegistry registry,
+         final Configuration configuration) {
+      this.dispatcher = dispatcher;
+      this.registry = registry;
+      this.messages = new ReplayedMessage[configuration.getWebSocketReplayCapacity()];
+   }
+
+   /**
+    * Keeps the message for replay and broadcasts it, with the epoch and
+    * sequence assigned by its publisher. A {@link MessageType#RESYNC} message
+    * is sent to every client, since all of them may have missed messages.
+    *
+    * @throws JsonProcessingException if the message cannot be encoded.
+    */
+   public synchronized void broadcast(final Message message)
+         throws JsonProcessingException {
+      final BroadcastFrame frame = new BroadcastFrame(message, coalescingKey(message));
+      lastPosition++;
+      if (messages.length > 0) {
+         messages[(int) (lastPosition % messages.length)] =
+               new ReplayedMessage(message, frame);
+      }
+      if (message.type == MessageType.RESYNC) {
+         dispatcher.dispatchToAll(frame);
+      } else {
+         dispatcher.dispatch(message.topics, frame);
+      }
+   }
+
+   /**
+    * Subscribes a reconnecting client to topics, and replays the messages of
+    * its topics since the given one. If that one is no longer kept, the
+    * client is sent a {@link MessageType#RESYNC} message instead.
+    *
+    * @param clientLastEpoch the epoch of the last message received by the
+    * client.
+    * @param clientLastSequence the sequence of the last message received by
+    * the client.
+    * @return false if the client cannot be subscribed to the topics.
+    */
+   public synchronized boolean resume(final WebSocketSession session,
+         final Collection<String> topics, final String clientLastEpoch,
+         final long clientLastSequence) {
+      if (!registry.subscribe(session, topics)) {
+         return false;
+      }
+
+      final long clientLastPosition = findPosition(clientLastEpoch, clientLastSequence);
+      if (clientLastPosition < 0) {
+         final ReplayedMessage last = (lastPosition > 0 && messages.length > 0) ?
+               messages[(int) (lastPosition % messages.length)] : null;
+         try {
+            dispatcher.dispatchTo(session.getId(), new BroadcastFrame(
+                  new Message(MessageType.RESYNC, Collections.emptyList(),
+                        (last != null) ? last.message.epoch : null,
+                        (last != null) ? last.message.sequence : 0),
+                  null));
+         } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode message", e);
+         }
+         return true;
+      }
+
+      for (long position = clientLastPosition + 1; position <= lastPosition; position++) {
+         final ReplayedMessage message = messages[(int) (position % messages.length)];
+         if (message.message.type == MessageType.RESYNC ||
+               registry.isSubscribed(session.getId(), message.message.topics)) {
+            dispatcher.dispatchTo(session.getId(), message.frame);
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return the position of the kept message of the given epoch and
+    * sequence, or -1 if it is not kept. Searches from the most recent message,
+    * which a reconnecting client has usually missed few messages since.
+    */
+   private long findPosition(final String epoch, final long sequence) {
+      if (epoch == null) {
+         return -1;
+      }
+      final long firstKeptPosition = Math.max(1, lastPosition - messages.length + 1);
+      for (long position = lastPosition; position >= firstKeptPosition; position--) {
+         final Message message = messages[(int) (position % messages.length)].message;
+         if (message.sequence == sequence && epoch.equals(message.epoch)) {
+            return position;
+         }
+      }
+      return -1;
+   }
+
+   // The messages of the same type and topics only trigger the same reload
+   // on the client, so a slow client only needs the latest one.
+   private static Object coalescingKey(final Message message) {
+      return Arrays.asList(message.type, message.topics);
+   }
+
+   private static final class ReplayedMessage {
+      final Message message;
+      final BroadcastFrame frame;
+
+      ReplayedMessage(final Message message, final BroadcastFrame frame) {
+         this.message = message;
+         this.frame = frame;
+      }
+   }
+}
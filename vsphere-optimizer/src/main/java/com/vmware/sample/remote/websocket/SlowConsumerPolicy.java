@@ -0,0 +1,19 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+/**
+ * What the {@link WebSocketMessageDispatcher} does with a message for a client
+ * whose send queue is full.
+ */
+public enum SlowConsumerPolicy {
+   /** The new message is dropped. */
+   DROP,
+   /**
+    * The queued messages superseded by the new message are dropped, or the
+    * oldest queued message if there are none, to make room for it.
+    */
+   COALESCE,
+   /** The client is disconnected, so that it reconnects and resyncs. */
+   DISCONNECT
+}
@@ -0,0 +1,256 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.MessagingMetrics;
+
+/**
+ * Sends messages to the WebSocket clients from a fixed pool of threads.
+ *
+ * Every client has its own bounded send queue, which is drained by at most one
+ * thread at a time, so a slow client delays only its own messages. When the
+ * queue of a client is full the configured {@link SlowConsumerPolicy} applies.
+ */
+public class WebSocketMessageDispatcher {
+
+   private static final Log logger = LogFactory.getLog(
+         WebSocketMessageDispatcher.class);
+
+   // Maximum number of messages sent to a client before its thread is handed
+   // over to the other clients.
+   private static final int MAX_MESSAGES_PER_RUN = 16;
+
+   private final WebSocketSessionRegistry registry;
+   private final ExecutorService executorService;
+   private final int queueCapacity;
+   private final SlowConsumerPolicy slowConsumerPolicy;
+   // The send queues by the ID of their session.
+   private final ConcurrentMap<String, SessionQueue> queues =
+         new ConcurrentHashMap<>();
+
+   private final AtomicLong sentMessages = new AtomicLong();
+   private final AtomicLong droppedMessages = new AtomicLong();
+   private final AtomicLong coalescedMessages = new AtomicLong();
+   private final AtomicLong failedMessages = new AtomicLong();
+   private final AtomicLong disconnectedSessions = new AtomicLong();
+
+   public WebSocketMessageDispatcher(final WebSocketSessionRegistry registry,
+         final Configuration configuration) {
+      this.registry = registry;
+      // The queue of a client disconnected by the slow consumer policy is kept
+      // until its session is removed, so that no messages are queued for it
+      // anymore.
+      registry.addSessionRemovalListener(queues::remove);
+      this.queueCapacity = configuration.getWebSocketSessionQueueCapacity();
+      this.slowConsumerPolicy = configuration.getWebSocketSessionSlowConsumerPolicy();
+      this.executorService = Executors.newFixedThreadPool(
+            configuration.getWebSocketDispatcherThreads(),
+            new ThreadFactoryBuilder().setNameFormat("websocket-dispatcher-%d")
+                  .setDaemon(true).build());
+   }
+
+   /**
+    * Queues a message to be sent to the clients subscribed to any of its
+    * topics. Does not block on the clients.
+    *
+    * @param topics of the message.
+    * @param message to send, shared by the send queues.
+    */
+   public void dispatch(final Collection<String> topics,
+         final BroadcastFrame message) {
+      registry.forEachSubscribedSession(topics, session ->
+            queueOf(session).offer(message));
+   }
+
+   /**
+    * Queues a message to be sent to every client, whatever its topics are.
+    *
+    * @param message to send, shared by the send queues.
+    */
+   public void dispatchToAll(final BroadcastFrame message) {
+      registry.forEachSession(session -> queueOf(session).offer(message));
+   }
+
+   /**
+    * Queues a message to be sent to a single client. Does nothing if the
+    * client is not registered.
+    */
+   public void dispatchTo(final String sessionId, final BroadcastFrame message) {
+      final WebSocketSession session = registry.getSession(sessionId);
+      if (session != null) {
+         queueOf(session).offer(message);
+      }
+   }
+
+   /**
+    * @return the send queue of a registered session, created on first use.
+    */
+   private SessionQueue queueOf(final WebSocketSession session) {
+      final String sessionId = session.getId();
+      final SessionQueue queue = queues.computeIfAbsent(sessionId,
+            id -> new SessionQueue(session));
+      // The session may have been removed since it was looked up, in which
+      // case its queue was already forgotten and must not be kept again.
+      if (!registry.hasSession(sessionId)) {
+         queues.remove(sessionId, queue);
+      }
+      return queue;
+   }
+
+   /**
+    * @return the statistics of the messages sent so far and of the messages
+    * currently waiting to be sent.
+    */
+   public MessagingMetrics getMetrics() {
+      final MessagingMetrics metrics = new MessagingMetrics();
+      for (final SessionQueue queue : queues.values()) {
+         final int depth = queue.getDepth();
+         metrics.sessions++;
+         metrics.queuedMessages += depth;
+         metrics.maxQueueDepth = Math.max(metrics.maxQueueDepth, depth);
+      }
+      metrics.sentMessages = sentMessages.get();
+      metrics.droppedMessages = droppedMessages.get();
+      metrics.coalescedMessages = coalescedMessages.get();
+      metrics.failedMessages = failedMessages.get();
+      metrics.disconnectedSessions = disconnectedSessions.get();
+      metrics.evictedSessions = registry.getEvictedSessionCount();
+      return metrics;
+   }
+
+   public void shutdown() {
+      executorService.shutdownNow();
+   }
+
+   /**
+    * The send queue of a single client.
+    */
+   private final class SessionQueue implements Runnable {
+
+      // The thread-safe decorator of the session, shared with the heartbeat.
+      private final WebSocketSession session;
+      private final MessageEncoding encoding;
+      // Guarded by this.
+      private final Deque<BroadcastFrame> messages = new ArrayDeque<>();
+      // Whether this queue is submitted for draining. Guarded by this.
+      private boolean scheduled;
+      // Whether the client is disconnected by the slow consumer policy, so no
+      // more messages are queued for it. Guarded by this.
+      private boolean disconnected;
+
+      SessionQueue(final WebSocketSession session) {
+         this.session = session;
+         this.encoding = MessageEncoding.of(session);
+      }
+
+      synchronized int getDepth() {
+         return messages.size();
+      }
+
+      void offer(final BroadcastFrame message) {
+         synchronized (this) {
+            if (disconnected) {
+               droppedMessages.incrementAndGet();
+               return;
+            }
+            if (messages.size() >= queueCapacity && !makeRoom(message)) {
+               return;
+            }
+            messages.addLast(message);
+            if (scheduled) {
+               return;
+            }
+            scheduled = true;
+         }
+         executorService.execute(this);
+      }
+
+      /**
+       * Applies the slow consumer policy to the full queue.
+       *
+       * @return whether the message is to be queued.
+       */
+      private boolean makeRoom(final BroadcastFrame message) {
+         switch (slowConsumerPolicy) {
+            case COALESCE:
+               if (messages.removeIf(message::supersedes)) {
+                  coalescedMessages.incrementAndGet();
+                  return true;
+               }
+               messages.pollFirst();
+               droppedMessages.incrementAndGet();
+               return true;
+            case DISCONNECT:
+               droppedMessages.addAndGet(messages.size() + 1);
+               messages.clear();
+               disconnected = true;
+               executorService.execute(this::disconnect);
+               return false;
+            default:
+               droppedMessages.incrementAndGet();
+               return false;
+         }
+      }
+
+      private void disconnect() {
+         disconnectedSessions.incrementAndGet();
+         logger.warn(String.format("Disconnecting slow client with session ID: %s",
+               session.getId()));
+         try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+         } catch (Exception e) {
+            logger.warn(String.format("Failed to close client with session ID: %s",
+                  session.getId()), e);
+         }
+      }
+
+      @Override
+      public void run() {
+         for (int i = 0; i < MAX_MESSAGES_PER_RUN; i++) {
+            final BroadcastFrame message;
+            synchronized (this) {
+               message = messages.pollFirst();
+               if (message == null) {
+                  scheduled = false;
+                  return;
+               }
+            }
+            send(message);
+         }
+
+         // Let the other clients be served before the rest of this queue.
+         executorService.execute(this);
+      }
+
+      private void send(final BroadcastFrame message) {
+         if (!session.isOpen()) {
+            failedMessages.incrementAndGet();
+            return;
+         }
+         try {
+            session.sendMessage(message.toWebSocketMessage(encoding));
+            sentMessages.incrementAndGet();
+         } catch (Exception e) {
+            failedMessages.incrementAndGet();
+            logger.warn(String.format("Failed to send message to client with " +
+                  "session ID: %s", session.getId()), e);
+         }
+      }
+   }
+}
@@ -3,26 +3,53 @@
 package com.vmware.sample.remote.websocket;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-public class WebSocketMessageHandler extends AbstractWebSocketHandler {
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vmware.sample.remote.model.SubscriptionRequest;
+
+public class WebSocketMessageHandler extends AbstractWebSocketHandler
+      implements SubProtocolCapable {
 
    private static final Log logger = LogFactory.getLog(WebSocketMessageHandler.class);
 
    private final WebSocketSessionRegistry _registry;
+   private final MessageReplayBuffer _replayBuffer;
+   private final ObjectMapper _objectMapper = new ObjectMapper();
 
-   public WebSocketMessageHandler(final WebSocketSessionRegistry registry) {
+   public WebSocketMessageHandler(final WebSocketSessionRegistry registry,
+         final MessageReplayBuffer replayBuffer) {
       Validate.notNull(registry);
+      Validate.notNull(replayBuffer);
 
       _registry = registry;
+      _replayBuffer = replayBuffer;
+   }
+
+   /**
+    * @return the subprotocols of the {@link MessageEncoding}s, of which the
+    * first one requested by a client is accepted.
+    */
+   @Override
+   public List<String> getSubProtocols() {
+      final List<String> subProtocols = new ArrayList<>();
+      for (final MessageEncoding encoding : MessageEncoding.values()) {
+         subProtocols.add(encoding.getSubProtocol());
+      }
+      return subProtocols;
    }
 
    @Override
@@ -37,17 +64,50 @@ public class WebSocketMessageHandler extends AbstractWebSocketHandler {
       _registry.removeSession(session);
    }
 
+   /**
+    * Handles a {@link SubscriptionRequest} of the client.
+    */
    @Override
    protected void handleTextMessage(final WebSocketSession session,
          final TextMessage message) {
+      _registry.recordActivity(session);
+
+      final SubscriptionRequest request;
       try {
-         session.close(CloseStatus.NOT_ACCEPTABLE.withReason(
-               "Text messages not supported"));
+         request = _objectMapper.readValue(message.getPayload(),
+               SubscriptionRequest.class);
       } catch (IOException e) {
-         logger.warn("Failed to close session", e);
+         close(session, CloseStatus.NOT_ACCEPTABLE.withReason(
+               "Invalid subscription request"));
+         return;
+      }
+
+      if (!isEmpty(request.unsubscribe)) {
+         _registry.unsubscribe(session, request.unsubscribe);
+      }
+
+      final List<String> topics = isEmpty(request.subscribe) ?
+            Collections.emptyList() : request.subscribe;
+      final boolean subscribed;
+      if (request.lastSequence != null) {
+         // A reconnecting client, which missed the messages since its last one.
+         subscribed = _replayBuffer.resume(session, topics, request.lastEpoch,
+               request.lastSequence);
+      } else {
+         subscribed = topics.isEmpty() || _registry.subscribe(session, topics);
+      }
+      if (!subscribed) {
+         close(session, CloseStatus.POLICY_VIOLATION.withReason(
+               "Too many subscriptions"));
       }
    }
 
+   @Override
+   protected void handlePongMessage(final WebSocketSession session,
+         final PongMessage message) {
+      _registry.recordActivity(session);
+   }
+
    @Override
    protected void handleBinaryMessage(final WebSocketSession session,
          final BinaryMessage message) {
@@ -59,6 +119,19 @@ public class WebSocketMessageHandler extends AbstractWebSocketHandler {
       }
    }
 
+   private static boolean isEmpty(final List<String> topics) {
+      return topics == null || topics.isEmpty();
+   }
+
+   private static void close(final WebSocketSession session,
+         final CloseStatus status) {
+      try {
+         session.close(status);
+      } catch (IOException e) {
+         logger.warn("Failed to close session", e);
+      }
+   }
+
    @Override
    public void handleTransportError(final WebSocketSession session,
          final Throwable exception) throws Exception {
@@ -0,0 +1,94 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.websocket.WebSocketSessionRegistry.RegisteredSession;
+
+/**
+ * Pings the registered WebSocket sessions periodically and evicts the dead
+ * ones from the registry.
+ * <p>
+ * A session is dead once it is closed, or once nothing, not even a pong, is
+ * received from it for {@code websocket.heartbeat.idleTimeoutMs}. Such
+ * sessions are evicted even if their connection is never reported as closed,
+ * so that the registry does not grow over the uptime of the server.
+ * </p>
+ */
+public class WebSocketSessionHeartbeat {
+
+   private static final Log logger = LogFactory.getLog(
+         WebSocketSessionHeartbeat.class);
+
+   private final WebSocketSessionRegistry registry;
+   private final long intervalMs;
+   private final long idleTimeoutNanos;
+   private final ScheduledExecutorService executorService =
+         Executors.newSingleThreadScheduledExecutor(
+               new ThreadFactoryBuilder().setNameFormat("websocket-heartbeat-%d")
+                     .setDaemon(true).build());
+
+   public WebSocketSessionHeartbeat(final WebSocketSessionRegistry registry,
+         final Configuration configuration) {
+      this.registry = registry;
+      this.intervalMs = configuration.getWebSocketHeartbeatIntervalMs();
+      this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+            configuration.getWebSocketHeartbeatIdleTimeoutMs());
+   }
+
+   public void start() {
+      executorService.scheduleWithFixedDelay(this::beat, intervalMs, intervalMs,
+            TimeUnit.MILLISECONDS);
+   }
+
+   public void stop() {
+      executorService.shutdownNow();
+   }
+
+   private void beat() {
+      final long now = System.nanoTime();
+      for (final RegisteredSession registeredSession : registry.getRegisteredSessions()) {
+         final WebSocketSession session = registeredSession.session;
+         if (!session.isOpen()) {
+            registry.evictSession(registeredSession);
+         } else if (now - registeredSession.lastActivity > idleTimeoutNanos) {
+            logger.warn(String.format("Evicting unresponsive client with session ID: %s",
+                  session.getId()));
+            registry.evictSession(registeredSession);
+            close(session);
+         } else {
+            ping(session);
+         }
+      }
+   }
+
+   private static void ping(final WebSocketSession session) {
+      try {
+         session.sendMessage(new PingMessage(ByteBuffer.allocate(0)));
+      } catch (Exception e) {
+         logger.warn(String.format("Failed to ping client with session ID: %s",
+               session.getId()), e);
+      }
+   }
+
+   private static void close(final WebSocketSession session) {
+      try {
+         session.close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (Exception e) {
+         logger.warn(String.format("Failed to close client with session ID: %s",
+               session.getId()), e);
+      }
+   }
+}
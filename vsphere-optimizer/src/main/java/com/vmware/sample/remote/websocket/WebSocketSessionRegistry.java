@@ -2,37 +2,293 @@
 
 package com.vmware.sample.remote.websocket;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+
+/**
+ * The connected WebSocket sessions, indexed by the topics they are
+ * subscribed to.
+ * <p>
+ * The sessions and the index are concurrent maps, so they are read without
+ * locking or copying. Every session is registered wrapped in a
+ * {@link ConcurrentWebSocketSessionDecorator}, which serializes the sends of
+ * the dispatcher and the heartbeat, and closes the session if a send blocks
+ * for longer than {@code websocket.session.sendTimeLimitMs}.
+ * </p>
+ */
 public class WebSocketSessionRegistry {
 
-   private final Set<WebSocketSession> sessions = new HashSet<>();
-   private final ReadWriteLock lock = new ReentrantReadWriteLock();
-   private final Lock readLock = lock.readLock();
-   private final Lock writeLock = lock.writeLock();
+   // Maximum number of topics a single session can be subscribed to.
+   static final int MAX_TOPICS_PER_SESSION = 1000;
+
+   private final int sendTimeLimitMs;
+   private final int bufferSizeLimit;
+   // The sessions by their ID.
+   private final ConcurrentMap<String, RegisteredSession> sessions =
+         new ConcurrentHashMap<>();
+   // The IDs of the subscribed sessions by topic.
+   private final ConcurrentMap<String, Set<String>> sessionsByTopic =
+         new ConcurrentHashMap<>();
+   private final AtomicLong evictedSessions = new AtomicLong();
+   // Called with the ID of each removed or evicted session.
+   private final List<Consumer<String>> sessionRemovalListeners =
+         new CopyOnWriteArrayList<>();
+
+   public WebSocketSessionRegistry(final Configuration configuration) {
+      this.sendTimeLimitMs = configuration.getWebSocketSessionSendTimeLimitMs();
+      this.bufferSizeLimit = configuration.getWebSocketSessionBufferSizeLimit();
+   }
 
    public void addSession(WebSocketSession session) {
-      writeLock.lock();
-      sessions.add(session);
-      writeLock.unlock();
+      sessions.put(session.getId(), new RegisteredSession(
+            new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs,
+                  bufferSizeLimit)));
    }
 
    public void removeSession(WebSocketSession session) {
-      writeLock.lock();
-      sessions.remove(session);
-      writeLock.unlock();
+      removeSession(session.getId());
+   }
+
+   /**
+    * Registers a listener, called with the ID of each session once it is
+    * removed or evicted.
+    */
+   public void addSessionRemovalListener(Consumer<String> listener) {
+      sessionRemovalListeners.add(listener);
+   }
+
+   /**
+    * Subscribes a session to topics.
+    *
+    * @return false if the session is unknown, or would be subscribed to more
+    * than {@link #MAX_TOPICS_PER_SESSION} topics.
+    */
+   public boolean subscribe(WebSocketSession session, Collection<String> topics) {
+      final RegisteredSession registeredSession = sessions.get(session.getId());
+      if (registeredSession == null) {
+         return false;
+      }
+      synchronized (registeredSession) {
+         final Set<String> newTopics = new HashSet<>(topics);
+         newTopics.removeAll(registeredSession.topics);
+         if (registeredSession.topics.size() + newTopics.size() >
+               MAX_TOPICS_PER_SESSION) {
+            return false;
+         }
+         registeredSession.topics.addAll(newTopics);
+         for (final String topic : newTopics) {
+            sessionsByTopic.compute(topic, (key, sessionIds) -> {
+               final Set<String> result = (sessionIds == null) ?
+                     ConcurrentHashMap.newKeySet() : sessionIds;
+               result.add(session.getId());
+               return result;
+            });
+         }
+      }
+      // A session removed meanwhile may have missed the new topics.
+      if (!sessions.containsKey(session.getId())) {
+         removeSubscriptions(registeredSession);
+      }
+      return true;
+   }
+
+   public void unsubscribe(WebSocketSession session, Collection<String> topics) {
+      final RegisteredSession registeredSession = sessions.get(session.getId());
+      if (registeredSession == null) {
+         return;
+      }
+      synchronized (registeredSession) {
+         for (final String topic : topics) {
+            if (registeredSession.topics.remove(topic)) {
+               removeSubscription(topic, session.getId());
+            }
+         }
+      }
+   }
+
+   /**
+    * Records that a message was received from the session, i.e. that it is
+    * still alive.
+    */
+   public void recordActivity(WebSocketSession session) {
+      final RegisteredSession registeredSession = sessions.get(session.getId());
+      if (registeredSession != null) {
+         registeredSession.lastActivity = System.nanoTime();
+      }
+   }
+
+   /**
+    * Calls the action for each registered session, whatever its topics are.
+    */
+   public void forEachSession(Consumer<WebSocketSession> action) {
+      for (final RegisteredSession registeredSession : sessions.values()) {
+         action.accept(registeredSession.session);
+      }
+   }
+
+   /**
+    * Calls the action for each session subscribed to any of the topics, or to
+    * the {@link Message#INVENTORY_TOPIC}, once per session.
+    */
+   public void forEachSubscribedSession(Collection<String> topics,
+         Consumer<WebSocketSession> action) {
+      final Set<String> inventorySessionIds = sessionsByTopic.getOrDefault(
+            Message.INVENTORY_TOPIC, Collections.emptySet());
+      for (final String sessionId : inventorySessionIds) {
+         acceptSession(sessionId, action);
+      }
+
+      // Only a session subscribed to several of the topics needs to be
+      // remembered, so a message of a single topic does not allocate.
+      Set<String> visitedSessionIds = null;
+      for (final String topic : topics) {
+         final Set<String> sessionIds = sessionsByTopic.get(topic);
+         if (sessionIds == null || topic.equals(Message.INVENTORY_TOPIC)) {
+            continue;
+         }
+         for (final String sessionId : sessionIds) {
+            if (inventorySessionIds.contains(sessionId)) {
+               continue;
+            }
+            if (topics.size() > 1) {
+               if (visitedSessionIds == null) {
+                  visitedSessionIds = new HashSet<>();
+               }
+               if (!visitedSessionIds.add(sessionId)) {
+                  continue;
+               }
+            }
+            acceptSession(sessionId, action);
+         }
+      }
+   }
+
+   /**
+    * @return whether the session is subscribed to any of the topics, or to the
+    * {@link Message#INVENTORY_TOPIC}.
+    */
+   public boolean isSubscribed(String sessionId, Collection<String> topics) {
+      final RegisteredSession registeredSession = sessions.get(sessionId);
+      if (registeredSession == null) {
+         return false;
+      }
+      synchronized (registeredSession) {
+         if (registeredSession.topics.contains(Message.INVENTORY_TOPIC)) {
+            return true;
+         }
+         for (final String topic : topics) {
+            if (registeredSession.topics.contains(topic)) {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
+
+   /**
+    * @return the thread-safe decorator of the session, or null if it is not
+    * registered.
+    */
+   public WebSocketSession getSession(String sessionId) {
+      final RegisteredSession registeredSession = sessions.get(sessionId);
+      return (registeredSession == null) ? null : registeredSession.session;
+   }
+
+   public boolean hasSession(String sessionId) {
+      return sessions.containsKey(sessionId);
+   }
+
+   /**
+    * @return the number of the sessions evicted by the heartbeat.
+    */
+   public long getEvictedSessionCount() {
+      return evictedSessions.get();
+   }
+
+   /**
+    * @return a live view of the registered sessions.
+    */
+   Collection<RegisteredSession> getRegisteredSessions() {
+      return Collections.unmodifiableCollection(sessions.values());
+   }
+
+   /**
+    * Unregisters a session which is closed or does not respond, without
+    * waiting for its connection to be reported as closed.
+    */
+   void evictSession(RegisteredSession registeredSession) {
+      if (sessions.remove(registeredSession.session.getId(), registeredSession)) {
+         evictedSessions.incrementAndGet();
+         removeSubscriptions(registeredSession);
+         notifySessionRemoved(registeredSession.session.getId());
+      }
+   }
+
+   private void removeSession(String sessionId) {
+      final RegisteredSession registeredSession = sessions.remove(sessionId);
+      if (registeredSession != null) {
+         removeSubscriptions(registeredSession);
+         notifySessionRemoved(sessionId);
+      }
+   }
+
+   private void notifySessionRemoved(String sessionId) {
+      for (final Consumer<String> listener : sessionRemovalListeners) {
+         listener.accept(sessionId);
+      }
+   }
+
+   private void acceptSession(String sessionId,
+         Consumer<WebSocketSession> action) {
+      final RegisteredSession registeredSession = sessions.get(sessionId);
+      if (registeredSession != null) {
+         action.accept(registeredSession.session);
+      }
    }
 
-   public Set<WebSocketSession> getAllSessions() {
-      readLock.lock();
-      final Set<WebSocketSession> result = new HashSet<>(sessions);
-      readLock.unlock();
-      return result;
+   private void removeSubscriptions(RegisteredSession registeredSession) {
+      synchronized (registeredSession) {
+         for (final String topic : registeredSession.topics) {
+            removeSubscription(topic, registeredSession.session.getId());
+         }
+         registeredSession.topics.clear();
+      }
+   }
+
+   private void removeSubscription(String topic, String sessionId) {
+      sessionsByTopic.computeIfPresent(topic, (key, sessionIds) -> {
+         sessionIds.remove(sessionId);
+         return sessionIds.isEmpty() ? null : sessionIds;
+      });
+   }
+
+   /**
+    * A registered session and its state.
+    */
+   static final class RegisteredSession {
+      // The thread-safe decorator of the session.
+      final WebSocketSession session;
+      // The subscribed topics. Guarded by this.
+      final Set<String> topics = new HashSet<>();
+      // When a message was last received from the session, in System.nanoTime().
+      volatile long lastActivity = System.nanoTime();
+
+      RegisteredSession(final WebSocketSession session) {
+         this.session = session;
+      }
    }
 }
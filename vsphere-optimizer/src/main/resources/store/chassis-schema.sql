@@ -0,0 +1,54 @@
+-- Copyright (c) 2023 VMware, Inc. All rights reserved.
+-- Schema of the chassis store of the jdbc-store profile.
+
+CREATE SEQUENCE IF NOT EXISTS chassis_id_seq START WITH 0 MINVALUE 0;
+
+CREATE TABLE IF NOT EXISTS chassis (
+   id VARCHAR(64) NOT NULL PRIMARY KEY,
+   name VARCHAR(255) NOT NULL,
+   dimensions VARCHAR(255),
+   server_type VARCHAR(255),
+   is_active BOOLEAN NOT NULL,
+   CONSTRAINT uk_chassis_name UNIQUE (name)
+);
+
+-- Relations between the chassis objects and the hosts, in both directions:
+-- the primary key serves chassis -> hosts, the index serves host -> chassis.
+CREATE TABLE IF NOT EXISTS chassis_host (
+   chassis_id VARCHAR(64) NOT NULL,
+   host_id VARCHAR(255) NOT NULL,
+   position INT NOT NULL,
+   PRIMARY KEY (chassis_id, host_id),
+   CONSTRAINT fk_chassis_host_chassis FOREIGN KEY (chassis_id) REFERENCES chassis (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_chassis_host_host_id ON chassis_host (host_id);
+
+-- Sort keys of the chassis pages. A missing server type is sorted as an empty
+-- string, and the id breaks the ties between equal values.
+ALTER TABLE chassis ADD COLUMN IF NOT EXISTS server_type_key VARCHAR(255)
+      AS COALESCE(server_type, '');
+CREATE INDEX IF NOT EXISTS idx_chassis_server_type_key ON chassis (server_type_key, id);
+
+-- Versioned log of the changed chassis objects. Every change takes the next
+-- version from the single row of chassis_version, which stays locked until the
+-- change is committed, so the changes are committed in the order of their
+-- versions.
+CREATE TABLE IF NOT EXISTS chassis_version (
+   id INT NOT NULL PRIMARY KEY,
+   version BIGINT NOT NULL
+);
+
+INSERT INTO chassis_version (id, version)
+      SELECT 0, 0 WHERE NOT EXISTS (SELECT id FROM chassis_version);
+
+-- The epoch identifies the versions of this database, so the versions of a
+-- database created again from scratch are not mistaken for them.
+ALTER TABLE chassis_version ADD COLUMN IF NOT EXISTS epoch VARCHAR(36);
+UPDATE chassis_version SET epoch = CAST(RANDOM_UUID() AS VARCHAR(36))
+      WHERE epoch IS NULL;
+
+CREATE TABLE IF NOT EXISTS chassis_change (
+   version BIGINT NOT NULL PRIMARY KEY,
+   chassis_id VARCHAR(64) NOT NULL
+);
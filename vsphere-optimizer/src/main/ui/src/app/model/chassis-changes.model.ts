@@ -0,0 +1,25 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+import { Chassis } from '~models/chassis.model';
+
+export enum ChassisChangeType {
+   updated = 'UPDATED',
+   deleted = 'DELETED'
+}
+
+export interface ChassisChange {
+   type: ChassisChangeType;
+   chassisId: string;
+   // The current chassis, or null if it was deleted.
+   chassis: Chassis;
+}
+
+export interface ChassisChanges {
+   // Identifies the server store the versions belong to.
+   epoch: string;
+   // The version the changes lead up to, to request the next changes since.
+   version: number;
+   // Whether all chassis have to be retrieved again.
+   resyncRequired: boolean;
+   changes: ChassisChange[];
+}
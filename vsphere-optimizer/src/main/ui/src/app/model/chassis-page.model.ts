@@ -0,0 +1,13 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+import { Chassis } from '~models/chassis.model';
+
+export type ChassisSortField = 'NAME' | 'SERVER_TYPE';
+
+export type ChassisFilterMode = 'PREFIX' | 'SUBSTRING';
+
+export class ChassisPage {
+   items: Chassis[];
+   // Cursor of the next page, or null if this is the last page.
+   nextCursor: string;
+}
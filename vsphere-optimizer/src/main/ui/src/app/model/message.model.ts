@@ -1,9 +1,35 @@
 /* Copyright (c) 2020-2023 VMware, Inc. All rights reserved. */
 
 export enum MessageType {
-   chassisUpdated = 'CHASSIS_UPDATED'
+   chassisUpdated = 'CHASSIS_UPDATED',
+   hostsUpdated = 'HOSTS_UPDATED',
+   // The messages missed while reconnecting are not known, so the data which
+   // depends on them has to be reloaded.
+   resync = 'RESYNC'
 }
 
 export interface Message {
    type: MessageType;
+   // The topics of the objects the message is about, besides the inventory topic.
+   topics: string[];
+   // The publisher of the message and its position among the messages of
+   // that publisher, which identify the message on every server replica.
+   epoch?: string;
+   sequence?: number;
+}
+
+export class MessageTopic {
+   // The topic of all messages.
+   static readonly inventory: string = 'inventory';
+   // The topic of the messages about created, modified or deleted chassis,
+   // which may change the chassis shown by a list.
+   static readonly chassisList: string = 'chassis';
+
+   static chassis(chassisId: string): string {
+      return `chassis/${chassisId}`;
+   }
+
+   static host(hostId: string): string {
+      return `host/${hostId}`;
+   }
 }
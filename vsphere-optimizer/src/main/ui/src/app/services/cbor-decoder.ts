@@ -0,0 +1,182 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+// The break stop code which ends the items of indefinite length.
+const BREAK = Symbol('break');
+
+/**
+ * Decodes the CBOR (RFC 8949) encoded messages of the server. Supports the
+ * data items produced by the Jackson CBOR encoder: integers, strings,
+ * arrays, maps, floats and simple values, of definite or indefinite length.
+ */
+export class CborDecoder {
+   private readonly view: DataView;
+   private readonly textDecoder: TextDecoder = new TextDecoder();
+   private offset: number = 0;
+
+   private constructor(buffer: ArrayBuffer) {
+      this.view = new DataView(buffer);
+   }
+
+   static decode(buffer: ArrayBuffer): any {
+      return new CborDecoder(buffer).readItem();
+   }
+
+   private readItem(): any {
+      const initialByte: number = this.view.getUint8(this.offset++);
+      const majorType: number = initialByte >> 5;
+      const additionalInfo: number = initialByte & 0x1f;
+
+      if (majorType === 7) {
+         return this.readSimpleValue(additionalInfo);
+      }
+
+      const indefinite: boolean = additionalInfo === 31;
+      const length: number = indefinite ? -1 : this.readLength(additionalInfo);
+      switch (majorType) {
+         case 0:
+            return length;
+         case 1:
+            return -1 - length;
+         case 2:
+            return indefinite ?
+                  this.readChunks((chunks: Uint8Array[]) => this.concatBytes(chunks)) :
+                  this.readBytes(length);
+         case 3:
+            return indefinite ?
+                  this.readChunks((chunks: string[]) => chunks.join('')) :
+                  this.textDecoder.decode(this.readBytes(length));
+         case 4:
+            return this.readArray(length);
+         case 5:
+            return this.readMap(length);
+         default:
+            // A tag, which only adds semantics to the item that follows it.
+            return this.readItem();
+      }
+   }
+
+   private readLength(additionalInfo: number): number {
+      if (additionalInfo < 24) {
+         return additionalInfo;
+      }
+      let length: number;
+      switch (additionalInfo) {
+         case 24:
+            length = this.view.getUint8(this.offset);
+            this.offset += 1;
+            break;
+         case 25:
+            length = this.view.getUint16(this.offset);
+            this.offset += 2;
+            break;
+         case 26:
+            length = this.view.getUint32(this.offset);
+            this.offset += 4;
+            break;
+         case 27:
+            length = this.view.getUint32(this.offset) * 0x100000000 +
+                  this.view.getUint32(this.offset + 4);
+            this.offset += 8;
+            break;
+         default:
+            throw new Error(`[CborDecoder] Invalid additional information: ${additionalInfo}`);
+      }
+      return length;
+   }
+
+   private readSimpleValue(additionalInfo: number): any {
+      let value: any;
+      switch (additionalInfo) {
+         case 20:
+            return false;
+         case 21:
+            return true;
+         case 22:
+            return null;
+         case 23:
+            return undefined;
+         case 25:
+            value = this.readHalfFloat(this.view.getUint16(this.offset));
+            this.offset += 2;
+            return value;
+         case 26:
+            value = this.view.getFloat32(this.offset);
+            this.offset += 4;
+            return value;
+         case 27:
+            value = this.view.getFloat64(this.offset);
+            this.offset += 8;
+            return value;
+         case 31:
+            return BREAK;
+         default:
+            throw new Error(`[CborDecoder] Unsupported simple value: ${additionalInfo}`);
+      }
+   }
+
+   private readHalfFloat(bits: number): number {
+      const sign: number = (bits & 0x8000) ? -1 : 1;
+      const exponent: number = (bits >> 10) & 0x1f;
+      const fraction: number = bits & 0x3ff;
+      if (exponent === 0) {
+         return sign * Math.pow(2, -14) * (fraction / 1024);
+      }
+      if (exponent === 31) {
+         return fraction ? NaN : sign * Infinity;
+      }
+      return sign * Math.pow(2, exponent - 15) * (1 + fraction / 1024);
+   }
+
+   private readBytes(length: number): Uint8Array {
+      const bytes: Uint8Array = new Uint8Array(this.view.buffer,
+            this.view.byteOffset + this.offset, length);
+      this.offset += length;
+      return bytes;
+   }
+
+   private concatBytes(chunks: Uint8Array[]): Uint8Array {
+      const bytes: Uint8Array = new Uint8Array(
+            chunks.reduce((length: number, chunk: Uint8Array) => length + chunk.length, 0));
+      let offset = 0;
+      chunks.forEach((chunk: Uint8Array) => {
+         bytes.set(chunk, offset);
+         offset += chunk.length;
+      });
+      return bytes;
+   }
+
+   // Reads the definite length chunks of an indefinite length string.
+   private readChunks(join: (chunks: any[]) => any): any {
+      const chunks: any[] = [];
+      for (let chunk = this.readItem(); chunk !== BREAK; chunk = this.readItem()) {
+         chunks.push(chunk);
+      }
+      return join(chunks);
+   }
+
+   private readArray(length: number): any[] {
+      const array: any[] = [];
+      if (length < 0) {
+         for (let item = this.readItem(); item !== BREAK; item = this.readItem()) {
+            array.push(item);
+         }
+      } else {
+         for (let i = 0; i < length; i++) {
+            array.push(this.readItem());
+         }
+      }
+      return array;
+   }
+
+   private readMap(length: number): {[key: string]: any} {
+      const map: {[key: string]: any} = {};
+      for (let i = 0; length < 0 || i < length; i++) {
+         const key: any = this.readItem();
+         if (key === BREAK) {
+            break;
+         }
+         map[key] = this.readItem();
+      }
+      return map;
+   }
+}
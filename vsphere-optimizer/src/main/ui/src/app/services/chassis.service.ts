@@ -2,6 +2,8 @@
 
 import { Injectable } from '@angular/core';
 import { Chassis } from '~models/chassis.model';
+import { ChassisChanges } from '~models/chassis-changes.model';
+import { ChassisFilterMode, ChassisPage, ChassisSortField } from '~models/chassis-page.model';
 import { Observable, of } from 'rxjs';
 import { HttpClient } from '@angular/common/http';
 import { map, mergeMap } from 'rxjs/operators';
@@ -35,6 +37,34 @@ export class ChassisService {
             .pipe(map(_ => undefined)) as Observable<never>;
    }
 
+   /**
+    * Creates new objects of type Chassis with a single request.
+    *
+    * @param chassisList - the new chassis to be created.
+    */
+   public createAll(chassisList: Chassis[]): Observable<never> {
+      for (const chassis of chassisList) {
+         chassis.name = chassis.name.trim();
+      }
+      return this.http.post('chassis/bulk', JSON.stringify(chassisList))
+            .pipe(map(_ => undefined)) as Observable<never>;
+   }
+
+   /**
+    * Edit the given chassis with a single request.
+    *
+    * @param chassisList - the edited chassis.
+    */
+   public editAll(chassisList: Chassis[]): Observable<never> {
+      const newChassisList: Chassis[] = chassisList.map(chassis => {
+         const newChassis: Chassis = Object.assign(new Chassis(), chassis);
+         newChassis.name = newChassis.name.trim();
+         return newChassis;
+      });
+      return this.http.put('chassis/bulk/edit', JSON.stringify(newChassisList))
+            .pipe(map(_ => undefined)) as Observable<never>;
+   }
+
    public remove(target: string | string[]): Observable<boolean> {
       if (typeof target === 'string') {
          return this.http.delete(`chassis/${target}`)
@@ -57,6 +87,60 @@ export class ChassisService {
             .pipe(mergeMap((result: Chassis[]) => of(result)));
    }
 
+   /**
+    * Retrieves a page of chassis, sorted by the given field and then by id.
+    *
+    * @param sortBy - the field to sort and filter by.
+    * @param limit - the maximum number of chassis in the page.
+    * @param cursor - the nextCursor of the previous page, omitted for the first page.
+    * @param filter - the value the field has to match, all match if omitted.
+    * @param filterMode - whether the field has to start with or contain the filter.
+    */
+   public getChassisPage(sortBy: ChassisSortField, limit: number, cursor?: string,
+         filter?: string, filterMode?: ChassisFilterMode): Observable<ChassisPage> {
+      const params: { [param: string]: string } = {
+         sortBy: sortBy,
+         limit: `${limit}`
+      };
+      if (cursor) {
+         params.cursor = cursor;
+      }
+      if (filter) {
+         params.filter = filter;
+         params.filterMode = filterMode || 'SUBSTRING';
+      }
+      return this.http.get('chassis/page', { params: params }).pipe(
+            mergeMap((result: ChassisPage) => {
+               for (const chassis of result.items) {
+                  chassis.healthStatus = 45;
+                  chassis.complianceStatus = 81;
+               }
+               return of(result);
+            }));
+   }
+
+   /**
+    * Retrieves the chassis changed since the given version.
+    *
+    * @param epoch - the epoch returned with the previous changes.
+    * @param since - the version returned with the previous changes. If either
+    *       is omitted, only the current epoch and version are retrieved.
+    */
+   public getChanges(epoch?: string, since?: number): Observable<ChassisChanges> {
+      const options = epoch !== undefined && since !== undefined ?
+            { params: { epoch: epoch, since: `${since}` } } : {};
+      return this.http.get('chassis/changes', options).pipe(
+            mergeMap((result: ChassisChanges) => {
+               for (const change of result.changes) {
+                  if (change.chassis) {
+                     change.chassis.healthStatus = 45;
+                     change.chassis.complianceStatus = 81;
+                  }
+               }
+               return of(result);
+            }));
+   }
+
    /**
     * Retrieves all chassis.
     */
@@ -15,10 +15,16 @@ export class HostsService {
 
    /**
     * Sends a get message to get all connected hosts
+    *
+    * @param chassis - if set, only the hosts related to it are returned
+    * @param properties - optional host property paths to retrieve, e.g.
+    *       ['name', 'runtime.connectionState']. All are retrieved if omitted.
     */
-   public getConnectedHosts(chassis: Chassis): Observable<Host[]> {
+   public getConnectedHosts(chassis: Chassis, properties?: string[]): Observable<Host[]> {
       const endpoint = chassis ? `chassis/${chassis.id}/hosts` : 'hosts';
-      return this.http.get(endpoint)
+      const options = properties && properties.length > 0 ?
+            { params: { properties: properties.join(',') } } : {};
+      return this.http.get(endpoint, options)
             .pipe(mergeMap((result: Host[]) => of(result)));
    }
 
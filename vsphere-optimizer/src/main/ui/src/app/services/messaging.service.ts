@@ -2,13 +2,26 @@
 
 import {Injectable} from '@angular/core';
 import {Observable, of, Subject} from 'rxjs';
-import {Message} from '~models/message.model';
+import {map} from 'rxjs/operators';
+import {Message, MessageType} from '~models/message.model';
 import {HttpClient} from '@angular/common/http';
+import {CborDecoder} from './cbor-decoder';
+
+// The WebSocket subprotocols of the message encodings, the preferred first.
+// CBOR messages are smaller and cheaper to encode for the server.
+const MESSAGE_ENCODINGS: string[] = ['cbor', 'json'];
+
+// The delay before reconnecting a closed WebSocket, doubled after each failed
+// attempt up to the maximum.
+const RECONNECT_MIN_DELAY_MS: number = 1000;
+const RECONNECT_MAX_DELAY_MS: number = 30000;
 
 @Injectable()
 export class MessagingService {
 
    public readonly messages$: Observable<Message>;
+   // Completes when the WebSocket is first closed. It is then reconnected,
+   // and the missed messages are replayed to messages$.
    public readonly close$: Observable<never>;
 
    private _webSocket: WebSocket;
@@ -22,14 +35,28 @@ export class MessagingService {
    private readonly _onWebSocketMessageBound: (event: MessageEvent) => void;
    private readonly _onWebSocketCloseBound: (event: CloseEvent) => void;
 
+   private readonly _onReconnectWebSocketOpenBound: (event: Event) => void;
+   private readonly _onReconnectWebSocketCloseBound: (event: CloseEvent) => void;
+
    private readonly _messageSubject: Subject<Message>;
    private readonly _closeSubject: Subject<never>;
 
+   // The topics subscribed to, sent to the server once the WebSocket is opened.
+   private readonly _topics: Set<string>;
+   // The epoch and sequence of the last received message, sent to the server
+   // on reconnect to receive the missed messages. Undefined until a message is
+   // received.
+   private _lastEpoch: string;
+   private _lastSequence: number;
+   private _reconnectDelayMs: number;
+
    constructor(private http: HttpClient) {
       this._initStarted = false;
       this._initSubject = new Subject<never>();
       this._messageSubject = new Subject<Message>();
       this._closeSubject = new Subject<never>();
+      this._topics = new Set<string>();
+      this._reconnectDelayMs = RECONNECT_MIN_DELAY_MS;
 
       this._onInitWebSocketOpenBound = this.onInitWebSocketOpen.bind(this);
       this._onInitWebSocketCloseBound = this.onInitWebSocketClose.bind(this);
@@ -37,6 +64,9 @@ export class MessagingService {
       this._onWebSocketMessageBound = this.onWebSocketMessage.bind(this);
       this._onWebSocketCloseBound = this.onWebSocketClose.bind(this);
 
+      this._onReconnectWebSocketOpenBound = this.onReconnectWebSocketOpen.bind(this);
+      this._onReconnectWebSocketCloseBound = this.onReconnectWebSocketClose.bind(this);
+
       this.messages$ = this._messageSubject.asObservable();
       this.close$ = this._closeSubject.asObservable();
    }
@@ -47,32 +77,79 @@ export class MessagingService {
       }
       this._initStarted = true;
 
+      this.createWebSocket$().subscribe((webSocket: WebSocket) => {
+         if (!webSocket) {
+            this._initSubject.error(undefined);
+            return;
+         }
+
+         this._webSocket = webSocket;
+         this.addInitWebSocketListeners();
+      }, (error: Error) => {
+         this._initSubject.error(error);
+      });
+
+      return this._initSubject.asObservable();
+   }
+
+   /**
+    * Creates a WebSocket for a new session ticket, or emits undefined if no
+    * ticket is generated.
+    */
+   private createWebSocket$(): Observable<WebSocket> {
       // The WebSocket JS API does not support additional headers to be added during
       // initialization. On the other hand sending the PSID in the url as a parameter
       // is not secure, since the URL is logged by proxies and servers.
       // To workaround this security issue a special ticket is generated by the backend which
       // is related to the PSID, however an attacker can not guess the PSID based on the ticket.
       // This ticket is used in the URL parameter during the WebSocket initialization.
-      this.http.get(`websocket/session/generate-ticket`)
-          .subscribe((sessionTicket: string) => {
-             if (!sessionTicket) {
-               this._initSubject.error(undefined);
-               return;
-            }
-
-            const anchorElement = document.createElement('a');
-            anchorElement.href = 'messaging' +
-                  `?session-ticket=${sessionTicket}`;
-
-            const messagingUrl =
-                  `wss://${anchorElement.host}${anchorElement.pathname}${anchorElement.search}`;
-            this._webSocket = new WebSocket(messagingUrl);
-            this.addInitWebSocketListeners();
-          }, (error: Error) => {
-             this._initSubject.error(error);
-          });
+      return this.http.get(`websocket/session/generate-ticket`).pipe(
+            map((sessionTicket: string) => {
+               if (!sessionTicket) {
+                  return undefined;
+               }
+
+               const anchorElement = document.createElement('a');
+               anchorElement.href = 'messaging' +
+                     `?session-ticket=${sessionTicket}`;
+
+               const messagingUrl =
+                     `wss://${anchorElement.host}${anchorElement.pathname}${anchorElement.search}`;
+               const webSocket = new WebSocket(messagingUrl, MESSAGE_ENCODINGS);
+               webSocket.binaryType = 'arraybuffer';
+               return webSocket;
+            }));
+   }
 
-      return this._initSubject.asObservable();
+   /**
+    * Starts receiving the messages of the given topics. Only the messages of
+    * subscribed topics are received.
+    */
+   public subscribe(topics: string[]): void {
+      const newTopics: string[] = topics.filter((topic: string) => !this._topics.has(topic));
+      newTopics.forEach((topic: string) => this._topics.add(topic));
+      if (newTopics.length > 0) {
+         this.sendSubscriptionRequest({subscribe: newTopics});
+      }
+   }
+
+   /**
+    * Stops receiving the messages of the given topics.
+    */
+   public unsubscribe(topics: string[]): void {
+      const removedTopics: string[] = topics.filter((topic: string) => this._topics.has(topic));
+      removedTopics.forEach((topic: string) => this._topics.delete(topic));
+      if (removedTopics.length > 0) {
+         this.sendSubscriptionRequest({unsubscribe: removedTopics});
+      }
+   }
+
+   private sendSubscriptionRequest(request: {subscribe?: string[], unsubscribe?: string[],
+         lastEpoch?: string, lastSequence?: number}) {
+      // Before the WebSocket is opened all topics are subscribed to on open.
+      if (this._webSocket && this._webSocket.readyState === WebSocket.OPEN) {
+         this._webSocket.send(JSON.stringify(request));
+      }
    }
 
    private onInitWebSocketOpen() {
@@ -81,6 +158,10 @@ export class MessagingService {
       this.removeInitWebSocketListeners();
       this.addWebSocketListeners();
 
+      if (this._topics.size > 0) {
+         this.sendSubscriptionRequest({subscribe: Array.from(this._topics)});
+      }
+
       this._initSubject.complete();
    }
 
@@ -105,7 +186,15 @@ export class MessagingService {
    private onWebSocketMessage(event: MessageEvent) {
       console.log('[MessagingService] Received a WebSocket message:', event);
 
-      const message: Message = JSON.parse(event.data);
+      // Binary messages are CBOR encoded, text messages are JSON encoded.
+      const message: Message = event.data instanceof ArrayBuffer ?
+            CborDecoder.decode(event.data) : JSON.parse(event.data);
+      // The server sends the messages in order, so the last received one is
+      // the one to resume after. Sequences of different epochs do not compare.
+      if (message.epoch) {
+         this._lastEpoch = message.epoch;
+         this._lastSequence = message.sequence;
+      }
       this._messageSubject.next(message);
    }
 
@@ -115,6 +204,69 @@ export class MessagingService {
       this.removeWebSocketListeners();
 
       this._closeSubject.complete();
+      this.scheduleReconnect();
+   }
+
+   private scheduleReconnect() {
+      const delayMs: number = this._reconnectDelayMs;
+      this._reconnectDelayMs = Math.min(delayMs * 2, RECONNECT_MAX_DELAY_MS);
+      setTimeout(() => this.reconnect(), delayMs);
+   }
+
+   private reconnect() {
+      this.createWebSocket$().subscribe((webSocket: WebSocket) => {
+         if (!webSocket) {
+            this.scheduleReconnect();
+            return;
+         }
+
+         this._webSocket = webSocket;
+         this.addReconnectWebSocketListeners();
+      }, () => {
+         this.scheduleReconnect();
+      });
+   }
+
+   private onReconnectWebSocketOpen() {
+      console.log('[MessagingService] WebSocket reopened.');
+
+      this.removeReconnectWebSocketListeners();
+      this.addWebSocketListeners();
+      this._reconnectDelayMs = RECONNECT_MIN_DELAY_MS;
+
+      if (this._lastEpoch === undefined) {
+         // Without a received message the missed ones can not be replayed.
+         if (this._topics.size > 0) {
+            this.sendSubscriptionRequest({subscribe: Array.from(this._topics)});
+         }
+         this._messageSubject.next({type: MessageType.resync, topics: []});
+         return;
+      }
+
+      // The server replays the messages missed since the last received one,
+      // or sends a resync message if they are no longer known.
+      this.sendSubscriptionRequest({
+         subscribe: Array.from(this._topics),
+         lastEpoch: this._lastEpoch,
+         lastSequence: this._lastSequence
+      });
+   }
+
+   private onReconnectWebSocketClose(event: CloseEvent) {
+      console.log('[MessagingService] WebSocket reconnection failed with:', event);
+
+      this.removeReconnectWebSocketListeners();
+      this.scheduleReconnect();
+   }
+
+   private addReconnectWebSocketListeners() {
+      this._webSocket.addEventListener('open', this._onReconnectWebSocketOpenBound);
+      this._webSocket.addEventListener('close', this._onReconnectWebSocketCloseBound);
+   }
+
+   private removeReconnectWebSocketListeners() {
+      this._webSocket.removeEventListener('open', this._onReconnectWebSocketOpenBound);
+      this._webSocket.removeEventListener('close', this._onReconnectWebSocketCloseBound);
    }
 
    private addWebSocketListeners() {
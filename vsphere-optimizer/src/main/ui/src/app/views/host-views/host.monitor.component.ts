@@ -1,16 +1,19 @@
 /* Copyright (c) 2018-2023 VMware, Inc. All rights reserved. */
 
-import { Component, OnInit} from '@angular/core';
+import { Component, OnDestroy, OnInit} from '@angular/core';
+import { Subscription } from 'rxjs';
 import { Chassis } from '~models/chassis.model';
+import { Message, MessageTopic, MessageType } from '~models/message.model';
 import { ChassisService } from '~services/chassis.service';
 import { HostsService } from '~services/hosts.service';
 import { Host } from '~models/host.model';
 import { GlobalService } from '~services/global.service';
+import { MessagingService } from '~services/messaging.service';
 
 @Component({
    templateUrl: './host.monitor.component.html'
 })
-export class HostMonitorComponent implements OnInit {
+export class HostMonitorComponent implements OnInit, OnDestroy {
 
    public chassisList: Chassis[];
    public loading: boolean = true;
@@ -18,10 +21,14 @@ export class HostMonitorComponent implements OnInit {
          Chassis.DEFAULT_CHASSIS_PAGE_SIZE;
    private contextObjectId: string;
    private _selectedChassis: Chassis[];
+   // The topics of the host and of the list of all chassis, which are shown.
+   private topics: string[];
+   private messagesSubscription: Subscription;
 
    constructor(private chassisService: ChassisService,
          private hostsService: HostsService,
-         private globalService: GlobalService) {
+         private globalService: GlobalService,
+         private messagingService: MessagingService) {
    }
 
    ngOnInit(): void {
@@ -32,9 +39,25 @@ export class HostMonitorComponent implements OnInit {
       }
       this.contextObjectId =
             this.globalService.htmlClientSdk.app.getContextObjects()[0].id;
+
+      this.messagesSubscription = this.messagingService.messages$.subscribe((message: Message) => {
+         // A resync message means that chassis messages may have been missed.
+         if (message.type === MessageType.chassisUpdated ||
+               message.type === MessageType.resync) {
+            this.loadData();
+         }
+      });
+      this.topics = [MessageTopic.host(this.contextObjectId), MessageTopic.chassisList];
+      this.messagingService.subscribe(this.topics);
+
       this.loadData();
    }
 
+   ngOnDestroy(): void {
+      this.messagesSubscription.unsubscribe();
+      this.messagingService.unsubscribe(this.topics);
+   }
+
    get selectedChassis() {
       return this._selectedChassis;
    }
@@ -1,9 +1,19 @@
 /* Copyright (c) 2018-2023 VMware, Inc. All rights reserved. */
 
-import {Component, NgZone, OnInit} from '@angular/core';
+import {Component, NgZone, OnDestroy, OnInit} from '@angular/core';
+import {ClrDatagridStateInterface} from '@clr/angular';
+
+import {Observable, of, Subscription} from 'rxjs';
+import {mergeMap} from 'rxjs/operators';
 
 import {Chassis} from '~models/chassis.model';
-import {Message, MessageType} from '~models/message.model';
+import {ChassisPage, ChassisSortField} from '~models/chassis-page.model';
+import {
+   ChassisChange,
+   ChassisChanges,
+   ChassisChangeType
+} from '~models/chassis-changes.model';
+import {Message, MessageTopic, MessageType} from '~models/message.model';
 import {ChassisService} from '~services/chassis.service';
 import {
    ConfirmationModalConfig,
@@ -25,16 +35,35 @@ type LoadingType = 'implicit' | 'explicit' | false;
 // global refresh.
 type RefreshTriggerType = 'implicit' | 'explicit';
 
+// The list pages through the chassis objects sorted by name.
+const SORT_BY: ChassisSortField = 'NAME';
+
 @Component({
    templateUrl: './list.component.html',
    styleUrls: ['./list.component.scss']
 })
-export class ListComponent implements OnInit {
+export class ListComponent implements OnInit, OnDestroy {
    selectedChassis: Chassis[];
    numberOfChassisPerPage: number;
+   // The number of chassis objects on the pages loaded so far, plus one if
+   // there is a next page. The total number is not known with cursors.
+   totalItems: number = 0;
    // The current loading.
    loading: LoadingType = false;
+   // The chassis objects of the displayed page.
    private chassisMap: Map<string, Chassis>;
+   // The cursors of the pages up to the next one, the one of the first page
+   // is undefined.
+   private pageCursors: string[] = [undefined];
+   // The index of the displayed page.
+   private pageIndex: number = 0;
+   // The topics of the displayed chassis objects, which are subscribed to.
+   private chassisTopics: string[] = [];
+   private messagesSubscription: Subscription;
+   // The epoch and the version of the loaded chassis objects, undefined until
+   // they are loaded.
+   private epoch: string;
+   private version: number;
    // The loading that is scheduled to be run after the current loading
    // completes.
    private scheduledLoading: LoadingType = false;
@@ -68,17 +97,28 @@ export class ListComponent implements OnInit {
          });
       });
 
-      this.messagingService.messages$.subscribe((message: Message) => {
-         if (message.type !== MessageType.chassisUpdated) {
+      this.messagesSubscription = this.messagingService.messages$.subscribe((message: Message) => {
+         // A resync message means that chassis messages may have been missed.
+         if (message.type !== MessageType.chassisUpdated &&
+               message.type !== MessageType.resync) {
             return;
          }
 
          this.refresh('implicit');
       });
+      // The chassis shown on the page change when chassis are created, modified
+      // or deleted. The topics of the shown chassis are subscribed to once
+      // they are loaded, to receive the changes of their related hosts.
+      this.messagingService.subscribe([MessageTopic.chassisList]);
 
       this.refresh('explicit');
    }
 
+   ngOnDestroy(): void {
+      this.messagesSubscription.unsubscribe();
+      this.messagingService.unsubscribe([MessageTopic.chassisList, ...this.chassisTopics]);
+   }
+
    onAdd(): void {
       const config: ModalConfig = this.modalService.createAddConfig();
       this.globalService.htmlClientSdk.modal.open(config);
@@ -105,7 +145,21 @@ export class ListComponent implements OnInit {
    }
 
    /**
-    * Returns array of chassis objects.
+    * Loads the page selected in the datagrid, which only allows to move to
+    * the pages up to the next one of the loaded page.
+    */
+   onDatagridRefresh(state: ClrDatagridStateInterface): void {
+      const pageIndex: number = state.page && state.page.current ?
+            Math.min(state.page.current - 1, this.pageCursors.length - 1) : 0;
+      if (pageIndex === this.pageIndex) {
+         return;
+      }
+      this.pageIndex = pageIndex;
+      this.refresh('explicit');
+   }
+
+   /**
+    * Returns array of chassis objects of the displayed page.
     */
    get chassisList(): Chassis[] | null {
       if (this.chassisMap) {
@@ -137,30 +191,114 @@ export class ListComponent implements OnInit {
 
       this.loading = refreshTrigger;
 
-      this.chassisService.getAllChassis().subscribe(result => {
+      // A server message only needs the chassis changed since the last loading.
+      const loading$: Observable<void> =
+            refreshTrigger === 'implicit' && this.version !== undefined ?
+                  this.loadChanges() : this.loadPage();
+      loading$.subscribe(() => {
          this.loading = false;
          if (this.scheduledLoading) {
             const scheduledRefreshTrigger: RefreshTriggerType = this.scheduledLoading;
             this.scheduledLoading = false;
             this.refresh(scheduledRefreshTrigger);
          }
+      });
+   }
+
+   /**
+    * Loads the displayed page of chassis objects, along with the version they
+    * are at least as recent as. If the page is empty, e.g. after its chassis
+    * objects were deleted, the previous page is loaded instead.
+    */
+   private loadPage(): Observable<void> {
+      return this.chassisService.getChanges().pipe(
+            mergeMap((changes: ChassisChanges) =>
+                  this.chassisService.getChassisPage(SORT_BY,
+                        this.numberOfChassisPerPage,
+                        this.pageCursors[this.pageIndex]).pipe(
+                        mergeMap((page: ChassisPage) => {
+                           if (page.items.length === 0 && this.pageIndex > 0) {
+                              this.pageIndex--;
+                              return this.loadPage();
+                           }
 
-         const oldSelectedChassisIds: { [key: string]: undefined } = {};
-         this.selectedChassis.forEach(
-               (item: Chassis) => oldSelectedChassisIds[item.id] = undefined
-         );
+                           this.epoch = changes.epoch;
+                           this.version = changes.version;
+                           // The later pages start at other chassis objects
+                           // once the chassis objects before them change.
+                           this.pageCursors.length = this.pageIndex + 1;
+                           if (page.nextCursor) {
+                              this.pageCursors.push(page.nextCursor);
+                           }
+                           this.totalItems = this.pageIndex * this.numberOfChassisPerPage +
+                                 page.items.length + (page.nextCursor ? 1 : 0);
+                           this.chassisMap = new Map<string, Chassis>();
+                           page.items.forEach((item: Chassis) =>
+                                 this.chassisMap.set(item.id, item));
+                           this.updateSelection();
+                           this.updateChassisTopics();
+                           return of(undefined);
+                        }))));
+   }
 
-         this.selectedChassis = [];
-         this.chassisMap = new Map<string, Chassis>();
+   /**
+    * Applies the chassis changes since the last loading to the displayed
+    * page, or loads the page again if the changes may move chassis objects
+    * into or out of it, or are no longer known.
+    */
+   private loadChanges(): Observable<void> {
+      return this.chassisService.getChanges(this.epoch, this.version).pipe(
+            mergeMap((result: ChassisChanges) => {
+               if (result.resyncRequired || !result.changes.every(
+                     (change: ChassisChange) => this.isUpdateInPlace(change))) {
+                  return this.loadPage();
+               }
 
-         result.forEach((item: Chassis) => {
-            this.chassisMap.set(item.id, item);
+               this.version = result.version;
+               const chassisMap = new Map<string, Chassis>(this.chassisMap);
+               result.changes.forEach((change: ChassisChange) => {
+                  if (chassisMap.has(change.chassisId)) {
+                     chassisMap.set(change.chassisId, change.chassis);
+                  }
+               });
+               this.chassisMap = chassisMap;
+               this.updateSelection();
+               return of(undefined);
+            }));
+   }
 
-            if (oldSelectedChassisIds.hasOwnProperty(item.id)) {
-               this.selectedChassis.push(item);
-            }
-         });
-      });
+   /**
+    * Whether the change leaves the chassis object at the same position of the
+    * displayed page, or outside of it.
+    */
+   private isUpdateInPlace(change: ChassisChange): boolean {
+      if (change.type !== ChassisChangeType.updated) {
+         return !this.chassisMap.has(change.chassisId);
+      }
+      const displayedChassis: Chassis = this.chassisMap.get(change.chassisId);
+      return displayedChassis !== undefined &&
+            displayedChassis.name === change.chassis.name;
+   }
+
+   /**
+    * Subscribes to the topics of the displayed chassis objects only.
+    */
+   private updateChassisTopics(): void {
+      const chassisTopics: string[] = Array.from(this.chassisMap.keys())
+            .map((chassisId: string) => MessageTopic.chassis(chassisId));
+      this.messagingService.unsubscribe(this.chassisTopics.filter(
+            (topic: string) => chassisTopics.indexOf(topic) < 0));
+      this.messagingService.subscribe(chassisTopics);
+      this.chassisTopics = chassisTopics;
+   }
+
+   /**
+    * Selects the loaded chassis objects which were selected before.
+    */
+   private updateSelection(): void {
+      this.selectedChassis = this.selectedChassis
+            .map((item: Chassis) => this.chassisMap.get(item.id))
+            .filter((item: Chassis) => item !== undefined);
    }
 
    /**
@@ -0,0 +1,150 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+public class CoalescingMessagingServiceTest {
+   private static final int WINDOW_MS = 100;
+   private static final int MAX_LATENCY_MS = 300;
+   // Allowance for the scheduling of the test and coalescer threads.
+   private static final long SLACK_MS = 150;
+
+   // The messages broadcast by the coalescer, with the time they were
+   // broadcast at in System.nanoTime().
+   private BlockingQueue<Broadcast> broadcasts;
+   private CoalescingMessagingService service;
+
+   @BeforeMethod
+   public void setUp() {
+      broadcasts = new LinkedBlockingQueue<>();
+      service = newService(WINDOW_MS);
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      service.shutdown();
+   }
+
+   @Test
+   public void mergesMessagesOfTheSameTypeWithinTheWindow() throws InterruptedException {
+      service.broadcastMessage(chassisMessage("chassis:1"));
+      service.broadcastMessage(chassisMessage("chassis:2"));
+      service.broadcastMessage(new Message(MessageType.HOSTS_UPDATED));
+
+      final Map<MessageType, Message> messages = new HashMap<>();
+      for (int i = 0; i < 2; i++) {
+         final Broadcast broadcast = broadcasts.poll(WINDOW_MS + SLACK_MS,
+               TimeUnit.MILLISECONDS);
+         assertNotNull(broadcast);
+         messages.put(broadcast.message.type, broadcast.message);
+      }
+
+      assertEquals(messages.get(MessageType.CHASSIS_UPDATED).topics,
+            Arrays.asList(Message.chassisTopic("chassis:1"),
+                  Message.chassisTopic("chassis:2")));
+      assertNotNull(messages.get(MessageType.HOSTS_UPDATED));
+      assertNull(broadcasts.poll(WINDOW_MS + SLACK_MS, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void holdsMessageBackForTheWindow() throws InterruptedException {
+      final long start = System.nanoTime();
+      service.broadcastMessage(chassisMessage("chassis:1"));
+
+      final Broadcast broadcast = broadcasts.poll(WINDOW_MS + SLACK_MS,
+            TimeUnit.MILLISECONDS);
+
+      assertNotNull(broadcast);
+      assertTrue(millisBetween(start, broadcast.nanoTime) >= WINDOW_MS);
+   }
+
+   @Test
+   public void broadcastsSteadyStreamWithinTheMaxLatency() throws InterruptedException {
+      // Messages sent more often than the window would be held back for as
+      // long as they keep coming, but for the max latency bound.
+      final long start = System.nanoTime();
+      final long streamMs = 3 * MAX_LATENCY_MS;
+      int sent = 0;
+      while (millisBetween(start, System.nanoTime()) < streamMs) {
+         service.broadcastMessage(chassisMessage("chassis:" + sent++));
+         Thread.sleep(WINDOW_MS / 4);
+      }
+
+      final Broadcast first = broadcasts.poll(SLACK_MS, TimeUnit.MILLISECONDS);
+      assertNotNull(first);
+      final long firstMs = millisBetween(start, first.nanoTime);
+      assertTrue(firstMs >= MAX_LATENCY_MS, "Broadcast after " + firstMs + " ms");
+      assertTrue(firstMs <= MAX_LATENCY_MS + SLACK_MS,
+            "Broadcast after " + firstMs + " ms");
+      assertTrue(broadcasts.size() >= 1);
+
+      // The stream ends with the messages of the last window.
+      Thread.sleep(WINDOW_MS + SLACK_MS);
+      int received = first.message.topics.size();
+      for (final Broadcast broadcast : broadcasts) {
+         received += broadcast.message.topics.size();
+      }
+      assertEquals(received, sent);
+   }
+
+   @Test
+   public void broadcastsImmediatelyWithoutWindow() {
+      service.shutdown();
+      service = newService(0);
+
+      service.broadcastMessage(chassisMessage("chassis:1"));
+
+      assertEquals(broadcasts.size(), 1);
+   }
+
+   private CoalescingMessagingService newService(final int windowMs) {
+      final Map<String, Object> properties = new HashMap<>();
+      properties.put("messaging.coalesce.windowMs", windowMs);
+      properties.put("messaging.coalesce.maxLatencyMs", MAX_LATENCY_MS);
+      final StandardEnvironment environment = new StandardEnvironment();
+      environment.getPropertySources().addFirst(
+            new MapPropertySource("test", properties));
+      return new CoalescingMessagingService(
+            message -> broadcasts.add(new Broadcast(message)),
+            new Configuration(environment));
+   }
+
+   private static Message chassisMessage(final String chassisId) {
+      return new Message(MessageType.CHASSIS_UPDATED,
+            Arrays.asList(Message.chassisTopic(chassisId)));
+   }
+
+   private static long millisBetween(final long startNanos, final long endNanos) {
+      return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+   }
+
+   private static final class Broadcast {
+      final Message message;
+      final long nanoTime = System.nanoTime();
+
+      Broadcast(final Message message) {
+         this.message = message;
+      }
+   }
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.services;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+public class LoopbackBroadcastBusTest {
+   private static final String EPOCH = "epoch-1";
+
+   private final ObjectMapper objectMapper = new ObjectMapper();
+
+   private LoopbackBroadcastBus bus;
+   // The batches received by the other replica, read back from JSON as a
+   // network bus would.
+   private List<List<Message>> receivedBatches;
+
+   @BeforeMethod
+   public void setUp() {
+      bus = new LoopbackBroadcastBus();
+      receivedBatches = new ArrayList<>();
+      bus.addListener(batch -> receivedBatches.add(fromJson(toJson(batch))));
+   }
+
+   @Test
+   public void deliversMessagesReadBackFromJson() {
+      final Message chassisMessage = new Message(MessageType.CHASSIS_UPDATED,
+            Arrays.asList(Message.chassisTopic("chassis:1"),
+                  Message.hostTopic("host-1"))).withSequence(EPOCH, 7);
+      final Message hostsMessage = new Message(MessageType.HOSTS_UPDATED)
+            .withSequence(EPOCH, 8);
+
+      bus.publish(Arrays.asList(chassisMessage, hostsMessage));
+
+      assertEquals(receivedBatches.size(), 1);
+      final List<Message> batch = receivedBatches.get(0);
+      assertEquals(batch.size(), 2);
+      assertMessageEquals(batch.get(0), chassisMessage);
+      assertMessageEquals(batch.get(1), hostsMessage);
+   }
+
+   @Test
+   public void deliversBatchesInOrder() {
+      bus.publish(Arrays.asList(new Message(MessageType.RESYNC).withSequence(EPOCH, 1)));
+      bus.publish(Arrays.asList(new Message(MessageType.HOSTS_UPDATED).withSequence(EPOCH, 2)));
+
+      assertEquals(receivedBatches.size(), 2);
+      assertMessageEquals(receivedBatches.get(0).get(0),
+            new Message(MessageType.RESYNC).withSequence(EPOCH, 1));
+      assertMessageEquals(receivedBatches.get(1).get(0),
+            new Message(MessageType.HOSTS_UPDATED).withSequence(EPOCH, 2));
+   }
+
+   private static void assertMessageEquals(final Message actual,
+         final Message expected) {
+      assertEquals(actual.type, expected.type);
+      assertEquals(actual.topics, expected.topics);
+      assertEquals(actual.epoch, expected.epoch);
+      assertEquals(actual.sequence, expected.sequence);
+   }
+
+   private String toJson(final List<Message> batch) {
+      try {
+         return objectMapper.writeValueAsString(batch);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private List<Message> fromJson(final String json) {
+      try {
+         return objectMapper.readValue(json, new TypeReference<List<Message>>() { });
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
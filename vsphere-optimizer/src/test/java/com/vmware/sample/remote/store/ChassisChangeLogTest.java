@@ -0,0 +1,60 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.testng.annotations.Test;
+
+public class ChassisChangeLogTest {
+
+   @Test
+   public void keepsChangesUpToItsCapacity() {
+      final ChassisChangeLog changeLog = new ChassisChangeLog(3);
+
+      changeLog.append(Arrays.asList("chassis:1", "chassis:2", "chassis:3"));
+
+      assertEquals(changeLog.getVersion(), 3);
+      assertEquals(changeLog.getChangedIds(0, 3),
+            new LinkedHashSet<>(Arrays.asList("chassis:1", "chassis:2",
+                  "chassis:3")));
+   }
+
+   @Test
+   public void forgetsChangesPastItsCapacity() {
+      final ChassisChangeLog changeLog = new ChassisChangeLog(3);
+
+      changeLog.append(Arrays.asList("chassis:1", "chassis:2", "chassis:3"));
+      changeLog.append(Collections.singleton("chassis:4"));
+
+      assertNull(changeLog.getChangedIds(0, 4));
+      assertEquals(changeLog.getChangedIds(1, 4),
+            new LinkedHashSet<>(Arrays.asList("chassis:2", "chassis:3",
+                  "chassis:4")));
+   }
+
+   @Test
+   public void mergesRepeatedChangesOfChassis() {
+      final ChassisChangeLog changeLog = new ChassisChangeLog(3);
+
+      changeLog.append(Arrays.asList("chassis:1", "chassis:2", "chassis:1"));
+
+      assertEquals(changeLog.getChangedIds(0, 3),
+            new LinkedHashSet<>(Arrays.asList("chassis:1", "chassis:2")));
+   }
+
+   @Test
+   public void knowsNoChangesOutsideItsVersions() {
+      final ChassisChangeLog changeLog = new ChassisChangeLog(3);
+      changeLog.append(Collections.singleton("chassis:1"));
+
+      assertNull(changeLog.getChangedIds(2, 1));
+      assertNull(changeLog.getChangedIds(0, 2));
+      assertEquals(changeLog.getChangedIds(1, 1), Collections.emptySet());
+   }
+}
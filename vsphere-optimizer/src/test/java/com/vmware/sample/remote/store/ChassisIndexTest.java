@@ -0,0 +1,111 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.model.Chassis;
+
+public class ChassisIndexTest {
+   private static final Comparator<Chassis> NAME_ORDER =
+         Comparator.comparing((Chassis chassis) -> chassis.name)
+               .thenComparing(chassis -> chassis.id);
+
+   @Test
+   public void keepsChassisSortedThroughRandomChanges() {
+      final Random random = new Random(42);
+      final TreeMap<String, Chassis> expected = new TreeMap<>();
+      ChassisIndex index = ChassisIndex.empty(NAME_ORDER);
+      for (int i = 0; i < 5000; i++) {
+         final Chassis chassis = chassis("id" + random.nextInt(300),
+               "name" + random.nextInt(100));
+         final Chassis existing = expected.get(key(chassis));
+         if (existing != null) {
+            index = index.without(existing);
+            expected.remove(key(existing));
+         } else {
+            index = index.with(chassis);
+            expected.put(key(chassis), chassis);
+         }
+      }
+
+      assertEquals(index.asList(), new ArrayList<>(expected.values()));
+      assertEquals(index.size(), expected.size());
+   }
+
+   @Test
+   public void leavesPreviousIndexUnchanged() {
+      final Chassis first = chassis("chassis:1", "a");
+      final Chassis second = chassis("chassis:2", "b");
+      final ChassisIndex before = ChassisIndex.empty(NAME_ORDER).with(first);
+      final List<Chassis> beforeList = before.asList();
+
+      final ChassisIndex after = before.with(second).without(first);
+
+      assertEquals(beforeList, listOf(first));
+      assertEquals(after.asList(), listOf(second));
+   }
+
+   @Test
+   public void replacesChassisWhichSortsEqual() {
+      final Chassis previous = chassis("chassis:1", "a");
+      final Chassis current = chassis("chassis:1", "a");
+      current.isActive = true;
+
+      final ChassisIndex index = ChassisIndex.empty(NAME_ORDER)
+            .with(previous).with(current);
+
+      assertEquals(index.size(), 1);
+      assertSame(index.get(chassis("chassis:1", "a")), current);
+      assertNull(index.get(chassis("chassis:2", "a")));
+   }
+
+   @Test
+   public void countsAndIteratesFromPosition() {
+      ChassisIndex index = ChassisIndex.empty(NAME_ORDER);
+      for (int i = 0; i < 10; i++) {
+         index = index.with(chassis("chassis:" + i, "name" + i));
+      }
+      final Chassis fifth = chassis("chassis:5", "name5");
+
+      assertEquals(index.countBefore(fifth, false), 5);
+      assertEquals(index.countBefore(fifth, true), 6);
+      assertEquals(index.countBefore(chassis("", "name5"), false), 5);
+      assertEquals(index.countBefore(chassis("", "zzz"), false), 10);
+
+      final Iterator<Chassis> iterator = index.iterator(8);
+      assertEquals(iterator.next().id, "chassis:8");
+      assertEquals(iterator.next().id, "chassis:9");
+      assertEquals(iterator.hasNext(), false);
+      assertEquals(index.iterator(10).hasNext(), false);
+      assertEquals(index.asList().get(3).id, "chassis:3");
+   }
+
+   private static String key(final Chassis chassis) {
+      return chassis.name + '\0' + chassis.id;
+   }
+
+   private static List<Chassis> listOf(final Chassis chassis) {
+      final List<Chassis> list = new ArrayList<>();
+      list.add(chassis);
+      return list;
+   }
+
+   private static Chassis chassis(final String id, final String name) {
+      final Chassis chassis = new Chassis();
+      chassis.id = id;
+      chassis.name = name;
+      return chassis;
+   }
+}
@@ -0,0 +1,213 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.store.exception.ChassisStoreException;
+
+public class ChassisStoreLogTest {
+   private static final String FIRST_LOG = "chassis-0.log";
+   private static final String SECOND_LOG = "chassis-1.log";
+   private static final String SNAPSHOT = "chassis.snapshot";
+
+   private Path directory;
+
+   @BeforeMethod
+   public void setUp() throws IOException {
+      directory = Files.createTempDirectory("chassis-store-log");
+   }
+
+   @AfterMethod
+   public void tearDown() throws IOException {
+      try (Stream<Path> files = Files.walk(directory)) {
+         for (final Path file : files.sorted(Comparator.reverseOrder())
+               .collect(Collectors.toList())) {
+            Files.delete(file);
+         }
+      }
+   }
+
+   @Test
+   public void recoversAppendedRecordsInOrder() {
+      appendAndClose("chassis:1", "chassis:2", "chassis:3");
+
+      assertEquals(recoverIds(), Arrays.asList("chassis:1", "chassis:2", "chassis:3"));
+   }
+
+   @Test
+   public void dropsLastRecordWithInvalidChecksum() throws IOException {
+      appendAndClose("chassis:1", "chassis:2");
+      final Path logFile = directory.resolve(FIRST_LOG);
+      final byte[] bytes = Files.readAllBytes(logFile);
+      // The last byte belongs to the payload of the last record.
+      bytes[bytes.length - 1] ^= 1;
+      Files.write(logFile, bytes);
+
+      assertEquals(recoverIds(), Collections.singletonList("chassis:1"));
+   }
+
+   @Test
+   public void recoversFromTornTail() throws IOException {
+      appendAndClose("chassis:1", "chassis:2");
+      final long validLength = Files.size(directory.resolve(FIRST_LOG));
+      appendAndClose("chassis:3");
+      tear(directory.resolve(FIRST_LOG), 3);
+
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      final List<String> ids = new ArrayList<>();
+      assertTrue(log.recover(snapshot -> { }, record -> ids.add(record.id)));
+      assertEquals(ids, Arrays.asList("chassis:1", "chassis:2"));
+      assertEquals(Files.size(directory.resolve(FIRST_LOG)), validLength);
+
+      log.append(ChassisLogRecord.delete("chassis:4")).join();
+      log.close();
+      assertEquals(recoverIds(), Arrays.asList("chassis:1", "chassis:2", "chassis:4"));
+   }
+
+   @Test(expectedExceptions = ChassisStoreException.class)
+   public void failsOnTornLogFollowedByRecords() throws IOException {
+      appendAndClose("chassis:1", "chassis:2");
+      Files.copy(directory.resolve(FIRST_LOG), directory.resolve(SECOND_LOG));
+      tear(directory.resolve(FIRST_LOG), 3);
+
+      recoverIds();
+   }
+
+   @Test
+   public void recoversFromTornLogFollowedByEmptyLog() throws IOException {
+      appendAndClose("chassis:1", "chassis:2");
+      tear(directory.resolve(FIRST_LOG), 3);
+      // Left behind by a crash while a snapshot is written.
+      Files.createFile(directory.resolve(SECOND_LOG));
+
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      final List<String> ids = new ArrayList<>();
+      log.recover(snapshot -> { }, record -> ids.add(record.id));
+      assertEquals(ids, Collections.singletonList("chassis:1"));
+
+      log.append(ChassisLogRecord.delete("chassis:3")).join();
+      log.close();
+      assertEquals(recoverIds(), Arrays.asList("chassis:1", "chassis:3"));
+   }
+
+   @Test
+   public void snapshotRotatesLog() throws IOException {
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      assertFalse(log.recover(snapshot -> { }, record -> { }));
+      log.append(ChassisLogRecord.delete("chassis:1"));
+      log.append(ChassisLogRecord.delete("chassis:2"));
+      final ChassisStoreSnapshot snapshot = new ChassisStoreSnapshot();
+      snapshot.nextIndex = 7;
+      snapshot.chassis = Collections.singletonList(newChassis("chassis:6"));
+      log.snapshot(snapshot).join();
+      assertEquals(log.getRecordsSinceSnapshot(), 0);
+      log.append(ChassisLogRecord.delete("chassis:3")).join();
+      log.close();
+
+      assertFalse(Files.exists(directory.resolve(FIRST_LOG)));
+      assertTrue(Files.exists(directory.resolve(SECOND_LOG)));
+      assertTrue(Files.exists(directory.resolve(SNAPSHOT)));
+
+      final List<ChassisStoreSnapshot> snapshots = new ArrayList<>();
+      final List<String> ids = new ArrayList<>();
+      final ChassisStoreLog recoveredLog = new ChassisStoreLog(directory);
+      assertTrue(recoveredLog.recover(snapshots::add, record -> ids.add(record.id)));
+      recoveredLog.close();
+      assertEquals(snapshots.size(), 1);
+      assertEquals(snapshots.get(0).generation, 1);
+      assertEquals(snapshots.get(0).nextIndex, 7);
+      assertEquals(snapshots.get(0).chassis.get(0).id, "chassis:6");
+      assertEquals(ids, Collections.singletonList("chassis:3"));
+   }
+
+   @Test
+   public void completesAllWritesQueuedBeforeClose() throws InterruptedException {
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      log.recover(snapshot -> { }, record -> { });
+      final List<CompletableFuture<Void>> writes =
+            Collections.synchronizedList(new ArrayList<>());
+      final Thread appender = new Thread(() -> {
+         try {
+            for (int i = 0; ; i++) {
+               writes.add(log.append(ChassisLogRecord.delete("chassis:" + i)));
+            }
+         } catch (final ChassisStoreException e) {
+            // Closed.
+         }
+      });
+      appender.start();
+      while (writes.size() < 100) {
+         Thread.sleep(1);
+      }
+      log.close();
+      appender.join();
+
+      for (final CompletableFuture<Void> write : writes) {
+         assertTrue(write.isDone());
+      }
+   }
+
+   @Test(expectedExceptions = ChassisStoreException.class)
+   public void failsToAppendAfterClose() {
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      log.recover(snapshot -> { }, record -> { });
+      log.close();
+
+      log.append(ChassisLogRecord.delete("chassis:1"));
+   }
+
+   private void appendAndClose(final String... chassisIds) {
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      log.recover(snapshot -> { }, record -> { });
+      for (final String chassisId : chassisIds) {
+         log.append(ChassisLogRecord.delete(chassisId));
+      }
+      log.close();
+   }
+
+   private List<String> recoverIds() {
+      final ChassisStoreLog log = new ChassisStoreLog(directory);
+      final List<String> ids = new ArrayList<>();
+      try {
+         log.recover(snapshot -> { }, record -> ids.add(record.id));
+      } finally {
+         log.close();
+      }
+      return ids;
+   }
+
+   private static void tear(final Path file, final int bytes) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         channel.truncate(channel.size() - bytes);
+      }
+   }
+
+   private static Chassis newChassis(final String id) {
+      final Chassis chassis = new Chassis();
+      chassis.id = id;
+      chassis.name = id;
+      return chassis;
+   }
+}
@@ -0,0 +1,158 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.store.exception.ExistingChassisObjectException;
+
+public class InMemoryChassisStoreTest {
+   private InMemoryChassisStore store;
+
+   @BeforeMethod
+   public void setUp() {
+      store = new InMemoryChassisStore(false);
+   }
+
+   @Test
+   public void servesTheSameObjectsUntilTheNextWrite() {
+      store.create(newChassis("a"));
+
+      assertSame(store.getObjects(), store.getObjects());
+   }
+
+   @Test
+   public void keepsEarlierReadsAtTheirPointInTime() {
+      final Chassis first = store.create(newChassis("a"));
+      final List<Chassis> before = store.getObjects();
+
+      store.create(newChassis("b"));
+      store.delete(first.id);
+
+      assertEquals(names(before), listOf("a"));
+      assertEquals(names(store.getObjects()), listOf("b"));
+   }
+
+   @Test(expectedExceptions = UnsupportedOperationException.class)
+   public void servesUnmodifiableObjects() {
+      store.create(newChassis("a"));
+
+      store.getObjects().clear();
+   }
+
+   @Test
+   public void servesObjectsByIdFromTheSnapshot() {
+      final Chassis chassis = store.create(newChassis("a"));
+      final Chassis update = newChassis("renamed");
+      update.id = chassis.id;
+
+      store.update(update);
+
+      assertEquals(store.getObjectById(chassis.id).name, "renamed");
+      store.delete(chassis.id);
+      assertNull(store.getObjectById(chassis.id));
+   }
+
+   @Test
+   public void rollsBackBulkUpdateInReverseOrder() {
+      final Chassis first = store.create(newChassis("a"));
+      final Chassis second = store.create(newChassis("b"));
+
+      // The first chassis object is changed twice before the last update
+      // fails on its duplicate name.
+      try {
+         store.updateAll(Arrays.asList(renamed(first, "x"), renamed(first, "y"),
+               renamed(second, "y")));
+         fail("Expected a duplicate name to fail the bulk update.");
+      } catch (final ExistingChassisObjectException e) {
+         // Expected.
+      }
+
+      assertEquals(store.getObjectById(first.id).name, "a");
+      assertEquals(store.getObjectById(second.id).name, "b");
+      assertEquals(names(store.getObjects()), Arrays.asList("a", "b"));
+      // The names taken by the rolled back updates are free again.
+      store.create(newChassis("x"));
+      store.create(newChassis("y"));
+   }
+
+   @Test
+   public void rollsBackBulkCreate() {
+      store.create(newChassis("a"));
+
+      try {
+         store.createAll(Arrays.asList(newChassis("b"), newChassis("c"),
+               newChassis("a")));
+         fail("Expected a duplicate name to fail the bulk create.");
+      } catch (final ExistingChassisObjectException e) {
+         // Expected.
+      }
+
+      assertEquals(names(store.getObjects()), listOf("a"));
+      store.create(newChassis("b"));
+   }
+
+   @Test
+   public void requiresResyncOnceChangesExceedTheLogCapacity() {
+      final ChassisChanges initial = store.getChangesSince(null, 0);
+      final Chassis chassis = store.create(newChassis("a"));
+      for (int i = 1; i < InMemoryChassisStore.CHANGE_LOG_CAPACITY; i++) {
+         store.update(renamed(chassis, "a" + i));
+      }
+
+      final ChassisChanges atCapacity = store.getChangesSince(initial.epoch,
+            initial.version);
+      assertFalse(atCapacity.resyncRequired);
+      assertEquals(atCapacity.changes.size(), 1);
+
+      store.update(renamed(chassis, "b"));
+
+      final ChassisChanges pastCapacity = store.getChangesSince(initial.epoch,
+            initial.version);
+      assertTrue(pastCapacity.resyncRequired);
+      assertEquals(pastCapacity.version,
+            initial.version + InMemoryChassisStore.CHANGE_LOG_CAPACITY + 1);
+      assertFalse(store.getChangesSince(initial.epoch, initial.version + 1)
+            .resyncRequired);
+   }
+
+   private static Chassis renamed(final Chassis chassis, final String name) {
+      final Chassis update = newChassis(name);
+      update.id = chassis.id;
+      return update;
+   }
+
+   private static Chassis newChassis(final String name) {
+      final Chassis chassis = new Chassis();
+      chassis.name = name;
+      return chassis;
+   }
+
+   private static List<String> names(final List<Chassis> chassisList) {
+      final List<String> names = new ArrayList<>();
+      for (final Chassis chassis : chassisList) {
+         names.add(chassis.name);
+      }
+      return names;
+   }
+
+   private static List<String> listOf(final String name) {
+      final List<String> list = new ArrayList<>();
+      list.add(name);
+      return list;
+   }
+}
@@ -0,0 +1,215 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.store;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Chassis;
+import com.vmware.sample.remote.model.ChassisChange;
+import com.vmware.sample.remote.model.ChassisChanges;
+import com.vmware.sample.remote.model.ChassisPage;
+import com.vmware.sample.remote.model.ChassisPageQuery;
+import com.vmware.sample.remote.model.ChassisPageQuery.FilterMode;
+import com.vmware.sample.remote.model.ChassisPageQuery.SortField;
+import com.vmware.sample.remote.store.exception.ExistingChassisObjectException;
+
+public class JdbcChassisStoreTest {
+   private JdbcChassisStore store;
+
+   @BeforeMethod
+   public void setUp() {
+      // A separate in-memory database per test, kept until the store closes.
+      final StandardEnvironment environment = new StandardEnvironment();
+      environment.getPropertySources().addFirst(new MapPropertySource("test",
+            Collections.singletonMap("chassis.store.jdbc.url",
+                  "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")));
+      store = new JdbcChassisStore(new Configuration(environment));
+      store.open();
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      store.close();
+   }
+
+   @Test
+   public void pagesThroughFilteredChassisWithCursors() {
+      for (final String name : Arrays.asList("page-c", "page-a", "page-e",
+            "page-b", "page-d", "other")) {
+         store.create(newChassis(name));
+      }
+
+      final List<String> names = new ArrayList<>();
+      String cursor = null;
+      int pages = 0;
+      do {
+         final ChassisPage page = store.getPage(new ChassisPageQuery(
+               SortField.NAME, "page-", FilterMode.PREFIX, cursor, 2));
+         names.addAll(names(page.items));
+         cursor = page.nextCursor;
+         pages++;
+      } while (cursor != null);
+
+      assertEquals(names, Arrays.asList("page-a", "page-b", "page-c", "page-d",
+            "page-e"));
+      assertEquals(pages, 3);
+   }
+
+   @Test
+   public void keepsPagesConsistentWhileChassisAreCreated() {
+      store.create(newChassis("page-a"));
+      store.create(newChassis("page-c"));
+      final ChassisPage first = store.getPage(new ChassisPageQuery(
+            SortField.NAME, "page-", FilterMode.PREFIX, null, 1));
+
+      // Sorts before the cursor, so it is not part of the following pages.
+      store.create(newChassis("page-0"));
+      final ChassisPage second = store.getPage(new ChassisPageQuery(
+            SortField.NAME, "page-", FilterMode.PREFIX, first.nextCursor, 1));
+
+      assertEquals(names(first.items), Collections.singletonList("page-a"));
+      assertEquals(names(second.items), Collections.singletonList("page-c"));
+   }
+
+   @Test
+   public void feedsChangesSinceVersion() {
+      final ChassisChanges initial = store.getChangesSince(null, 0);
+      assertTrue(initial.resyncRequired);
+
+      final Chassis updated = store.create(newChassis("a"));
+      final Chassis deleted = store.create(newChassis("b"));
+      updated.name = "renamed";
+      store.update(updated);
+      store.delete(deleted.id);
+
+      final ChassisChanges changes = store.getChangesSince(initial.epoch,
+            initial.version);
+
+      assertFalse(changes.resyncRequired);
+      assertEquals(changes.epoch, initial.epoch);
+      assertEquals(changes.changes.size(), 2);
+      final ChassisChange first = changes.changes.get(0);
+      assertEquals(first.type, ChassisChange.Type.UPDATED);
+      assertEquals(first.chassis.name, "renamed");
+      final ChassisChange second = changes.changes.get(1);
+      assertEquals(second.type, ChassisChange.Type.DELETED);
+      assertEquals(second.chassisId, deleted.id);
+      assertNull(second.chassis);
+
+      final ChassisChanges none = store.getChangesSince(changes.epoch,
+            changes.version);
+      assertFalse(none.resyncRequired);
+      assertTrue(none.changes.isEmpty());
+   }
+
+   @Test
+   public void requiresResyncForAnotherEpoch() {
+      final ChassisChanges initial = store.getChangesSince(null, 0);
+
+      assertTrue(store.getChangesSince("other", initial.version).resyncRequired);
+      assertTrue(store.getChangesSince(initial.epoch, initial.version + 1)
+            .resyncRequired);
+   }
+
+   @Test
+   public void rollsBackBulkCreateWhenAnyChassisFails() {
+      final int count = store.getObjects().size();
+      final ChassisChanges before = store.getChangesSince(null, 0);
+
+      try {
+         store.createAll(Arrays.asList(newChassis("a"), newChassis("b"),
+               newChassis("a")));
+         fail("Expected a duplicate name to fail the bulk create.");
+      } catch (final ExistingChassisObjectException e) {
+         // Expected.
+      }
+
+      assertEquals(store.getObjects().size(), count);
+      assertEquals(store.getChangesSince(null, 0).version, before.version);
+   }
+
+   @Test
+   public void rollsBackBulkUpdateWhenAnyChassisFails() {
+      final Chassis first = store.create(newChassis("a"));
+      final Chassis second = store.create(newChassis("b"));
+      first.name = "renamed";
+      second.name = "renamed";
+
+      try {
+         store.updateAll(Arrays.asList(first, second));
+         fail("Expected a duplicate name to fail the bulk update.");
+      } catch (final ExistingChassisObjectException e) {
+         // Expected.
+      }
+
+      assertEquals(store.getObjectById(first.id).name, "a");
+      assertEquals(store.getObjectById(second.id).name, "b");
+   }
+
+   @Test
+   public void writesRelationsOfHostInBatches() {
+      final List<String> chassisIds = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         chassisIds.add(store.create(newChassis("related-" + i)).id);
+      }
+
+      assertTrue(store.setRelatedChassis("host:1", chassisIds));
+      assertEquals(ids(store.getRelatedChassis("host:1")).size(), 5);
+      for (final String chassisId : chassisIds) {
+         assertEquals(store.getObjectById(chassisId).relatedHostsIds,
+               Collections.singletonList("host:1"));
+      }
+
+      // Keeps two relations, removes three and ignores unknown chassis.
+      assertTrue(store.setRelatedChassis("host:1", Arrays.asList(
+            chassisIds.get(1), chassisIds.get(3), "chassis:unknown")));
+      final List<String> relatedIds = ids(store.getRelatedChassis("host:1"));
+      Collections.sort(relatedIds);
+      assertEquals(relatedIds, Arrays.asList(chassisIds.get(1), chassisIds.get(3)));
+      assertTrue(store.getObjectById(chassisIds.get(0)).relatedHostsIds.isEmpty());
+
+      assertFalse(store.setRelatedChassis("host:1", Arrays.asList(
+            chassisIds.get(3), chassisIds.get(1))));
+   }
+
+   private static Chassis newChassis(final String name) {
+      final Chassis chassis = new Chassis();
+      chassis.name = name;
+      chassis.serverType = "type";
+      chassis.dimensions = "1x1x1";
+      return chassis;
+   }
+
+   private static List<String> names(final List<Chassis> chassisList) {
+      final List<String> names = new ArrayList<>();
+      for (final Chassis chassis : chassisList) {
+         names.add(chassis.name);
+      }
+      return names;
+   }
+
+   private static List<String> ids(final List<Chassis> chassisList) {
+      final List<String> ids = new ArrayList<>();
+      for (final Chassis chassis : chassisList) {
+         ids.add(chassis.id);
+      }
+      return ids;
+   }
+}
@@ -0,0 +1,199 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vmware.sample.remote.configuration.Configuration;
+import com.vmware.sample.remote.model.Message;
+import com.vmware.sample.remote.model.MessageType;
+
+public class MessageReplayBufferTest {
+   private static final String EPOCH = "epoch-1";
+   private static final int CAPACITY = 4;
+   private static final int MESSAGES = 6;
+   private static final long WAIT_MS = 2000;
+
+   private final ObjectMapper objectMapper = new ObjectMapper();
+
+   private WebSocketSessionRegistry registry;
+   private WebSocketMessageDispatcher dispatcher;
+   private MessageReplayBuffer replayBuffer;
+   private RecordingWebSocketSession session;
+
+   @BeforeMethod
+   public void setUp() throws IOException {
+      final StandardEnvironment environment = new StandardEnvironment();
+      environment.getPropertySources().addFirst(new MapPropertySource("test",
+            Collections.singletonMap("websocket.replay.capacity", CAPACITY)));
+      final Configuration configuration = new Configuration(environment);
+      registry = new WebSocketSessionRegistry(configuration);
+      dispatcher = new WebSocketMessageDispatcher(registry, configuration);
+      replayBuffer = new MessageReplayBuffer(dispatcher, registry, configuration);
+
+      // Messages 3 to 6 are kept, on the topics of their chassis.
+      for (int sequence = 1; sequence <= MESSAGES; sequence++) {
+         replayBuffer.broadcast(chassisMessage(sequence));
+      }
+      session = new RecordingWebSocketSession("session-1");
+      registry.addSession(session);
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      dispatcher.shutdown();
+   }
+
+   @Test
+   public void replaysKeptMessagesOfSubscribedTopics() throws IOException {
+      replayBuffer.resume(session, Arrays.asList(chassisTopic(4), chassisTopic(6)),
+            EPOCH, 3);
+
+      final List<Message> received = receiveUntilNext();
+      assertEquals(sequencesOf(received), Arrays.asList(4L, 6L, MESSAGES + 1L));
+      assertEquals(received.get(0).epoch, EPOCH);
+   }
+
+   @Test
+   public void replaysNothingToUpToDateClient() throws IOException {
+      replayBuffer.resume(session, Collections.singletonList(chassisTopic(6)),
+            EPOCH, MESSAGES);
+
+      assertEquals(sequencesOf(receiveUntilNext()),
+            Collections.singletonList(MESSAGES + 1L));
+   }
+
+   @Test
+   public void resyncsClientWhoseMessageIsNoLongerKept() throws IOException {
+      replayBuffer.resume(session, Collections.singletonList(chassisTopic(6)),
+            EPOCH, 2);
+
+      assertResyncedBeforeNext();
+   }
+
+   @Test
+   public void resyncsClientOfAnotherEpoch() throws IOException {
+      replayBuffer.resume(session, Collections.singletonList(chassisTopic(6)),
+            "epoch-0", 5);
+
+      assertResyncedBeforeNext();
+   }
+
+   @Test
+   public void resyncsClientWithoutMessages() throws IOException {
+      replayBuffer.resume(session, Collections.singletonList(chassisTopic(6)),
+            null, 0);
+
+      assertResyncedBeforeNext();
+   }
+
+   @Test
+   public void broadcastsResyncToUnsubscribedClients() throws IOException {
+      replayBuffer.broadcast(new Message(MessageType.RESYNC)
+            .withSequence(EPOCH, MESSAGES + 1));
+
+      final Message message = receive(1).get(0);
+      assertEquals(message.type, MessageType.RESYNC);
+      assertEquals(message.sequence, MESSAGES + 1);
+   }
+
+   /**
+    * Asserts that the client is sent a RESYNC message with the last kept
+    * epoch and sequence, and then the next broadcast message.
+    */
+   private void assertResyncedBeforeNext() throws IOException {
+      final List<Message> received = receiveUntilNext();
+      assertEquals(received.size(), 2);
+      assertEquals(received.get(0).type, MessageType.RESYNC);
+      assertEquals(received.get(0).epoch, EPOCH);
+      assertEquals(received.get(0).sequence, MESSAGES);
+      assertEquals(received.get(1).sequence, MESSAGES + 1);
+   }
+
+   /**
+    * Broadcasts the next message on a topic of the client and returns the
+    * messages it receives up to that one, since the messages of a client are
+    * sent in order.
+    */
+   private List<Message> receiveUntilNext() throws IOException {
+      final Message next = new Message(MessageType.CHASSIS_UPDATED,
+            Collections.singletonList(chassisTopic(6)))
+            .withSequence(EPOCH, MESSAGES + 1);
+      replayBuffer.broadcast(next);
+
+      final long start = System.nanoTime();
+      while (true) {
+         final List<Message> received = receive(0);
+         if (!received.isEmpty() &&
+               received.get(received.size() - 1).sequence == next.sequence) {
+            return received;
+         }
+         assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < WAIT_MS,
+               "The next message is not received.");
+         sleep();
+      }
+   }
+
+   /**
+    * @return the messages received by the client, once there are at least
+    * the given number of them.
+    */
+   private List<Message> receive(final int count) throws IOException {
+      final long start = System.nanoTime();
+      while (session.getSentMessages().size() < count) {
+         assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < WAIT_MS,
+               "The messages are not received.");
+         sleep();
+      }
+      final List<Message> messages = new ArrayList<>();
+      for (final WebSocketMessage<?> sentMessage : session.getSentMessages()) {
+         messages.add(objectMapper.readValue(
+               ((TextMessage) sentMessage).getPayload(), Message.class));
+      }
+      return messages;
+   }
+
+   private static void sleep() {
+      try {
+         Thread.sleep(10);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static Message chassisMessage(final int sequence) {
+      return new Message(MessageType.CHASSIS_UPDATED,
+            Collections.singletonList(chassisTopic(sequence)))
+            .withSequence(EPOCH, sequence);
+   }
+
+   private static String chassisTopic(final int index) {
+      return Message.chassisTopic("chassis:" + index);
+   }
+
+   private static List<Long> sequencesOf(final List<Message> messages) {
+      final List<Long> sequences = new ArrayList<>();
+      for (final Message message : messages) {
+         sequences.add(message.sequence);
+      }
+      return sequences;
+   }
+}
@@ -0,0 +1,137 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * WebSocket session which records the messages sent to it and how it was
+ * closed.
+ */
+class RecordingWebSocketSession implements WebSocketSession {
+   private final String id;
+   private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+   private final List<WebSocketMessage<?>> sentMessages = new CopyOnWriteArrayList<>();
+   private volatile boolean open = true;
+   private volatile CloseStatus closeStatus;
+
+   RecordingWebSocketSession(final String id) {
+      this.id = id;
+   }
+
+   List<WebSocketMessage<?>> getSentMessages() {
+      return sentMessages;
+   }
+
+   /**
+    * @return the status the session was closed with, or null if it was not
+    * closed by the server.
+    */
+   CloseStatus getCloseStatus() {
+      return closeStatus;
+   }
+
+   /**
+    * Drops the connection without the server closing the session.
+    */
+   void disconnect() {
+      open = false;
+   }
+
+   @Override
+   public String getId() {
+      return id;
+   }
+
+   @Override
+   public URI getUri() {
+      return null;
+   }
+
+   @Override
+   public HttpHeaders getHandshakeHeaders() {
+      return new HttpHeaders();
+   }
+
+   @Override
+   public Map<String, Object> getAttributes() {
+      return attributes;
+   }
+
+   @Override
+   public Principal getPrincipal() {
+      return null;
+   }
+
+   @Override
+   public InetSocketAddress getLocalAddress() {
+      return null;
+   }
+
+   @Override
+   public InetSocketAddress getRemoteAddress() {
+      return null;
+   }
+
+   @Override
+   public String getAcceptedProtocol() {
+      return null;
+   }
+
+   @Override
+   public void setTextMessageSizeLimit(final int messageSizeLimit) {
+   }
+
+   @Override
+   public int getTextMessageSizeLimit() {
+      return 0;
+   }
+
+   @Override
+   public void setBinaryMessageSizeLimit(final int messageSizeLimit) {
+   }
+
+   @Override
+   public int getBinaryMessageSizeLimit() {
+      return 0;
+   }
+
+   @Override
+   public List<WebSocketExtension> getExtensions() {
+      return Collections.emptyList();
+   }
+
+   @Override
+   public void sendMessage(final WebSocketMessage<?> message) {
+      sentMessages.add(message);
+   }
+
+   @Override
+   public boolean isOpen() {
+      return open;
+   }
+
+   @Override
+   public void close() {
+      close(CloseStatus.NORMAL);
+   }
+
+   @Override
+   public void close(final CloseStatus status) {
+      closeStatus = status;
+      open = false;
+   }
+}
@@ -0,0 +1,112 @@
+/* Copyright (c) 2023 VMware, Inc. All rights reserved. */
+
+package com.vmware.sample.remote.websocket;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.vmware.sample.remote.configuration.Configuration;
+
+public class WebSocketSessionHeartbeatTest {
+   private static final int INTERVAL_MS = 20;
+   private static final int IDLE_TIMEOUT_MS = 200;
+   private static final long WAIT_MS = 2000;
+
+   private WebSocketSessionRegistry registry;
+   private WebSocketSessionHeartbeat heartbeat;
+   private List<String> removedSessionIds;
+
+   @BeforeMethod
+   public void setUp() {
+      final Map<String, Object> properties = new HashMap<>();
+      properties.put("websocket.heartbeat.intervalMs", INTERVAL_MS);
+      properties.put("websocket.heartbeat.idleTimeoutMs", IDLE_TIMEOUT_MS);
+      final StandardEnvironment environment = new StandardEnvironment();
+      environment.getPropertySources().addFirst(
+            new MapPropertySource("test", properties));
+      final Configuration configuration = new Configuration(environment);
+
+      registry = new WebSocketSessionRegistry(configuration);
+      removedSessionIds = new CopyOnWriteArrayList<>();
+      registry.addSessionRemovalListener(removedSessionIds::add);
+      heartbeat = new WebSocketSessionHeartbeat(registry, configuration);
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      heartbeat.stop();
+   }
+
+   @Test
+   public void evictsClosedSession() throws Exception {
+      final RecordingWebSocketSession session = new RecordingWebSocketSession("closed");
+      registry.addSession(session);
+      registry.subscribe(session, Collections.singleton("chassis"));
+      session.disconnect();
+
+      heartbeat.start();
+
+      awaitRemoval("closed");
+      assertEquals(registry.getEvictedSessionCount(), 1);
+      assertFalse(registry.isSubscribed("closed", Collections.singleton("chassis")));
+      assertNull(session.getCloseStatus());
+      assertTrue(session.getSentMessages().isEmpty());
+   }
+
+   @Test
+   public void evictsAndClosesIdleSession() throws Exception {
+      final long start = System.nanoTime();
+      final RecordingWebSocketSession idleSession =
+            new RecordingWebSocketSession("idle");
+      final RecordingWebSocketSession activeSession =
+            new RecordingWebSocketSession("active");
+      registry.addSession(idleSession);
+      registry.addSession(activeSession);
+
+      heartbeat.start();
+
+      // The active session keeps answering, so it outlives the idle timeout.
+      while (!removedSessionIds.contains("idle")) {
+         assertTrue(millisSince(start) < WAIT_MS, "The idle session is not evicted.");
+         registry.recordActivity(activeSession);
+         Thread.sleep(INTERVAL_MS);
+      }
+
+      assertTrue(millisSince(start) >= IDLE_TIMEOUT_MS);
+      assertEquals(idleSession.getCloseStatus(), CloseStatus.SESSION_NOT_RELIABLE);
+      assertTrue(idleSession.getSentMessages().get(0) instanceof PingMessage);
+      assertTrue(registry.hasSession("active"));
+      assertTrue(activeSession.isOpen());
+      assertEquals(removedSessionIds, Collections.singletonList("idle"));
+      assertEquals(registry.getEvictedSessionCount(), 1);
+   }
+
+   private void awaitRemoval(final String sessionId) throws InterruptedException {
+      final long start = System.nanoTime();
+      while (!removedSessionIds.contains(sessionId)) {
+         assertTrue(millisSince(start) < WAIT_MS, "The session is not evicted.");
+         Thread.sleep(INTERVAL_MS);
+      }
+   }
+
+   private static long millisSince(final long startNanos) {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+   }
+}